@@ -0,0 +1,59 @@
+package benchmark;
+
+import app.services.MovieResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import stub.SyntheticCatalogue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of TMDB documents the way {@code ApiService} does it: a discover page bound to {@link MovieResponse},
+ * and a credits document read as a tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private ObjectMapper objectMapper;
+    private String discoverPage;
+    private String creditsDocument;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        SyntheticCatalogue catalogue = new SyntheticCatalogue(42, 1, 2_000, 15);
+        discoverPage = objectMapper.writeValueAsString(catalogue.discoverPage(1));
+        creditsDocument = objectMapper.writeValueAsString(catalogue.movieWithCredits(1));
+    }
+
+    @Benchmark
+    public MovieResponse deserializeDiscoverPage() throws Exception {
+        return objectMapper.readValue(discoverPage, MovieResponse.class);
+    }
+
+    @Benchmark
+    public JsonNode readCreditsTree() throws Exception {
+        return objectMapper.readTree(creditsDocument);
+    }
+
+    // Baseline for the new ObjectMapper ApiService used to build for every discover page.
+    @Benchmark
+    public MovieResponse deserializeWithFreshMapper() throws Exception {
+        return new ObjectMapper().registerModule(new JavaTimeModule()).readValue(discoverPage, MovieResponse.class);
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import app.dtos.MovieDTO;
+import app.entities.Actor;
+import app.entities.Movie;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity/DTO mapping in the DAOs. The mappers never touch the database, so the DAOs are built without a factory.
+ * Run with {@code -prof gc} to see the allocation per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"10000"})
+    int movieCount;
+
+    @Param({"15"})
+    int castSize;
+
+    private ActorDAO actorDAO;
+    private MovieDAO movieDAO;
+    private List<MovieDTO> dtos;
+    private List<Movie> entities;
+    private List<Actor> actors;
+
+    @Setup
+    public void setUp() {
+        actorDAO = new ActorDAO(null);
+        movieDAO = new MovieDAO(null, actorDAO, new DirectorDAO(null));
+        dtos = MovieFixtures.movies(movieCount, castSize);
+        entities = dtos.stream().map(movieDAO::toEntity).toList();
+        actors = entities.stream().flatMap(movie -> movie.getCast().stream()).toList();
+    }
+
+    @Benchmark
+    public void movieToEntity(Blackhole blackhole) {
+        for (MovieDTO dto : dtos) {
+            blackhole.consume(movieDAO.toEntity(dto));
+        }
+    }
+
+    @Benchmark
+    public void movieToDTO(Blackhole blackhole) {
+        for (Movie movie : entities) {
+            blackhole.consume(movieDAO.toDTO(movie));
+        }
+    }
+
+    @Benchmark
+    public void movieToDTOList(Blackhole blackhole) {
+        blackhole.consume(movieDAO.toDTOs(entities));
+    }
+
+    @Benchmark
+    public void movieToView(Blackhole blackhole) {
+        blackhole.consume(movieDAO.toViews(entities));
+    }
+
+    @Benchmark
+    public void actorToDTO(Blackhole blackhole) {
+        for (Actor actor : actors) {
+            blackhole.consume(actorDAO.toDTO(actor));
+        }
+    }
+}
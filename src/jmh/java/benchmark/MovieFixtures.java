@@ -0,0 +1,62 @@
+package benchmark;
+
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.MovieDTO;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds deterministic, import-shaped movie DTOs for the JMH suites.
+ */
+final class MovieFixtures {
+    private static final int[] GENRE_IDS = {28, 12, 16, 35, 80, 99, 18, 10751, 14, 36, 27, 10402, 9648, 10749, 878, 10770, 53, 10752, 37};
+
+    private MovieFixtures() {
+    }
+
+    /**
+     * @param count    number of movies
+     * @param castSize number of actors per movie
+     * @return movies with cast, one director and two genres each
+     */
+    static List<MovieDTO> movies(int count, int castSize) {
+        Random random = new Random(42);
+        List<MovieDTO> movies = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            List<ActorDTO> cast = new ArrayList<>(castSize);
+            for (int a = 0; a < castSize; a++) {
+                int personId = random.nextInt(count * 2) + 1;
+                cast.add(ActorDTO.builder().actorId(personId).name("Person " + personId).gender(personId % 3).knownFor(new ArrayList<>()).build());
+            }
+            List<DirectorDTO> directors = new ArrayList<>(List.of(DirectorDTO.builder().name("Director " + i).gender(1).knownFor(new ArrayList<>()).build()));
+
+            movies.add(MovieDTO.builder()
+                    .tmdbId(i)
+                    .originalTitle("Movie " + random.nextInt(count * 10))
+                    .releaseDate(LocalDate.of(2019, 1, 1).plusDays(random.nextInt(2000)))
+                    .voteAverage(random.nextInt(100) / 10.0)
+                    .cast(cast)
+                    .directors(directors)
+                    .genres(new ArrayList<>(List.of(GENRE_IDS[random.nextInt(GENRE_IDS.length)], GENRE_IDS[random.nextInt(GENRE_IDS.length)])))
+                    .build());
+        }
+        return movies;
+    }
+
+    /**
+     * Persists the movies through {@link MovieDAO#create}, the same path the import uses.
+     */
+    static void persist(EntityManagerFactory emf, List<MovieDTO> movies) {
+        ActorDAO actorDAO = new ActorDAO(emf);
+        MovieDAO movieDAO = new MovieDAO(emf, actorDAO, new DirectorDAO(emf));
+        movies.forEach(movieDAO::create);
+    }
+}
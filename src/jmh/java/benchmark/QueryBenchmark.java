@@ -0,0 +1,96 @@
+package benchmark;
+
+import app.dtos.MovieDTO;
+import app.dtos.MovieView;
+import app.enums.HibernateConfigState;
+import app.enums.MovieSortOrder;
+import app.persistence.HibernateConfig;
+import app.services.ApiService;
+import app.services.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@link MovieService} against a Testcontainers PostgreSQL seeded with import-shaped movies,
+ * plus the in-memory sort the service applies on top of {@code getAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"500"})
+    int movieCount;
+
+    private EntityManagerFactory emf;
+    private MovieService movieService;
+    private List<MovieView> loadedMovies;
+    private String existingTitle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieService = new MovieService(emf, new ApiService("http://localhost", "unused"));
+
+        List<MovieDTO> movies = MovieFixtures.movies(movieCount, 5);
+        MovieFixtures.persist(emf, movies);
+        existingTitle = movies.get(movies.size() / 2).getOriginalTitle();
+        loadedMovies = movieService.getMoviesSorted(MovieSortOrder.TITLE, 1, movieCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    @Benchmark
+    public List<MovieView> sortByTitle() {
+        return movieService.sortByTitle();
+    }
+
+    @Benchmark
+    public List<MovieView> firstPageByReleaseDate() {
+        return movieService.getMoviesSorted(MovieSortOrder.RELEASE_DATE, 1, 20);
+    }
+
+    @Benchmark
+    public List<MovieDTO> topTen() {
+        return movieService.getTopTenMovies();
+    }
+
+    @Benchmark
+    public List<MovieDTO> searchByTitle() {
+        return movieService.searchByTitle(existingTitle);
+    }
+
+    @Benchmark
+    public double averageRating() {
+        return movieService.getAvgRatingOfMovies();
+    }
+
+    @Benchmark
+    public List<MovieView> inMemorySortByReleaseDate() {
+        return loadedMovies.stream()
+                .sorted(Comparator.comparing(MovieView::releaseDate))
+                .toList();
+    }
+}
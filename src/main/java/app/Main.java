@@ -1,24 +1,89 @@
 package app;
 
-import app.dtos.MovieDTO;
+import app.config.ApplicationConfig;
+import app.config.ApplicationContext;
+import app.dtos.MovieView;
 import app.enums.HibernateConfigState;
-import app.persistence.HibernateConfig;
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueListener;
+import app.persistence.CatalogueVersion;
+import app.persistence.ReadRouting;
+import app.persistence.StartupProbe;
 import app.services.MovieService;
-import jakarta.persistence.EntityManagerFactory;
+import app.services.ShardedImport;
+import io.javalin.Javalin;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class Main {
-    final static EntityManagerFactory entityManagerFactory = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.NORMAL);
 
+    /**
+     * Starts the REST API. Passing {@code import} as the first argument runs the TMDB batch import
+     * and prints the catalogue instead, {@code import-shard [pages] [pagesPerShard]} runs this process as one worker of a sharded import,
+     * {@code refresh-ratings} only re-reads the vote averages of imported movies,
+     * {@code export-snapshot <file>} and {@code restore-snapshot <file>} write the catalogue to a binary snapshot or
+     * replace it with one;
+     * {@code startup} only boots Hibernate, runs one query and prints how
+     * long that took, which is also the training run for the AppCDS archive of the {@code startup} profile.
+     * With {@code CATALOGUE_NOTIFY=true} every process announces its catalogue writes, and the REST API drops its
+     * cached responses when another process writes.
+     */
     public static void main(String[] args) {
-        MovieService movieService = MovieService.getInstance(entityManagerFactory);
+        if (args.length > 0 && args[0].equals("startup")) {
+            StartupProbe.run(HibernateConfigState.NORMAL);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("import-shard")) {
+            ShardedImport.main(Stream.concat(Stream.of(HibernateConfigState.NORMAL.name()), Arrays.stream(args).skip(1)).toArray(String[]::new));
+            return;
+        }
 
-        System.out.println("Saving movies to the database...");
-        movieService.saveMoviesToDatabase();
+        // Resources are built on first use rather than in a static initializer, so loading Main costs nothing
+        // until a command needs the database, and are released when the JVM exits.
+        ApplicationContext context = new ApplicationContext(HibernateConfigState.NORMAL).closeOnShutdown();
+        MovieService movieService = context.movieService();
 
-        System.out.println("\nMovies sorted by title:");
-        List<MovieDTO> moviesSortedByTitle = movieService.sortByTitle();
-        moviesSortedByTitle.forEach(System.out::println);
+        if (args.length > 0 && args[0].equals("import")) {
+            System.out.println("Saving movies to the database...");
+            movieService.saveMoviesToDatabase();
+
+            System.out.println("\nMovies sorted by title:");
+            // Read from the primary: a replica may not have replayed the import yet.
+            List<MovieView> moviesSortedByTitle = ReadRouting.readYourWrites(movieService::sortByTitle);
+            moviesSortedByTitle.forEach(System.out::println);
+            // Closed right away rather than by the shutdown hook, so idle pool threads cannot delay the exit.
+            context.close();
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("export-snapshot")) {
+            System.out.println(movieService.exportSnapshot(Path.of(args[1])));
+            context.close();
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("restore-snapshot")) {
+            System.out.println(movieService.restoreSnapshot(Path.of(args[1])));
+            context.close();
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("refresh-ratings")) {
+            System.out.println(movieService.refreshRatings());
+            context.close();
+            return;
+        }
+
+        Javalin app = ApplicationConfig.startServer(movieService, context.entityManagerFactory());
+        context.onClose(app::stop);
+        if (CatalogueChanges.isEnabled()) {
+            // Invalidation is deliberately global: every cached view is a listing that any movie, person or genre
+            // may appear in, so one version bump per batch of changes from other nodes drops what a local write would.
+            CatalogueListener listener = CatalogueListener.start(context.entityManagerFactory(), changes -> CatalogueVersion.bump());
+            context.onClose(listener::close);
+        }
     }
 }
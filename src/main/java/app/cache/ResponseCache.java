@@ -0,0 +1,95 @@
+package app.cache;
+
+import app.controllers.ResponseWriter;
+import app.persistence.CatalogueVersion;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of fully encoded JSON responses keyed by query. Entries hold the UTF-8 body, its ETag and, for bodies
+ * large enough to be compressed, a pre-gzipped copy, so a hit is served straight from memory without touching
+ * the database, Jackson or the compressor.
+ *
+ * Entries are tagged with the {@link CatalogueVersion} they were built at and ignored once the catalogue moves on.
+ */
+public class ResponseCache {
+    private final Map<String, CachedResponse> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final boolean precompress;
+
+    /**
+     * @param maxEntries  the maximum number of cached responses
+     * @param precompress whether to store a gzipped copy next to each body
+     */
+    public ResponseCache(int maxEntries, boolean precompress) {
+        this.maxEntries = maxEntries;
+        this.precompress = precompress;
+    }
+
+    /**
+     * Returns the cached response for the key if it was built from the current catalogue version.
+     *
+     * @param key the query key
+     * @return the fresh cached response, or {@code null} on a miss
+     */
+    public CachedResponse getIfFresh(String key) {
+        CachedResponse cached = entries.get(key);
+        return cached != null && cached.version() == CatalogueVersion.current() ? cached : null;
+    }
+
+    /**
+     * Returns the cached response for the key, building and caching it with the loader if it is missing or stale.
+     *
+     * @param key    the query key, e.g. {@code top10} or {@code movies:TITLE:1:20}
+     * @param loader produces the object to serialize on a miss
+     * @return the encoded response
+     */
+    public CachedResponse get(String key, Supplier<Object> loader) {
+        long version = CatalogueVersion.current();
+        CachedResponse cached = entries.get(key);
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+
+        byte[] json = ResponseWriter.toJsonBytes(loader.get());
+        byte[] gzipped = precompress && json.length >= ResponseWriter.GZIP_THRESHOLD_BYTES ? ResponseWriter.gzip(json) : null;
+        CachedResponse fresh = new CachedResponse(version, json, gzipped, ResponseWriter.etagOf(json));
+
+        // A write that committed while we were loading may not be reflected in the body, so only keep
+        // the entry if the catalogue is still at the version we started from.
+        if (CatalogueVersion.current() == version && makeRoom(version)) {
+            entries.put(key, fresh);
+        }
+        return fresh;
+    }
+
+    /**
+     * Drops every cached response.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean makeRoom(long version) {
+        if (entries.size() < maxEntries) return true;
+        entries.values().removeIf(entry -> entry.version() != version);
+        return entries.size() < maxEntries;
+    }
+
+    /**
+     * An encoded response body.
+     *
+     * @param version the catalogue version the body was built from
+     * @param json    the UTF-8 encoded JSON body
+     * @param gzipped the gzipped body, or {@code null} if it was not precompressed
+     * @param etag    the weak ETag of the body
+     */
+    public record CachedResponse(long version, byte[] json, byte[] gzipped, String etag) {
+    }
+}
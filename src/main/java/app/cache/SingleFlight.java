@@ -0,0 +1,90 @@
+package app.cache;
+
+import app.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the work, and callers arriving while it is
+ * in flight wait for that same result instead of repeating the work. Nothing is kept once the work completes, so
+ * this is not a cache; a call that starts afterwards runs the work again.
+ *
+ * Joined callers share the result object, and a failure is rethrown to every caller of the flight.
+ *
+ * @param <K> the type of the key
+ */
+public class SingleFlight<K> {
+    private final Map<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter coalesced;
+
+    /**
+     * @param name tags the {@code singleflight.coalesced} counter, e.g. {@code tmdb-credits}
+     */
+    public SingleFlight(String name) {
+        this.coalesced = Metrics.counter("singleflight.coalesced", "name", name);
+    }
+
+    /**
+     * Runs the work, or waits for the run already in flight for the key.
+     *
+     * @param key  identifies the work; callers passing equal keys must expect the same result
+     * @param work produces the result
+     * @return the result of the flight
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> work) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            waiting.incrementAndGet();
+            try {
+                return (V) await(running);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        try {
+            V result = work.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return the number of keys currently in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return the number of callers that joined a flight run by another caller and are waiting for its result
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
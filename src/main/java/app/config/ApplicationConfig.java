@@ -0,0 +1,119 @@
+package app.config;
+
+import app.cache.ResponseCache;
+import app.controllers.MovieController;
+import app.exceptions.ApiException;
+import app.metrics.Metrics;
+import app.persistence.QueryDiagnostics;
+import app.routes.Routes;
+import app.services.MovieService;
+import io.javalin.Javalin;
+import io.javalin.http.HttpStatus;
+import io.javalin.validation.ValidationException;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.javalin.apibuilder.ApiBuilder.path;
+
+/**
+ * Builds and starts the Javalin server exposing the catalogue under {@code /api}, the Prometheus
+ * metrics under {@code /metrics} and Hibernate query statistics under {@code /diagnostics/queries}.
+ */
+public class ApplicationConfig {
+    private static final int DEFAULT_PORT = 7070;
+    // Handlers block on JDBC, so more workers than pooled connections would only queue inside Hibernate.
+    private static final int HANDLER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int RESPONSE_CACHE_ENTRIES = 1024;
+
+    private ApplicationConfig() {
+    }
+
+    /**
+     * Starts the server on the port configured by {@code JAVALIN_PORT}, falling back to {@code javalin.port}
+     * from {@code properties-from-pom.properties} and finally to 7070.
+     *
+     * @param movieService the service backing the endpoints
+     * @param emf          the factory whose Hibernate statistics are exposed under {@code /diagnostics}
+     * @return the started {@link Javalin} instance
+     */
+    public static Javalin startServer(MovieService movieService, EntityManagerFactory emf) {
+        return startServer(movieService, emf, resolvePort());
+    }
+
+    /**
+     * Starts the server on the given port.
+     *
+     * @param movieService the service backing the endpoints
+     * @param emf          the factory whose Hibernate statistics are exposed under {@code /diagnostics}
+     * @param port         the port to listen on; 0 picks a free port
+     * @return the started {@link Javalin} instance
+     */
+    public static Javalin startServer(MovieService movieService, EntityManagerFactory emf, int port) {
+        ExecutorService handlerExecutor = Metrics.monitor(
+                Executors.newFixedThreadPool(HANDLER_THREADS, namedThreadFactory("api-handler-")), "api-handler");
+        ResponseCache responseCache = new ResponseCache(RESPONSE_CACHE_ENTRIES, true);
+        MovieController movieController = new MovieController(movieService, handlerExecutor, responseCache);
+        Routes routes = new Routes(movieController);
+
+        Javalin app = Javalin.create(config -> {
+            config.showJavalinBanner = false;
+            config.routing.ignoreTrailingSlashes = true;
+            // Compression is done by ResponseWriter so that cached, pre-gzipped bodies are not compressed twice.
+            config.compression.none();
+        });
+
+        app.routes(() -> path("api", routes.getRoutes()));
+        QueryDiagnostics queryDiagnostics = new QueryDiagnostics(emf);
+        app.get("/metrics", ctx -> {
+            queryDiagnostics.publishTo(Metrics.registry());
+            ctx.contentType(Metrics.PROMETHEUS_CONTENT_TYPE).result(Metrics.scrape());
+        });
+        app.get("/diagnostics/queries", ctx -> ctx.json(Map.of(
+                "enabled", queryDiagnostics.isEnabled(),
+                "summary", queryDiagnostics.getSummary(),
+                "queries", queryDiagnostics.getQueryStats())));
+
+        app.exception(ApiException.class, (e, ctx) -> ctx
+                .status(e.getStatusCode())
+                .json(Map.of("status", e.getStatusCode(), "message", e.getMessage())));
+        app.exception(ValidationException.class, (e, ctx) -> ctx
+                .status(HttpStatus.BAD_REQUEST)
+                .json(Map.of("status", 400, "message", e.getErrors())));
+
+        app.events(event -> event.serverStopped(handlerExecutor::shutdown));
+        return app.start(port);
+    }
+
+    private static int resolvePort() {
+        String port = System.getenv("JAVALIN_PORT");
+        if (port == null) {
+            try (InputStream in = ApplicationConfig.class.getClassLoader().getResourceAsStream("properties-from-pom.properties")) {
+                if (in != null) {
+                    Properties properties = new Properties();
+                    properties.load(in);
+                    port = properties.getProperty("javalin.port");
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read properties-from-pom.properties: " + e.getMessage());
+            }
+        }
+        return port != null ? Integer.parseInt(port.trim()) : DEFAULT_PORT;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package app.config;
+
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.services.ApiService;
+import app.services.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Owns the heavyweight objects of the application: the {@link EntityManagerFactory} with its connection pool, the
+ * {@link ApiService} with its executor, and the {@link MovieService} built on both. Each is created on first use
+ * and exactly once, even under concurrent access, and {@link #close()} releases them in reverse order of
+ * dependency.
+ */
+public final class ApplicationContext implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationContext.class);
+
+    private final Lazy<EntityManagerFactory> entityManagerFactory;
+    private final Lazy<EntityManagerFactory> readEntityManagerFactory;
+    private final Lazy<ApiService> apiService;
+    private final Lazy<MovieService> movieService;
+    private final Deque<Runnable> shutdownActions = new ArrayDeque<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public ApplicationContext(HibernateConfigState state) {
+        this.entityManagerFactory = Lazy.of(() -> HibernateConfig.getEntityManagerFactoryConfig(state));
+        this.apiService = Lazy.of(ApiService::fromEnvironment);
+        // The same instance as entityManagerFactory when no replica is configured.
+        this.readEntityManagerFactory = Lazy.of(() -> HibernateConfig.getReadEntityManagerFactoryConfig(state));
+        this.movieService = Lazy.of(() -> new MovieService(entityManagerFactory.get(), readEntityManagerFactory.get(), apiService.get()));
+    }
+
+    public EntityManagerFactory entityManagerFactory() {
+        return entityManagerFactory.get();
+    }
+
+    /**
+     * @return the factory catalogue reads go to: the read replica if one is configured, otherwise the primary
+     */
+    public EntityManagerFactory readEntityManagerFactory() {
+        return readEntityManagerFactory.get();
+    }
+
+    public ApiService apiService() {
+        return apiService.get();
+    }
+
+    public MovieService movieService() {
+        return movieService.get();
+    }
+
+    /**
+     * Registers an action to run on {@link #close()}, before the context's own resources are released. Actions run
+     * in reverse order of registration, so something started last, such as the web server, is stopped first.
+     */
+    public synchronized void onClose(Runnable action) {
+        shutdownActions.push(action);
+    }
+
+    /**
+     * Closes the context when the JVM exits, including on Ctrl-C and SIGTERM.
+     *
+     * @return this context
+     */
+    public ApplicationContext closeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "application-shutdown"));
+        return this;
+    }
+
+    /**
+     * Runs the registered shutdown actions, then shuts down the ApiService executor and closes the
+     * EntityManagerFactories. Safe to call more than once and from several threads; only the first call does anything.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        Runnable action;
+        while ((action = nextShutdownAction()) != null) {
+            runQuietly(action);
+        }
+        apiService.ifCreated(service -> runQuietly(service::close));
+        entityManagerFactory.ifCreated(emf -> runQuietly(() -> {
+            if (emf.isOpen()) {
+                emf.close();
+            }
+        }));
+        // Already closed above when it is the primary itself.
+        readEntityManagerFactory.ifCreated(emf -> runQuietly(() -> {
+            if (emf.isOpen()) {
+                emf.close();
+            }
+        }));
+        logger.info("Application context closed");
+    }
+
+    private synchronized Runnable nextShutdownAction() {
+        return shutdownActions.poll();
+    }
+
+    // One failing resource must not keep the others open.
+    private static void runQuietly(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            logger.error("Error during shutdown: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package app.config;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A value that is created on first use, at most once, however many threads ask for it at the same time.
+ * Double-checked locking on a volatile field: after creation, reads cost one volatile load and never lock.
+ *
+ * @param <T> the type of the value
+ */
+public final class Lazy<T> {
+    private final Supplier<T> factory;
+    private volatile T value;
+
+    private Lazy(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    public static <T> Lazy<T> of(Supplier<T> factory) {
+        return new Lazy<>(factory);
+    }
+
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = factory.get();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs the action on the value if it has been created, without creating it. Used on shutdown, where building
+     * a resource only to close it again would be wasted work.
+     */
+    public void ifCreated(Consumer<T> action) {
+        T result = value;
+        if (result != null) {
+            action.accept(result);
+        }
+    }
+}
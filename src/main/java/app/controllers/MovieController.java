@@ -0,0 +1,113 @@
+package app.controllers;
+
+import app.cache.ResponseCache;
+import app.enums.MovieSortOrder;
+import app.exceptions.ApiException;
+import app.exceptions.JpaException;
+import app.services.MovieService;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Javalin handlers for the movie catalogue. Every handler hands the blocking {@link MovieService} call to a
+ * dedicated executor and completes the request asynchronously, so Jetty's request threads are never parked
+ * on database I/O. Responses are served from the {@link ResponseCache} while the catalogue is unchanged.
+ */
+public class MovieController {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final MovieService movieService;
+    private final ExecutorService executorService;
+    private final ResponseCache responseCache;
+
+    public MovieController(MovieService movieService, ExecutorService executorService, ResponseCache responseCache) {
+        this.movieService = movieService;
+        this.executorService = executorService;
+        this.responseCache = responseCache;
+    }
+
+    public Handler getMovies() {
+        return ctx -> {
+            MovieSortOrder sortOrder = parseSortOrder(ctx.queryParam("sort"));
+            int page = ctx.queryParamAsClass("page", Integer.class)
+                    .check(p -> p > 0, "page must be positive")
+                    .getOrDefault(1);
+            int size = ctx.queryParamAsClass("size", Integer.class)
+                    .check(s -> s > 0 && s <= MAX_PAGE_SIZE, "size must be between 1 and " + MAX_PAGE_SIZE)
+                    .getOrDefault(20);
+            respondAsync(ctx, "movies:" + sortOrder + ":" + page + ":" + size,
+                    () -> requireResult(() -> movieService.getMoviesSorted(sortOrder, page, size)));
+        };
+    }
+
+    public Handler searchByTitle() {
+        return ctx -> {
+            String title = ctx.queryParam("title");
+            if (title == null || title.isBlank()) {
+                throw new ApiException(400, "Query parameter 'title' is required.");
+            }
+            respondAsync(ctx, "search:" + title, () -> requireResult(() -> movieService.searchByTitle(title)));
+        };
+    }
+
+    public Handler getTopTen() {
+        return ctx -> respondAsync(ctx, "top10", () -> requireResult(movieService::getTopTenMovies));
+    }
+
+    public Handler getBottomTen() {
+        return ctx -> respondAsync(ctx, "bottom10", () -> requireResult(movieService::getBottomTenMovies));
+    }
+
+    public Handler getAverageRating() {
+        return ctx -> respondAsync(ctx, "average-rating", () -> Map.of("averageRating", requireResult(movieService::getAvgRatingOfMovies)));
+    }
+
+    public Handler getByActor() {
+        return ctx -> {
+            int actorId = ctx.pathParamAsClass("id", Integer.class).get();
+            respondAsync(ctx, "actor:" + actorId, () -> requireResult(() -> movieService.getMoviesByActor(actorId)));
+        };
+    }
+
+    public Handler getByDirector() {
+        return ctx -> {
+            int directorId = ctx.pathParamAsClass("id", Integer.class).get();
+            respondAsync(ctx, "director:" + directorId, () -> requireResult(() -> movieService.getMoviesByDirector(directorId)));
+        };
+    }
+
+    private void respondAsync(Context ctx, String cacheKey, Supplier<Object> query) {
+        // Hits need neither the database nor Jackson, so they are written on the request thread.
+        ResponseCache.CachedResponse hit = responseCache.getIfFresh(cacheKey);
+        if (hit != null) {
+            ResponseWriter.writeJsonBytes(ctx, hit.json(), hit.etag(), hit.gzipped());
+            return;
+        }
+        ctx.future(() -> CompletableFuture
+                .supplyAsync(() -> responseCache.get(cacheKey, query), executorService)
+                .thenAccept(cached -> ResponseWriter.writeJsonBytes(ctx, cached.json(), cached.etag(), cached.gzipped())));
+    }
+
+    private static MovieSortOrder parseSortOrder(String value) {
+        try {
+            return MovieSortOrder.fromParameter(value);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+    }
+
+    // MovieService signals persistence failures with null, which must not reach clients as an empty 200.
+    // The service has logged the failure; the client only learns that the movies could not be read.
+    private static <T> T requireResult(Supplier<T> read) {
+        try {
+            return read.get();
+        } catch (JpaException e) {
+            throw new ApiException(500, "Could not retrieve movies.");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package app.controllers;
+
+import app.exceptions.ApiException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.javalin.http.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes JSON bodies with conditional-request and compression support. Every response carries a weak ETag
+ * computed from the serialized body; a matching {@code If-None-Match} short-circuits to 304 without a body,
+ * and larger bodies are gzipped when the client accepts it.
+ */
+public class ResponseWriter {
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    // Below this size gzip framing costs more than it saves.
+    public static final int GZIP_THRESHOLD_BYTES = 1024;
+
+    private ResponseWriter() {
+    }
+
+    /**
+     * Serializes the body to JSON and writes it to the context, honouring {@code If-None-Match}
+     * and {@code Accept-Encoding}.
+     *
+     * @param ctx  the Javalin context of the request
+     * @param body the object to serialize
+     */
+    public static void writeJson(Context ctx, Object body) {
+        byte[] json = toJsonBytes(body);
+        writeJsonBytes(ctx, json, etagOf(json), null);
+    }
+
+    /**
+     * Writes an already serialized JSON body. When {@code gzipped} is non-null it is used as-is instead of
+     * compressing {@code json} again.
+     *
+     * @param ctx     the Javalin context of the request
+     * @param json    the UTF-8 encoded JSON body
+     * @param etag    the entity tag of the body
+     * @param gzipped the gzip-compressed body, or {@code null} to compress on demand
+     */
+    public static void writeJsonBytes(Context ctx, byte[] json, String etag, byte[] gzipped) {
+        ctx.header("ETag", etag);
+        ctx.header("Cache-Control", "no-cache");
+        ctx.header("Vary", "Accept-Encoding");
+
+        if (matchesIfNoneMatch(ctx.header("If-None-Match"), etag)) {
+            ctx.status(304);
+            return;
+        }
+
+        ctx.contentType(JSON_CONTENT_TYPE);
+        if (json.length >= GZIP_THRESHOLD_BYTES && acceptsGzip(ctx.header("Accept-Encoding"))) {
+            ctx.header("Content-Encoding", "gzip");
+            ctx.result(gzipped != null ? gzipped : gzip(json));
+        } else {
+            ctx.result(json);
+        }
+    }
+
+    /**
+     * Serializes an object to UTF-8 encoded JSON.
+     *
+     * @param body the object to serialize
+     * @return the JSON bytes
+     * @throws ApiException if the object cannot be serialized
+     */
+    public static byte[] toJsonBytes(Object body) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new ApiException(500, "Could not serialize response. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes a weak entity tag from a response body. The tag is weak because the representation on the
+     * wire may be gzipped, while the tag identifies the uncompressed JSON.
+     *
+     * @param body the response body
+     * @return the quoted weak ETag
+     */
+    public static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Compresses a body with gzip.
+     *
+     * @param body the bytes to compress
+     * @return the gzip-compressed bytes
+     */
+    public static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new ApiException(500, "Could not compress response. " + e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeakPrefix(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // An explicit gzip entry decides, otherwise a wildcard does; a coding that is not listed, as in an
+    // identity-only header, is not acceptable. A qvalue of zero, however written, is a refusal.
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        double wildcard = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                return qualityOf(parts) > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = qualityOf(parts);
+            }
+        }
+        return wildcard > 0;
+    }
+
+    // A malformed qvalue counts as a refusal, so the body is sent uncompressed rather than in a coding the
+    // client may not have asked for.
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(parameter[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
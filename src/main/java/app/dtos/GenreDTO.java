@@ -7,7 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
-import java.util.List;
+import java.util.Set;
 
 @Data
 @AllArgsConstructor
@@ -22,5 +22,5 @@ public class GenreDTO {
     private String genreName;
 
     @JsonIgnore
-    private List<Movie> movies;
+    private Set<Movie> movies;
 }
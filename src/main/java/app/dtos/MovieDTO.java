@@ -26,9 +26,12 @@ import java.util.Set;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class MovieDTO {
 
-    @JsonProperty("id")
+    @JsonIgnore
     private int id;
 
+    @JsonProperty("id")
+    private int tmdbId;
+
     @JsonIgnore
     private List<DirectorDTO> directors = new ArrayList<>();
 
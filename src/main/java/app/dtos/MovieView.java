@@ -0,0 +1,27 @@
+package app.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable, compact form of a movie for large listings, serialized exactly like a {@link MovieDTO}. Movies with the
+ * same genres share one unmodifiable list of genre ids, movies without cast or directors share the empty list,
+ * and {@link PersonRef}s are shared between the movies of one read.
+ *
+ * @param movieId  the database id
+ * @param tmdbId   the TMDB id, serialized as {@code id}
+ * @param genreIds the TMDB genre ids
+ */
+public record MovieView(
+        @JsonIgnore int movieId,
+        @JsonProperty("id") int tmdbId,
+        @JsonProperty("original_title") String originalTitle,
+        @JsonProperty("release_date") LocalDate releaseDate,
+        @JsonProperty("vote_average") double voteAverage,
+        @JsonProperty("genre_ids") List<Integer> genreIds,
+        @JsonIgnore List<PersonRef> cast,
+        @JsonIgnore List<PersonRef> directors) {
+}
@@ -0,0 +1,12 @@
+package app.dtos;
+
+/**
+ * An actor or director as listed by a {@link MovieView}. One read creates a single instance per person and shares
+ * it between every movie the person appears in.
+ *
+ * @param id     the database id
+ * @param tmdbId the TMDB person id; 0 for directors, which are not stored with one
+ * @param name   the name
+ */
+public record PersonRef(int id, int tmdbId, String name) {
+}
@@ -1,13 +1,17 @@
 package app.entities;
 
 import jakarta.persistence.*;
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
-@Data
+@Getter
+@Setter
+@ToString
 @Table(name = "actors")
 public class Actor {
 
@@ -24,8 +28,21 @@ public class Actor {
     @Column(name = "gender")
     private int gender;
 
+    @ToString.Exclude
     @ManyToMany(mappedBy = "cast")
     @Column(name = "knownFor")
-    private List<Movie> knownFor = new ArrayList<>();
-
+    private Set<Movie> knownFor = new HashSet<>();
+
+    // Id-based and association-free; see Movie#equals.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Actor other)) return false;
+        return id != 0 && id == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return Actor.class.hashCode();
+    }
 }
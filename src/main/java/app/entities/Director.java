@@ -2,14 +2,18 @@ package app.entities;
 
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
-@Data
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "directors")
@@ -25,8 +29,21 @@ public class Director {
     @Column(name = "gender")
     private int gender;
 
+    @ToString.Exclude
     @ManyToMany(mappedBy = "directors")
     @Column(name = "knownFor")
-    private List<Movie> knownFor = new ArrayList<>();
-
+    private Set<Movie> knownFor = new HashSet<>();
+
+    // Id-based and association-free; see Movie#equals.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Director other)) return false;
+        return id != 0 && id == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return Director.class.hashCode();
+    }
 }
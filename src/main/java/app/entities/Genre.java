@@ -3,14 +3,18 @@ package app.entities;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.List;
+import java.util.Set;
 
 @NoArgsConstructor
 @AllArgsConstructor
-@Data
+@Getter
+@Setter
+@ToString
 @Entity
 @Builder
 @Table(name = "genres")
@@ -23,8 +27,20 @@ public class Genre {
     @Column(name = "genre")
     private String genre;
 
+    @ToString.Exclude
     @ManyToMany(mappedBy = "genres")
-    private List<Movie> movies;
+    private Set<Movie> movies;
+
+    // Id-based and association-free; see Movie#equals.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Genre other)) return false;
+        return id != 0 && id == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return Genre.class.hashCode();
+    }
 }
-
-
@@ -0,0 +1,25 @@
+package app.entities;
+
+import app.enums.MovieGenre;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Stores a set of {@link MovieGenre}s as the integer bitmask of {@code movies.genre_mask}.
+ */
+@Converter
+public class GenreMaskConverter implements AttributeConverter<Set<MovieGenre>, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(Set<MovieGenre> genres) {
+        return genres == null ? 0 : MovieGenre.toMask(genres);
+    }
+
+    @Override
+    public Set<MovieGenre> convertToEntityAttribute(Integer mask) {
+        return mask == null ? EnumSet.noneOf(MovieGenre.class) : MovieGenre.fromMask(mask);
+    }
+}
@@ -0,0 +1,57 @@
+package app.entities;
+
+import app.enums.ImportJobStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run of the TMDB import. A job that failed, or stopped renewing its heartbeat, is resumed by the next import
+ * within the staleness window of {@link app.persistence.daos.ImportJobDAO}, which skips the pages recorded in
+ * {@link ImportJobPage}.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Table(name = "import_jobs")
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private ImportJobStatus status;
+
+    @Column(name = "pages_requested", nullable = false)
+    private int pagesRequested;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+
+    // Id-based and association-free; see Movie#equals.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImportJob other)) return false;
+        return id != 0 && id == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return ImportJob.class.hashCode();
+    }
+}
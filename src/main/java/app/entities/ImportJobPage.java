@@ -0,0 +1,57 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint of a discover page whose movies have all been committed by an {@link ImportJob}.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Table(name = "import_job_pages",
+        uniqueConstraints = @UniqueConstraint(name = "uk_import_job_pages_job_spec_page", columnNames = {"job_id", "spec", "page"}))
+public class ImportJobPage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "job_id", nullable = false)
+    private ImportJob job;
+
+    /** The {@code ImportSpec} key the page belongs to. */
+    @Column(name = "spec", nullable = false)
+    private String spec;
+
+    @Column(name = "page", nullable = false)
+    private int page;
+
+    @Column(name = "movies_persisted", nullable = false)
+    private int moviesPersisted;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    // Id-based and association-free; see Movie#equals.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImportJobPage other)) return false;
+        return id != 0 && id == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return ImportJobPage.class.hashCode();
+    }
+}
@@ -0,0 +1,65 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A range of discover pages of one import spec that a worker process of a sharded import claims, imports and
+ * completes. The owner keeps renewing the lease while it works; a lease that expires can be claimed by another
+ * worker, which resumes the {@link ImportJob} the previous owner left behind.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Table(name = "import_leases",
+        uniqueConstraints = @UniqueConstraint(name = "uk_import_leases_spec_first_page", columnNames = {"spec", "first_page"}))
+public class ImportLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    /** The {@code ImportSpec} key the pages belong to. */
+    @Column(name = "spec", nullable = false)
+    private String spec;
+
+    @Column(name = "first_page", nullable = false)
+    private int firstPage;
+
+    @Column(name = "last_page", nullable = false)
+    private int lastPage;
+
+    /** The worker holding the lease, or {@code null} if nobody has claimed it yet. */
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    /** The {@link ImportJob} importing the pages, or {@code null} before the first claim. */
+    @Column(name = "job_id")
+    private Integer jobId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Id-based and association-free; see Movie#equals.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImportLease other)) return false;
+        return id != 0 && id == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return ImportLease.class.hashCode();
+    }
+}
@@ -1,16 +1,22 @@
 package app.entities;
 
+import app.enums.MovieGenre;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Entity
-@Data
+@Getter
+@Setter
+@ToString
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "movies")
@@ -20,6 +26,9 @@ public class Movie {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
+    @Column(name = "tmdb_id")
+    private int tmdbId;
+
     @Column(name = "original_title")
     private String originalTitle;
 
@@ -29,27 +38,49 @@ public class Movie {
     @Column(name = "vote_average")
     private double voteAverage;
 
+    @ToString.Exclude
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
             name = "actors_movies",
             joinColumns = @JoinColumn(name = "movie_id"),
             inverseJoinColumns = @JoinColumn(name = "actor_id"))
-    private List<Actor> cast;
+    private Set<Actor> cast = new LinkedHashSet<>();
 
 
+    @ToString.Exclude
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
             name = "directors_movies",
             joinColumns = @JoinColumn(name = "movie_id"),
             inverseJoinColumns = @JoinColumn(name = "director_id"))
-    private List<Director> directors = new ArrayList<>();
+    private Set<Director> directors = new LinkedHashSet<>();
 
+    @ToString.Exclude
     @ManyToMany
     @JoinTable(
             name = "movie_genre",
             joinColumns = @JoinColumn(name = "movie_id"),
             inverseJoinColumns = @JoinColumn(name = "genre_id")
     )
-    private List<Genre> genres = new ArrayList<>();
+    private Set<Genre> genres = new LinkedHashSet<>();
+
+    // The same genres as the join table, as one integer column; see MovieGenre.
+    @Convert(converter = GenreMaskConverter.class)
+    @Column(name = "genre_mask", nullable = false)
+    private Set<MovieGenre> genreMask = EnumSet.noneOf(MovieGenre.class);
+
+    // Identity is the generated id alone. A transient entity (id 0) is only equal to itself, and the hash code is
+    // constant per class so an entity keeps its hash bucket when persisting assigns the id. Neither method touches
+    // an association, so hashing never triggers a lazy load.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Movie other)) return false;
+        return id != 0 && id == other.getId();
+    }
 
+    @Override
+    public int hashCode() {
+        return Movie.class.hashCode();
+    }
 }
@@ -0,0 +1,91 @@
+package app.enums;
+
+import lombok.Getter;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fixed set of TMDB movie genres. A movie's genres are stored as a bitmask in {@code movies.genre_mask}, with
+ * the bit of each genre at its ordinal, and are handled in Java as an {@link EnumSet}, which is a bitmask as well.
+ * The ordinals are therefore part of the schema: new genres go at the end, and existing ones are never reordered.
+ */
+@Getter
+public enum MovieGenre {
+    ACTION(28),
+    ADVENTURE(12),
+    ANIMATION(16),
+    COMEDY(35),
+    CRIME(80),
+    DOCUMENTARY(99),
+    DRAMA(18),
+    FAMILY(10751),
+    FANTASY(14),
+    HISTORY(36),
+    HORROR(27),
+    MUSIC(10402),
+    MYSTERY(9648),
+    ROMANCE(10749),
+    SCIENCE_FICTION(878),
+    TV_MOVIE(10770),
+    THRILLER(53),
+    WAR(10752),
+    WESTERN(37);
+
+    private static final MovieGenre[] VALUES = values();
+    // One list per combination of genres; a catalogue uses a few hundred of them at most.
+    private static final Map<Integer, List<Integer>> TMDB_IDS_BY_MASK = new ConcurrentHashMap<>();
+
+    private final int tmdbId;
+
+    MovieGenre(int tmdbId) {
+        this.tmdbId = tmdbId;
+    }
+
+    /**
+     * @return the bit of this genre in a genre mask
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param tmdbId a TMDB genre id, e.g. {@code 18}
+     * @return the genre with that id
+     * @throws IllegalArgumentException if TMDB has no movie genre with that id
+     */
+    public static MovieGenre ofTmdbId(int tmdbId) {
+        for (MovieGenre genre : VALUES) {
+            if (genre.tmdbId == tmdbId) return genre;
+        }
+        throw new IllegalArgumentException("No genre found with ID: " + tmdbId);
+    }
+
+    public static int toMask(Set<MovieGenre> genres) {
+        int mask = 0;
+        for (MovieGenre genre : genres) {
+            mask |= genre.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * @return the TMDB ids of the genres in the mask, in ordinal order, as an unmodifiable list shared by every
+     * caller asking for the same mask
+     */
+    public static List<Integer> tmdbIdsOf(int mask) {
+        if (mask == 0) return List.of();
+        return TMDB_IDS_BY_MASK.computeIfAbsent(mask, key -> fromMask(key).stream().map(MovieGenre::getTmdbId).toList());
+    }
+
+    public static EnumSet<MovieGenre> fromMask(int mask) {
+        EnumSet<MovieGenre> genres = EnumSet.noneOf(MovieGenre.class);
+        for (MovieGenre genre : VALUES) {
+            if ((mask & genre.bit()) != 0) genres.add(genre);
+        }
+        return genres;
+    }
+}
@@ -0,0 +1,37 @@
+package app.enums;
+
+import lombok.Getter;
+
+/**
+ * Sort orders supported by the paginated movie listings. Each constant carries the JPQL path
+ * it orders by, so callers can never inject arbitrary text into the ORDER BY clause.
+ */
+@Getter
+public enum MovieSortOrder {
+    TITLE("m.originalTitle"),
+    RELEASE_DATE("m.releaseDate"),
+    RATING("m.voteAverage");
+
+    private final String jpqlPath;
+
+    MovieSortOrder(String jpqlPath) {
+        this.jpqlPath = jpqlPath;
+    }
+
+    /**
+     * Resolves a query parameter such as {@code title} or {@code release_date} to a sort order.
+     *
+     * @param value the raw value, case-insensitive; {@code null} falls back to {@link #TITLE}
+     * @return the matching sort order
+     * @throws IllegalArgumentException if the value does not name a sort order
+     */
+    public static MovieSortOrder fromParameter(String value) {
+        if (value == null || value.isBlank()) return TITLE;
+        return switch (value.toLowerCase().replace("-", "_")) {
+            case "title" -> TITLE;
+            case "release_date", "releasedate" -> RELEASE_DATE;
+            case "rating", "vote_average" -> RATING;
+            default -> throw new IllegalArgumentException("Unknown sort order: " + value);
+        };
+    }
+}
@@ -10,9 +10,15 @@ import org.slf4j.LoggerFactory;
 @Getter
 public class ApiException extends RuntimeException {
     private static final Logger logger = (Logger) LoggerFactory.getLogger(ApiException.class);
+    private final int statusCode;
 
     public ApiException(String message) {
+        this(500, message);
+    }
+
+    public ApiException(int statusCode, String message) {
         super(message);
+        this.statusCode = statusCode;
         writeToLog(message);
     }
 
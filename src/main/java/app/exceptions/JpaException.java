@@ -1,5 +1,6 @@
 package app.exceptions;
 
+import app.metrics.Metrics;
 import ch.qos.logback.classic.Logger;
 import lombok.Getter;
 import org.slf4j.LoggerFactory;
@@ -15,6 +16,7 @@ public class JpaException extends RuntimeException {
     public JpaException(String message) {
         super(message);
         writeToLog(message);
+        Metrics.counter("jpa.exceptions").increment();
     }
 
     private void writeToLog(String message) {
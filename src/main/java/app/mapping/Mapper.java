@@ -0,0 +1,21 @@
+package app.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface whose methods map one type to another. At compile time the mapper processor in
+ * {@code src/processor/java} generates {@code <Interface>Impl} next to it, which copies the properties through
+ * getters and the target's builder or setters, without reflection.
+ * <p>
+ * Each method takes the source and returns the target. Target properties are filled from the source property of
+ * the same name, or as configured with {@link Mapping}; collections are converted element by element into lists
+ * and sets allocated at their final size, through the method of the same interface that maps the element type.
+ * A target property the processor cannot fill is a compile error.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Mapper {
+}
@@ -0,0 +1,43 @@
+package app.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures how a method of a {@link Mapper} fills one target property.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+@Repeatable(Mapping.List.class)
+public @interface Mapping {
+
+    /**
+     * @return the name of the target property
+     */
+    String target();
+
+    /**
+     * @return the name of the source property to read, if it differs from the target's
+     */
+    String source() default "";
+
+    /**
+     * @return whether to leave the property alone: at its initializer when the target is built with setters, at
+     * the builder's default otherwise
+     */
+    boolean ignore() default false;
+
+    /**
+     * @return a Java expression for the value, used instead of a source property, e.g. {@code new java.util.ArrayList<>()}
+     */
+    String expression() default "";
+
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.SOURCE)
+    @interface List {
+        Mapping[] value();
+    }
+}
@@ -0,0 +1,105 @@
+package app.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide Micrometer registry and the meters shared by the API client, the services and the DAOs.
+ * Everything registered here is exported in Prometheus text format by the {@code /metrics} endpoint.
+ */
+public class Metrics {
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    static {
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+    }
+
+    private Metrics() {
+    }
+
+    public static MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * @return every registered meter in Prometheus text exposition format
+     */
+    public static String scrape() {
+        return registry.scrape();
+    }
+
+    /**
+     * Builds a timer that also publishes a percentile histogram, so latency quantiles can be aggregated
+     * across instances in Prometheus.
+     *
+     * @param name the meter name
+     * @param tags alternating tag keys and values
+     * @return the registered timer
+     */
+    public static Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public static Counter counter(String name, String... tags) {
+        return registry.counter(name, tags);
+    }
+
+    /**
+     * Times a DAO method returning a value, and counts it in {@code dao.errors} if it throws.
+     *
+     * @param dao    the simple name of the DAO, e.g. {@code MovieDAO}
+     * @param method the name of the DAO method
+     * @param body   the method body
+     * @return the result of the body
+     */
+    public static <T> T recordDao(String dao, String method, Supplier<T> body) {
+        return timer("dao.calls", "dao", dao, "method", method).record(() -> {
+            try {
+                return body.get();
+            } catch (RuntimeException e) {
+                counter("dao.errors", "dao", dao, "method", method).increment();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Times a DAO method without a return value, and counts it in {@code dao.errors} if it throws.
+     *
+     * @param dao    the simple name of the DAO, e.g. {@code MovieDAO}
+     * @param method the name of the DAO method
+     * @param body   the method body
+     */
+    public static void recordDao(String dao, String method, Runnable body) {
+        recordDao(dao, method, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wraps an executor so its pool size, active threads and queue depth are exported.
+     *
+     * @param executor the executor to monitor
+     * @param name     the value of the {@code name} tag
+     * @return the monitored executor, to be used in place of the original
+     */
+    public static ExecutorService monitor(ExecutorService executor, String name) {
+        return ExecutorServiceMetrics.monitor(registry, executor, name);
+    }
+}
@@ -0,0 +1,44 @@
+package app.persistence;
+
+/**
+ * A committed write to the catalogue, as sent between nodes by {@link CatalogueChanges} and received by
+ * {@link CatalogueListener}. The payload is plain text, {@code <origin> <entity>}.
+ *
+ * A change names the written entity but not its rows: every cached response is a listing that any movie, person
+ * or genre may enter or leave, so receivers invalidate globally, as a local write does, and ids would tell them
+ * nothing they could act on.
+ *
+ * @param origin the node that made the write
+ * @param entity the simple name of the written entity, e.g. {@code Movie}, or {@link #ANY_ENTITY}
+ */
+public record CatalogueChange(String origin, String entity) {
+    /**
+     * The entity of a change that may have touched anything, such as the changes a listener missed while disconnected.
+     */
+    public static final String ANY_ENTITY = "*";
+
+    /**
+     * Builds the payload of a notification.
+     */
+    static String toPayload(String origin, String entity) {
+        return origin + " " + entity;
+    }
+
+    /**
+     * Parses a notification payload.
+     *
+     * @throws IllegalArgumentException if the payload was not written by {@link #toPayload}
+     */
+    public static CatalogueChange parse(String payload) {
+        String[] parts = payload.split(" ");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Not a catalogue change: " + payload);
+        }
+        return new CatalogueChange(parts[0], parts[1]);
+    }
+
+    @Override
+    public String toString() {
+        return origin + " " + entity;
+    }
+}
@@ -0,0 +1,61 @@
+package app.persistence;
+
+import jakarta.persistence.EntityManager;
+import lombok.NoArgsConstructor;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.util.UUID;
+
+/**
+ * Tells the other nodes about catalogue writes, so their caches do not serve stale data until they happen to
+ * write themselves. The DAOs call {@link #publish} inside the write transaction; {@code pg_notify} is transactional,
+ * so the notification is delivered when the transaction commits and dropped when it rolls back, and every
+ * {@link CatalogueListener} on the primary receives it.
+ *
+ * Off unless {@code CATALOGUE_NOTIFY=true}: a transaction that notifies takes a database-wide lock while it
+ * commits, which a single node with only its own writes to track should not pay for.
+ */
+@NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public final class CatalogueChanges {
+    public static final String CHANNEL = "catalogue_changes";
+    // Lets a node recognise its own notifications; it has already invalidated its caches for them.
+    private static final String NODE_ID = UUID.randomUUID().toString();
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getenv("CATALOGUE_NOTIFY"));
+
+    /**
+     * @return the id this node puts into the notifications it sends
+     */
+    public static String nodeId() {
+        return NODE_ID;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns publishing on or off for this JVM, overriding {@code CATALOGUE_NOTIFY}. For tests and tools.
+     */
+    public static void setEnabled(boolean enabled) {
+        CatalogueChanges.enabled = enabled;
+    }
+
+    /**
+     * Queues a notification for a write of the entity by the current transaction of the entity manager. Runs on
+     * the transaction's connection directly, so it does not count against the statement budgets of the DAO calls.
+     *
+     * @param entity the written entity
+     */
+    public static void publish(EntityManager em, Class<?> entity) {
+        if (!enabled) return;
+        String payload = CatalogueChange.toPayload(NODE_ID, entity.getSimpleName());
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, payload);
+                statement.execute();
+            }
+        });
+    }
+}
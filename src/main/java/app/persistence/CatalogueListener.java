@@ -0,0 +1,163 @@
+package app.persistence;
+
+import app.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import jakarta.persistence.EntityManagerFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Receives the {@link CatalogueChanges} of other nodes on a connection of its own, held open by a background
+ * thread, and hands them to a handler in batches: every notification that arrived during one poll is passed in
+ * one call, so an import on another node costs this node one invalidation per poll rather than one per batch it
+ * committed. Notifications this node sent itself are skipped.
+ *
+ * LISTEN is not available on a hot standby, so the listener always connects to the primary. If the connection
+ * drops, it reconnects and reports a change to every entity, since notifications sent in between are lost.
+ */
+public final class CatalogueListener implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueListener.class);
+    private static final int POLL_MILLIS = 500;
+    private static final long RECONNECT_MILLIS = 2000;
+    private static final Counter received = Metrics.counter("catalogue.notifications.received");
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String ignoredOrigin;
+    private final Consumer<List<CatalogueChange>> handler;
+    private final Thread thread;
+    private final CountDownLatch listening = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    private CatalogueListener(Map<String, Object> properties, String ignoredOrigin, Consumer<List<CatalogueChange>> handler) {
+        this.url = (String) properties.get("hibernate.connection.url");
+        this.username = (String) properties.get("hibernate.connection.username");
+        this.password = (String) properties.get("hibernate.connection.password");
+        this.ignoredOrigin = ignoredOrigin;
+        this.handler = handler;
+        this.thread = new Thread(this::listen, "catalogue-listener");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts listening for the changes of every other node.
+     *
+     * @param emf     the factory of the primary; the listener connects with the same settings
+     * @param handler called on the listener thread with each batch of changes
+     */
+    public static CatalogueListener start(EntityManagerFactory emf, Consumer<List<CatalogueChange>> handler) {
+        return start(emf, CatalogueChanges.nodeId(), handler);
+    }
+
+    /**
+     * Starts listening for the changes of every node but the given one.
+     *
+     * @param ignoredOrigin the node whose changes are skipped; normally {@link CatalogueChanges#nodeId()}
+     */
+    public static CatalogueListener start(EntityManagerFactory emf, String ignoredOrigin, Consumer<List<CatalogueChange>> handler) {
+        CatalogueListener listener = new CatalogueListener(emf.getProperties(), ignoredOrigin, handler);
+        listener.thread.start();
+        return listener;
+    }
+
+    /**
+     * Waits until the listener is subscribed; changes committed before that are not received.
+     *
+     * @return whether it subscribed within the timeout
+     */
+    public boolean awaitListening(Duration timeout) throws InterruptedException {
+        return listening.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (!closed) {
+            try (Connection connection = connect()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CatalogueChanges.CHANNEL);
+                }
+                listening.countDown();
+                if (reconnecting) {
+                    logger.info("Catalogue listener reconnected");
+                    deliver(List.of(new CatalogueChange("", CatalogueChange.ANY_ENTITY)));
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (!closed) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    List<CatalogueChange> changes = changesOf(notifications);
+                    if (!changes.isEmpty()) {
+                        deliver(changes);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (closed) return;
+                logger.warn("Catalogue listener lost its connection, reconnecting: {}", e.getMessage());
+                reconnecting = true;
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // A failing handler must not be mistaken for a lost connection.
+    private void deliver(List<CatalogueChange> changes) {
+        try {
+            handler.accept(changes);
+        } catch (RuntimeException e) {
+            logger.error("Catalogue change handler failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<CatalogueChange> changesOf(PGNotification[] notifications) {
+        if (notifications == null) return List.of();
+        List<CatalogueChange> changes = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            received.increment();
+            try {
+                CatalogueChange change = CatalogueChange.parse(notification.getParameter());
+                if (!change.origin().equals(ignoredOrigin)) {
+                    changes.add(change);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring notification on {}: {}", CatalogueChanges.CHANNEL, e.getMessage());
+            }
+        }
+        return changes;
+    }
+
+    private Connection connect() throws SQLException {
+        // The connection is not taken from Hibernate's pool: it stays open for as long as the listener runs.
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    /**
+     * Stops the listener and closes its connection, waiting at most one poll for the thread to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join(POLL_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package app.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version number of the catalogue. DAO write paths bump it after a successful commit, and
+ * read-side caches compare it against the version they were built at to detect stale entries.
+ */
+public class CatalogueVersion {
+    private static final AtomicLong version = new AtomicLong();
+
+    private CatalogueVersion() {
+    }
+
+    /**
+     * @return the current catalogue version
+     */
+    public static long current() {
+        return version.get();
+    }
+
+    /**
+     * Marks every cached view of the catalogue as stale. Must be called after the write has committed,
+     * so a reader that observes the new version also observes the written data.
+     *
+     * @return the new catalogue version
+     */
+    public static long bump() {
+        return version.incrementAndGet();
+    }
+}
@@ -3,6 +3,9 @@ package app.persistence;
 import app.entities.Actor;
 import app.entities.Director;
 import app.entities.Genre;
+import app.entities.ImportJob;
+import app.entities.ImportJobPage;
+import app.entities.ImportLease;
 import app.entities.Movie;
 import app.enums.HibernateConfigState;
 import jakarta.persistence.EntityManagerFactory;
@@ -17,16 +20,74 @@ import java.util.Properties;
 @NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
 public class HibernateConfig {
 
-    private static EntityManagerFactory entityManagerFactory;
+    /**
+     * System property naming a Hibernate {@code StatementInspector} class for the TEST factory. Set by the test
+     * run, which keeps its statement recorder among the test sources.
+     */
+    public static final String STATEMENT_INSPECTOR_PROPERTY = "app.test.statement_inspector";
+    private static final long DEFAULT_SLOW_QUERY_MILLIS = 200;
+    // TC_DAEMON keeps the container running between the migration and Hibernate's own connections.
+    private static final String TEST_CONTAINER_URL = "jdbc:tc:postgresql:15.3-alpine3.18:///test-db?TC_DAEMON=true";
+    // One factory per state, so a test run can never hand out the production factory or the other way round.
+    private static volatile EntityManagerFactory normalFactory;
+    private static volatile EntityManagerFactory testFactory;
+    // Factories for the read replica, built only when a replica URL is configured for the state.
+    private static volatile EntityManagerFactory normalReadFactory;
+    private static volatile EntityManagerFactory testReadFactory;
 
+    // The complete list of entities. Nothing is discovered by scanning, so a new entity must be added here.
     private static void getAnnotationConfiguration(Configuration configuration) {
         configuration.addAnnotatedClass(Movie.class);
         configuration.addAnnotatedClass(Director.class);
         configuration.addAnnotatedClass(Actor.class);
         configuration.addAnnotatedClass(Genre.class);
+        configuration.addAnnotatedClass(ImportJob.class);
+        configuration.addAnnotatedClass(ImportJobPage.class);
+        configuration.addAnnotatedClass(ImportLease.class);
+    }
+
+    /**
+     * Turns on Hibernate {@code Statistics} and the slow-query log, which {@link QueryDiagnostics} reads from.
+     *
+     * @param props             the properties to extend
+     * @param slowQueryMillis   queries slower than this are logged by Hibernate
+     */
+    private static void enableDiagnostics(Properties props, long slowQueryMillis) {
+        props.put("hibernate.generate_statistics", "true");
+        props.put("hibernate.session.events.log.LOG_QUERIES_SLOWER_THAN_MS", String.valueOf(slowQueryMillis));
+        props.put("hibernate.log_slow_query", String.valueOf(slowQueryMillis));
+    }
+
+    /**
+     * Skips the work Hibernate does at boot that the migrations already make redundant: validating the schema
+     * and reading JDBC metadata to configure itself. Safe because {@link SchemaMigrations} has just brought the
+     * schema to the version the mappings were written against.
+     *
+     * @param props the properties to extend
+     */
+    private static void enableFastStartup(Properties props) {
+        props.put("hibernate.hbm2ddl.auto", "none");
+        props.put("hibernate.temp.use_jdbc_metadata_defaults", "false");
+    }
+
+    /**
+     * JDBC batching for every configuration. Ordering groups the inserts and updates of one table together, so
+     * the join rows of a batch of movies go out as a few batched statements instead of one round trip each.
+     * Movie, actor and director rows use identity ids and are therefore still inserted one by one.
+     *
+     * @param props the properties to extend
+     */
+    private static void enableBatching(Properties props) {
+        props.putIfAbsent("hibernate.jdbc.batch_size", "50");
+        props.putIfAbsent("hibernate.order_inserts", "true");
+        props.putIfAbsent("hibernate.order_updates", "true");
+        props.putIfAbsent("hibernate.jdbc.batch_versioned_data", "true");
+        // Lazy collections of up to 32 movies are initialized with one select instead of one each.
+        props.putIfAbsent("hibernate.default_batch_fetch_size", "32");
     }
 
     private static EntityManagerFactory getEntityManagerFactory(Configuration configuration, Properties props) {
+        enableBatching(props);
         configuration.setProperties(props);
         getAnnotationConfiguration(configuration);
 
@@ -37,16 +98,103 @@ public class HibernateConfig {
         return sf.unwrap(EntityManagerFactory.class);
     }
 
+    /**
+     * Gets the factory for the given state, building it on first use. Concurrent callers share one factory, and
+     * with it one connection pool; a factory that has been closed is replaced by a new one on the next call.
+     *
+     * @param state which database to connect to
+     * @return an open EntityManagerFactory
+     */
     public static EntityManagerFactory getEntityManagerFactoryConfig(HibernateConfigState state) {
-        if (entityManagerFactory == null) {
-            if (state == HibernateConfigState.TEST) {
-                entityManagerFactory = setupHibernateConfigTest();
-            } else {
-                entityManagerFactory = buildEntityFactoryConfig();
+        EntityManagerFactory factory = state == HibernateConfigState.TEST ? testFactory : normalFactory;
+        if (factory != null && factory.isOpen()) {
+            return factory;
+        }
+        synchronized (HibernateConfig.class) {
+            factory = state == HibernateConfigState.TEST ? testFactory : normalFactory;
+            // Test classes close the factory in their teardown; the next class in the same JVM needs a new one.
+            if (factory == null || !factory.isOpen()) {
+                if (state == HibernateConfigState.TEST) {
+                    factory = setupHibernateConfigTest();
+                    testFactory = factory;
+                } else {
+                    factory = buildEntityFactoryConfig();
+                    normalFactory = factory;
+                }
+            }
+            return factory;
+        }
+    }
+
+    /**
+     * Gets the factory that DAO reads go to: a read-only factory on the replica named by
+     * {@code DEPLOYED_DB_REPLICA_URL} (or {@code TEST_DB_REPLICA_URL} for tests), connecting with the same
+     * credentials as the primary. Without a replica URL this is simply the primary factory, so callers never
+     * need to check whether a replica exists.
+     *
+     * @param state which database to connect to
+     * @return an open EntityManagerFactory for reads
+     */
+    public static EntityManagerFactory getReadEntityManagerFactoryConfig(HibernateConfigState state) {
+        boolean test = state == HibernateConfigState.TEST;
+        String replicaUrl = System.getenv(test ? "TEST_DB_REPLICA_URL" : "DEPLOYED_DB_REPLICA_URL");
+        if (replicaUrl == null || replicaUrl.isBlank()) {
+            return getEntityManagerFactoryConfig(state);
+        }
+        EntityManagerFactory factory = test ? testReadFactory : normalReadFactory;
+        if (factory != null && factory.isOpen()) {
+            return factory;
+        }
+        synchronized (HibernateConfig.class) {
+            factory = test ? testReadFactory : normalReadFactory;
+            if (factory == null || !factory.isOpen()) {
+                // The primary must exist first: it runs the migrations the replica's schema is validated against.
+                getEntityManagerFactoryConfig(state);
+                factory = test
+                        ? createReplicaFactory(replicaUrl, System.getenv("TEST_DB_USERNAME"), System.getenv("TEST_DB_PASSWORD"))
+                        : createReplicaFactory(replicaUrl, System.getenv("DEPLOYED_DB_USERNAME"), System.getenv("DEPLOYED_DB_PASSWORD"));
+                if (test) {
+                    testReadFactory = factory;
+                } else {
+                    normalReadFactory = factory;
+                }
             }
+            return factory;
         }
+    }
 
-        return entityManagerFactory;
+    /**
+     * Builds an uncached factory on a primary database, migrating it first. For tools and tests that need a
+     * database other than the one the environment names; the application uses
+     * {@link #getEntityManagerFactoryConfig(HibernateConfigState)}.
+     */
+    public static EntityManagerFactory createPrimaryFactory(String url, String username, String password) {
+        SchemaMigrations.migrate("org.postgresql.Driver", url, username, password, false);
+        return getEntityManagerFactory(new Configuration(), connectionProperties(url, username, password));
+    }
+
+    /**
+     * Builds an uncached factory on a read replica. Nothing is migrated, since a hot standby only replays what
+     * the primary wrote, and connections are opened read-only, so a write that was routed here by mistake
+     * fails instead of being silently attempted on the standby.
+     */
+    public static EntityManagerFactory createReplicaFactory(String url, String username, String password) {
+        Properties props = connectionProperties(url, username, password);
+        props.put("hibernate.connection.readOnly", "true"); // passed on to the driver as readOnly=true
+        return getEntityManagerFactory(new Configuration(), props);
+    }
+
+    private static Properties connectionProperties(String url, String username, String password) {
+        Properties props = new Properties();
+        props.put("hibernate.connection.url", url);
+        props.put("hibernate.connection.username", username);
+        props.put("hibernate.connection.password", password);
+        props.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+        props.put("hibernate.connection.driver_class", "org.postgresql.Driver");
+        props.put("hibernate.archive.autodetection", "none");
+        props.put("hibernate.current_session_context_class", "thread");
+        props.put("hibernate.hbm2ddl.auto", "validate");
+        return props;
     }
 
     private static EntityManagerFactory buildEntityFactoryConfig() {
@@ -57,6 +205,8 @@ public class HibernateConfig {
             props.put("hibernate.connection.url", System.getenv("DEPLOYED_DB_URL"));
             props.put("hibernate.connection.username", System.getenv("DEPLOYED_DB_USERNAME"));
             props.put("hibernate.connection.password", System.getenv("DEPLOYED_DB_PASSWORD"));
+            SchemaMigrations.migrate("org.postgresql.Driver", System.getenv("DEPLOYED_DB_URL"),
+                    System.getenv("DEPLOYED_DB_USERNAME"), System.getenv("DEPLOYED_DB_PASSWORD"), false);
             /*
             props.put("hibernate.show_sql", "true"); // show sql in console
             props.put("hibernate.format_sql", "true"); // format sql in console
@@ -64,9 +214,16 @@ public class HibernateConfig {
             */
             props.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect"); // dialect for postgresql
             props.put("hibernate.connection.driver_class", "org.postgresql.Driver"); // driver class for postgresql
-            props.put("hibernate.archive.autodetection", "class"); // hibernate scans for annotated classes
+            props.put("hibernate.archive.autodetection", "none"); // entities are registered in getAnnotationConfiguration, never scanned
             props.put("hibernate.current_session_context_class", "thread"); // hibernate current session context
-            props.put("hibernate.hbm2ddl.auto", "create"); // hibernate creates tables based on entities
+            props.put("hibernate.hbm2ddl.auto", "validate"); // the schema is owned by SchemaMigrations; hibernate only checks its mappings
+            if (Boolean.parseBoolean(System.getenv("FAST_STARTUP"))) {
+                enableFastStartup(props);
+            }
+            if (Boolean.parseBoolean(System.getenv("HIBERNATE_DIAGNOSTICS"))) {
+                String slowQueryMillis = System.getenv("HIBERNATE_SLOW_QUERY_MS");
+                enableDiagnostics(props, slowQueryMillis != null ? Long.parseLong(slowQueryMillis) : DEFAULT_SLOW_QUERY_MILLIS);
+            }
             return getEntityManagerFactory(configuration, props);
 
         } catch (Throwable ex) {
@@ -79,23 +236,34 @@ public class HibernateConfig {
     private static EntityManagerFactory setupHibernateConfigTest() {
         Configuration configuration = new Configuration();
         Properties props = new Properties();
+        // Always on in tests, so QueryBudget can assert statement counts.
+        enableDiagnostics(props, DEFAULT_SLOW_QUERY_MILLIS);
+        String statementInspector = System.getProperty(STATEMENT_INSPECTOR_PROPERTY);
+        if (statementInspector != null) {
+            props.put("hibernate.session_factory.statement_inspector", statementInspector);
+        }
 
         if (System.getenv("TEST_DB_URL") != null) {
             props.put("hibernate.connection.url", System.getenv("TEST_DB_URL") + System.getenv("TEST_DB_NAME"));
             props.put("hibernate.connection.username", System.getenv("TEST_DB_USERNAME"));
             props.put("hibernate.connection.password", System.getenv("TEST_DB_PASSWORD"));
+            props.put("hibernate.hbm2ddl.auto", "validate");
+            SchemaMigrations.migrate("org.postgresql.Driver", System.getenv("TEST_DB_URL") + System.getenv("TEST_DB_NAME"),
+                    System.getenv("TEST_DB_USERNAME"), System.getenv("TEST_DB_PASSWORD"), false);
             return getEntityManagerFactory(configuration, props);
 
         } else {
             try {
                 props.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
                 props.put("hibernate.connection.driver_class", "org.testcontainers.jdbc.ContainerDatabaseDriver");
-                props.put("hibernate.connection.url", "jdbc:tc:postgresql:15.3-alpine3.18:///test-db");
+                props.put("hibernate.connection.url", TEST_CONTAINER_URL);
                 props.put("hibernate.connection.username", "postgres");
                 props.put("hibernate.connection.password", "postgres");
-                props.put("hibernate.archive.autodetection", "class");
+                props.put("hibernate.archive.autodetection", "none");
                 props.put("hibernate.show_sql", "true");
-                props.put("hibernate.hbm2ddl.auto", "create-drop");
+                props.put("hibernate.hbm2ddl.auto", "validate");
+                // Cleaned on every build, so each test class starts from an empty schema like it did with create-drop.
+                SchemaMigrations.migrate("org.testcontainers.jdbc.ContainerDatabaseDriver", TEST_CONTAINER_URL, "postgres", "postgres", true);
                 return getEntityManagerFactory(configuration, props);
 
             } catch (Throwable ex) {
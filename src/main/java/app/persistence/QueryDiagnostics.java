@@ -0,0 +1,98 @@
+package app.persistence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads Hibernate {@link Statistics} for a factory built with diagnostics enabled (see {@link HibernateConfig}).
+ * Exposes per-query execution counts and timings for every JPQL string the DAOs have run, plus the session-wide
+ * counters that reveal N+1 patterns.
+ */
+public class QueryDiagnostics {
+    private final Statistics statistics;
+    private final Set<String> publishedQueries = ConcurrentHashMap.newKeySet();
+
+    public QueryDiagnostics(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public boolean isEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    /**
+     * @return the statistics of every executed query, most expensive (by total time) first
+     */
+    public List<QueryStat> getQueryStats() {
+        return Arrays.stream(statistics.getQueries())
+                .map(query -> QueryStat.of(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingDouble(QueryStat::totalMillis).reversed())
+                .toList();
+    }
+
+    /**
+     * @return the session-wide counters since the statistics were last cleared
+     */
+    public Summary getSummary() {
+        return new Summary(
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getEntityLoadCount(),
+                statistics.getCollectionFetchCount(),
+                statistics.getTransactionCount());
+    }
+
+    /**
+     * Registers gauges for queries that have appeared since the last call. Gauges read the live statistics,
+     * so each query only needs to be registered once; call this before every scrape.
+     *
+     * @param registry the registry to publish to
+     */
+    public void publishTo(MeterRegistry registry) {
+        for (String query : statistics.getQueries()) {
+            if (!publishedQueries.add(query)) continue;
+            Gauge.builder("hibernate.query.executions", statistics, s -> s.getQueryStatistics(query).getExecutionCount())
+                    .tags("query", query)
+                    .register(registry);
+            Gauge.builder("hibernate.query.time.mean.ms", statistics, s -> s.getQueryStatistics(query).getExecutionAvgTime())
+                    .tags("query", query)
+                    .register(registry);
+            Gauge.builder("hibernate.query.time.max.ms", statistics, s -> s.getQueryStatistics(query).getExecutionMaxTime())
+                    .tags("query", query)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Statistics of a single query string.
+     */
+    public record QueryStat(String query, long executionCount, long meanMillis, long maxMillis, long rowCount) {
+        static QueryStat of(String query, QueryStatistics stats) {
+            return new QueryStat(query, stats.getExecutionCount(), stats.getExecutionAvgTime(),
+                    stats.getExecutionMaxTime(), stats.getExecutionRowCount());
+        }
+
+        public double totalMillis() {
+            return (double) executionCount * meanMillis;
+        }
+    }
+
+    /**
+     * Session-wide counters.
+     */
+    public record Summary(long preparedStatements, long queryExecutions, long slowestQueryMillis, String slowestQuery,
+                          long entityLoads, long collectionFetches, long transactions) {
+    }
+}
@@ -0,0 +1,81 @@
+package app.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Decides which database a DAO read goes to. Reads go to the replica, which may lag the primary by a few
+ * moments; code that has to see its own writes, such as printing the catalogue right after an import, runs the
+ * reads inside {@link #readYourWrites(Supplier)} to send them to the primary instead. The choice is per thread
+ * and nests.
+ *
+ * Reads also go to the primary while the replica has left a write unreplayed for longer than the maximum lag,
+ * {@code REPLICA_MAX_LAG_MS} milliseconds and 5 seconds by default; see {@link ReplicaFreshness}, which tracks
+ * that off the request path.
+ */
+@NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public final class ReadRouting {
+    private static final ThreadLocal<int[]> primaryScopes = ThreadLocal.withInitial(() -> new int[1]);
+    private static final Map<EntityManagerFactory, ReplicaFreshness> freshness = new ConcurrentHashMap<>();
+    private static volatile Duration maxReplicaLag = Duration.ofMillis(
+            Long.parseLong(Objects.requireNonNullElse(System.getenv("REPLICA_MAX_LAG_MS"), "5000")));
+
+    /**
+     * @param primary the factory writes go to
+     * @param replica the factory reads go to by default; may be the primary itself
+     * @return the replica, or the primary while the current thread is inside {@link #readYourWrites(Supplier)} or
+     * the replica lags by more than the maximum
+     */
+    public static EntityManagerFactory forReads(EntityManagerFactory primary, EntityManagerFactory replica) {
+        if (replica == null || replica == primary || isPrimaryForced()) return primary;
+        ReplicaFreshness replicaFreshness = freshness.get(replica);
+        if (replicaFreshness == null) {
+            replicaFreshness = freshness.computeIfAbsent(replica,
+                    key -> new ReplicaFreshness(primary, key, () -> maxReplicaLag, () -> freshness.remove(key)));
+        }
+        return replicaFreshness.isLagging() ? primary : replica;
+    }
+
+    public static Duration maxReplicaLag() {
+        return maxReplicaLag;
+    }
+
+    /**
+     * Sets how long the replica may take to replay a write before reads go to the primary, overriding
+     * {@code REPLICA_MAX_LAG_MS}. For tests and tools.
+     */
+    public static void setMaxReplicaLag(Duration maxLag) {
+        maxReplicaLag = maxLag;
+    }
+
+    /**
+     * @return whether reads on the current thread are being sent to the primary
+     */
+    public static boolean isPrimaryForced() {
+        return primaryScopes.get()[0] > 0;
+    }
+
+    /**
+     * Runs the body with every DAO read on the current thread going to the primary.
+     *
+     * @param body the reads that must see writes made earlier by this process
+     * @return what the body returns
+     */
+    public static <T> T readYourWrites(Supplier<T> body) {
+        int[] depth = primaryScopes.get();
+        depth[0]++;
+        try {
+            return body.get();
+        } finally {
+            if (--depth[0] == 0) {
+                primaryScopes.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package app.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Watches how far a replica lags behind the writes the {@link CatalogueVersion} has counted, off the request path.
+ * A checker polls every {@link #POLL_INTERVAL}: when the version has moved, it records the primary's WAL position
+ * as the target the replica has to replay, then compares the replica's replay position with it. Readers only look
+ * at {@link #isLagging()}.
+ *
+ * The replica counts as lagging once a target has gone unreplayed for longer than the bound, and
+ * {@link ReadRouting} then sends reads to the primary. Within the bound, reads may return what the replica showed
+ * before the write, and caches keyed by the version would keep it; so when the replica replays a target, the
+ * checker bumps the version once more.
+ *
+ * The bump follows the commit, in this process or, through the {@link CatalogueListener}, in another, so the
+ * position recorded after it is at or past the write's commit record.
+ */
+final class ReplicaFreshness {
+    static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaFreshness.class);
+    private static final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-freshness");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final EntityManagerFactory primary;
+    private final EntityManagerFactory replica;
+    private final Supplier<Duration> maxLag;
+    private final Runnable onClosed;
+    private final ScheduledFuture<?> task;
+    private volatile boolean lagging;
+
+    // Only touched by the checker thread.
+    private long seenVersion = CatalogueVersion.current();
+    private boolean pending;
+    private long pendingSince;
+    private long targetVersion;
+    private String targetLsn;
+    private boolean failing;
+
+    /**
+     * Starts checking the replica until either factory is closed.
+     *
+     * @param maxLag   how long the replica may take to replay a write before reads go to the primary
+     * @param onClosed called once the checks stopped because a factory was closed
+     */
+    ReplicaFreshness(EntityManagerFactory primary, EntityManagerFactory replica, Supplier<Duration> maxLag, Runnable onClosed) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.onClosed = onClosed;
+        long interval = POLL_INTERVAL.toMillis();
+        task = checker.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return whether the replica has left a write of the catalogue unreplayed for longer than the bound
+     */
+    boolean isLagging() {
+        return lagging;
+    }
+
+    private void check() {
+        if (!primary.isOpen() || !replica.isOpen()) {
+            task.cancel(false);
+            onClosed.run();
+            return;
+        }
+        try {
+            long version = CatalogueVersion.current();
+            if (version != seenVersion) {
+                // A newer target replaces one that is still pending; the lag counts from the older one.
+                if (!pending) {
+                    pending = true;
+                    pendingSince = System.nanoTime();
+                }
+                targetLsn = primaryLsn();
+                targetVersion = version;
+                seenVersion = version;
+            }
+            if (!pending) return;
+
+            if (hasReplayed(targetLsn)) {
+                pending = false;
+                lagging = false;
+                // Anything cached from the replica before it caught up is tagged with the current version.
+                long bumped = CatalogueVersion.bump();
+                // Not a write to wait for; unless another bump came in between, which is.
+                if (bumped == targetVersion + 1) {
+                    seenVersion = bumped;
+                }
+            } else {
+                lagging = System.nanoTime() - pendingSince > maxLag.get().toNanos();
+            }
+            failing = false;
+        } catch (RuntimeException e) {
+            // Retried on the next poll; without an answer, a pending write is assumed unreplayed.
+            lagging = pending && System.nanoTime() - pendingSince > maxLag.get().toNanos();
+            if (!failing) {
+                failing = true;
+                logger.warn("Could not compare the replica's replay position with the primary's: {}", e.getMessage());
+            }
+        }
+    }
+
+    private String primaryLsn() {
+        try (var em = primary.createEntityManager()) {
+            return (String) em.createNativeQuery("SELECT CAST(pg_current_wal_lsn() AS text)").getSingleResult();
+        }
+    }
+
+    // A server that is not in recovery is no standby of the primary, and has nothing to catch up on.
+    private boolean hasReplayed(String lsn) {
+        try (var em = replica.createEntityManager()) {
+            return (Boolean) em.createNativeQuery("SELECT COALESCE(pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn), NOT pg_is_in_recovery())")
+                    .setParameter(1, lsn)
+                    .getSingleResult();
+        }
+    }
+}
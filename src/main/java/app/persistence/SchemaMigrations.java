@@ -0,0 +1,57 @@
+package app.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.NoArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the versioned Flyway migrations in {@code src/main/resources/db/migration}. The schema is owned by the
+ * migrations; Hibernate only validates its mappings against the result.
+ */
+@NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public class SchemaMigrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+    private static final String LOCATION = "classpath:db/migration";
+
+    /**
+     * Migrates the database to the latest version. A database that Hibernate created before migrations existed,
+     * and which therefore has tables but no migration history, is baselined at version 1 so only the later
+     * migrations run against it.
+     *
+     * @param driverClass the JDBC driver
+     * @param url         the JDBC url
+     * @param username    the database user
+     * @param password    the password of the user
+     * @param clean       drop every object in the schema first; only ever set for throwaway test databases
+     */
+    static void migrate(String driverClass, String url, String username, String password, boolean clean) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName(driverClass);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(1);
+        config.setPoolName("flyway");
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            Flyway flyway = Flyway.configure()
+                    .dataSource(dataSource)
+                    .locations(LOCATION)
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1")
+                    .cleanDisabled(!clean)
+                    .load();
+            if (clean) {
+                flyway.clean();
+            }
+            MigrateResult result = flyway.migrate();
+            logger.info("Schema migrated to version {} ({} migrations applied)",
+                    result.targetSchemaVersion != null ? result.targetSchemaVersion : result.initialSchemaVersion, result.migrationsExecuted);
+        }
+    }
+}
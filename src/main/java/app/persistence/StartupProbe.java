@@ -0,0 +1,64 @@
+package app.persistence;
+
+import app.enums.HibernateConfigState;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.NoArgsConstructor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a fresh JVM takes to answer its first query: JVM start to {@code main}, the
+ * {@link EntityManagerFactory} bootstrap (including migrations), and the first round trip. Used as the training
+ * run for the AppCDS archive and by the startup benchmark, which starts it in child JVMs.
+ */
+@NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public class StartupProbe {
+
+    /**
+     * @param jvmToMainMillis  from JVM start until the probe was called
+     * @param bootMillis       building the EntityManagerFactory
+     * @param firstQueryMillis opening the first EntityManager and running one query
+     */
+    public record Timings(long jvmToMainMillis, long bootMillis, long firstQueryMillis) {
+        public long totalMillis() {
+            return jvmToMainMillis + bootMillis + firstQueryMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "STARTUP jvmToMain=" + jvmToMainMillis + "ms boot=" + bootMillis + "ms firstQuery=" + firstQueryMillis
+                    + "ms total=" + totalMillis() + "ms";
+        }
+    }
+
+    /**
+     * Boots Hibernate, runs one query, closes the factory and prints the timings.
+     *
+     * @param state the configuration to boot
+     * @return the timings of this JVM
+     */
+    public static Timings run(HibernateConfigState state) {
+        long jvmToMain = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        long start = System.nanoTime();
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactoryConfig(state);
+        long booted = System.nanoTime();
+        try (var em = emf.createEntityManager()) {
+            em.createQuery("SELECT COUNT(m) FROM Movie m", Long.class).getSingleResult();
+        }
+        long queried = System.nanoTime();
+        emf.close();
+
+        Timings timings = new Timings(jvmToMain, TimeUnit.NANOSECONDS.toMillis(booted - start), TimeUnit.NANOSECONDS.toMillis(queried - booted));
+        System.out.println(timings);
+        return timings;
+    }
+
+    /**
+     * Entry point for child JVMs; the only argument is the {@link HibernateConfigState} to boot.
+     */
+    public static void main(String[] args) {
+        run(args.length > 0 ? HibernateConfigState.valueOf(args[0]) : HibernateConfigState.NORMAL);
+    }
+}
@@ -6,11 +6,22 @@ import app.entities.Actor;
 import app.entities.Director;
 import app.entities.Movie;
 import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueVersion;
+import app.persistence.ReadRouting;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
 
-import java.util.ArrayList;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -20,97 +31,238 @@ import java.util.stream.Collectors;
  */
 public class ActorDAO implements GenericDAO<ActorDTO, Actor> {
     private final EntityManagerFactory emf;
+    private final EntityManagerFactory replicaEmf;
     public ActorDAO(EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, entityManagerFactory);
+    }
+
+    /**
+     * @param entityManagerFactory the primary, which all writes go to
+     * @param replicaEntityManagerFactory the replica that {@link #getById(int)} and {@link #getAll()} read from,
+     *                                    unless {@link ReadRouting#readYourWrites} sends them to the primary
+     */
+    public ActorDAO(EntityManagerFactory entityManagerFactory, EntityManagerFactory replicaEntityManagerFactory) {
         emf = entityManagerFactory;
+        replicaEmf = replicaEntityManagerFactory;
+    }
+
+    private EntityManagerFactory readEmf() {
+        return ReadRouting.forReads(emf, replicaEmf);
     }
 
     @Override
     public ActorDTO create(ActorDTO actorDTO) {
-        Actor actor = toEntity(actorDTO);
+        return Metrics.recordDao("ActorDAO", "create", () -> {
+            Actor actor = toEntity(actorDTO);
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.persist(actor);
-            em.getTransaction().commit();
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                em.persist(actor);
+                CatalogueChanges.publish(em, Actor.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
 
-            actorDTO.setId(actor.getId());
-        } catch (EntityExistsException e) {
-            throw new JpaException("Actor already exists." + e.getMessage());
-        } catch (Exception e) {
-            throw new JpaException("Could not create actor." + e.getMessage() + e.getCause());
-        }
-        return actorDTO;
+                actorDTO.setId(actor.getId());
+            } catch (EntityExistsException e) {
+                throw new JpaException("Actor already exists." + e.getMessage());
+            } catch (Exception e) {
+                throw new JpaException("Could not create actor." + e.getMessage() + e.getCause());
+            }
+            return actorDTO;
+        });
     }
 
+    /**
+     * Creates several actors in a single transaction.
+     *
+     * @return the same DTOs with their database ids set
+     * @throws JpaException if any actor could not be created; none is created then
+     */
     @Override
-    public void delete(ActorDTO actorDTO) {
-        Actor actor = toEntity(actorDTO);
+    public List<ActorDTO> createAll(List<ActorDTO> actorDTOs) {
+        return Metrics.recordDao("ActorDAO", "createAll", () -> {
+            if (actorDTOs.isEmpty()) return actorDTOs;
+            List<Actor> actors = actorDTOs.stream().map(this::toEntity).toList();
+
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                actors.forEach(em::persist);
+                CatalogueChanges.publish(em, Actor.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
+            } catch (Exception e) {
+                throw new JpaException("Could not create actors." + e.getMessage() + e.getCause());
+            }
+            for (int i = 0; i < actors.size(); i++) {
+                actorDTOs.get(i).setId(actors.get(i).getId());
+            }
+            return actorDTOs;
+        });
+    }
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.remove(actor);
-            em.getTransaction().commit();
+    @Override
+    public void delete(ActorDTO actorDTO) {
+        Metrics.recordDao("ActorDAO", "delete", () -> {
+            deleteAllByIds(List.of(actorDTO.getId()));
+        });
+    }
 
-        } catch (Exception e) {
-            throw new JpaException("Could not delete actor" + e.getMessage());
-        }
+    @Override
+    public int deleteAllByIds(Collection<Integer> ids) {
+        return Metrics.recordDao("ActorDAO", "deleteAllByIds", () -> {
+            if (ids.isEmpty()) return 0;
+            try {
+                return BulkOperations.inTransaction(emf, Actor.class,
+                        em -> BulkOperations.deleteAllByIds(em, Actor.class, ids, "actors_movies.actor_id"));
+            } catch (Exception e) {
+                throw new JpaException("Could not delete actors" + e.getMessage());
+            }
+        });
     }
 
     @Override
     public ActorDTO getById(int id) {
-        Actor actor;
-        try (var em = emf.createEntityManager()) {
-            actor = em.find(Actor.class, id);
-        } catch (Exception e) {
-            throw new JpaException("Could not get actor by id" + e.getMessage());
-        }
-        return toDTO(actor);
+        return Metrics.recordDao("ActorDAO", "getById", () -> {
+            Actor actor;
+            try (var em = readEmf().createEntityManager()) {
+                actor = em.find(Actor.class, id);
+            } catch (Exception e) {
+                throw new JpaException("Could not get actor by id" + e.getMessage());
+            }
+            return toDTO(actor);
+        });
     }
 
     @Override
     public List<ActorDTO> getAll() {
-        List<Actor> actors;
-        try (var em = emf.createEntityManager()) {
-            actors = em.createQuery("SELECT a FROM Actor a", Actor.class).getResultList();
-        } catch (Exception e) {
-            throw new JpaException("Could not get all actors" + e.getMessage());
-        }
-        return actors.stream().map(this::toDTO).toList();
+        return Metrics.recordDao("ActorDAO", "getAll", () -> {
+            List<Actor> actors;
+            try (var em = readEmf().createEntityManager()) {
+                actors = em.createQuery("SELECT a FROM Actor a", Actor.class).getResultList();
+            } catch (Exception e) {
+                throw new JpaException("Could not get all actors" + e.getMessage());
+            }
+            return toDTOs(actors);
+        });
     }
 
     @Override
     public void update(ActorDTO actorDTO) {
-        Actor actor = toEntity(actorDTO);
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.merge(actor);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            throw new JpaException("Could not update actor" + e.getMessage());
-        }
+        Metrics.recordDao("ActorDAO", "update", () -> {
+            updateAll(List.of(actorDTO));
+        });
+    }
+
+    @Override
+    public void updateAll(List<ActorDTO> actorDTOs) {
+        Metrics.recordDao("ActorDAO", "updateAll", () -> {
+            if (actorDTOs.isEmpty()) return;
+            try {
+                BulkOperations.inTransaction(emf, Actor.class, em -> {
+                    Map<Integer, Actor> actors = BulkOperations.findAllByIds(em, Actor.class,
+                            actorDTOs.stream().map(ActorDTO::getId).toList(), Actor::getId);
+                    for (ActorDTO actorDTO : actorDTOs) {
+                        Actor actor = actors.get(actorDTO.getId());
+                        if (actor == null) {
+                            throw new JpaException("No actor with id " + actorDTO.getId());
+                        }
+                        copyColumns(actorDTO, actor);
+                    }
+                    return null;
+                });
+            } catch (JpaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new JpaException("Could not update actors" + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Actors are matched by database id, or else by their TMDB person id. Those with a TMDB person id are written
+     * with one {@code INSERT ... ON CONFLICT} on its unique index, so import workers on several machines can upsert
+     * the same new person at the same time without inserting it twice.
+     */
+    @Override
+    public List<ActorDTO> upsertAll(List<ActorDTO> actorDTOs) {
+        return Metrics.recordDao("ActorDAO", "upsertAll", () -> {
+            if (actorDTOs.isEmpty()) return actorDTOs;
+            try {
+                BulkOperations.inTransaction(emf, Actor.class, em -> {
+                    Map<Integer, Actor> byId = BulkOperations.findAllByIds(em, Actor.class,
+                            actorDTOs.stream().map(ActorDTO::getId).filter(id -> id != 0).toList(), Actor::getId);
+                    // Sorted, so concurrent upserts lock the index entries in the same order; the last DTO of a person wins.
+                    Map<Integer, ActorDTO> byActorId = new TreeMap<>();
+                    for (ActorDTO actorDTO : actorDTOs) {
+                        Actor actor = byId.get(actorDTO.getId());
+                        if (actor != null) {
+                            copyColumns(actorDTO, actor);
+                        } else if (actorDTO.getActorId() != 0) {
+                            byActorId.put(actorDTO.getActorId(), actorDTO);
+                        } else {
+                            actor = toEntity(actorDTO);
+                            actor.setId(0);
+                            em.persist(actor);
+                            actorDTO.setId(actor.getId());
+                        }
+                    }
+
+                    Map<Integer, Integer> ids = upsertByActorId(em, byActorId.values());
+                    for (ActorDTO actorDTO : actorDTOs) {
+                        if (byId.get(actorDTO.getId()) == null && actorDTO.getActorId() != 0) {
+                            actorDTO.setId(ids.get(actorDTO.getActorId()));
+                        }
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new JpaException("Could not upsert actors" + e.getMessage());
+            }
+            return actorDTOs;
+        });
+    }
+
+    // Inserts the actors, or updates the stored ones with the same TMDB person id, in one statement.
+    private static Map<Integer, Integer> upsertByActorId(EntityManager em, Collection<ActorDTO> actorDTOs) {
+        Map<Integer, Integer> ids = new HashMap<>();
+        if (actorDTOs.isEmpty()) return ids;
+        Integer[] actorIds = actorDTOs.stream().map(ActorDTO::getActorId).toArray(Integer[]::new);
+        String[] names = actorDTOs.stream().map(ActorDTO::getName).toArray(String[]::new);
+        Integer[] genders = actorDTOs.stream().map(ActorDTO::getGender).toArray(Integer[]::new);
+
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO actors (actor_id, name, gender) "
+                            + "SELECT * FROM unnest(?, ?, ?) "
+                            + "ON CONFLICT (actor_id) WHERE actor_id <> 0 DO UPDATE SET name = EXCLUDED.name, gender = EXCLUDED.gender "
+                            + "RETURNING actor_id, id")) {
+                statement.setArray(1, connection.createArrayOf("integer", actorIds));
+                statement.setArray(2, connection.createArrayOf("varchar", names));
+                statement.setArray(3, connection.createArrayOf("integer", genders));
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        ids.put(rows.getInt(1), rows.getInt(2));
+                    }
+                }
+            }
+        });
+        return ids;
+    }
+
+    private static void copyColumns(ActorDTO source, Actor target) {
+        target.setActorId(source.getActorId());
+        target.setName(source.getName());
+        target.setGender(source.getGender());
     }
 
     @Override
     public Actor toEntity(ActorDTO dto) {
-        Actor actor = new Actor();
-        actor.setId(dto.getId());
-        actor.setName(dto.getName());
-        actor.setGender(dto.getGender());
-        //avoiding recursion
-        actor.setKnownFor(new ArrayList<>());
-        return actor;
+        return CatalogueMapper.INSTANCE.toEntity(dto);
     }
 
     @Override
     public ActorDTO toDTO(Actor actor) {
-        ActorDTO actorDTO = new ActorDTO();
-        actorDTO.setId(actor.getId());
-        actorDTO.setName(actor.getName());
-        actorDTO.setGender(actor.getGender());
-        //avoiding recursion
-        actorDTO.setKnownFor(new ArrayList<>());
-
-        return actorDTO;
+        return CatalogueMapper.INSTANCE.toDTO(actor);
     }
 
 }
@@ -0,0 +1,98 @@
+package app.persistence.daos;
+
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueVersion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Set-based building blocks shared by the bulk methods of the DAOs.
+ */
+final class BulkOperations {
+    // Keeps IN lists far below PostgreSQL's limit of 32767 bind parameters per statement.
+    static final int MAX_IDS_PER_STATEMENT = 1000;
+
+    private BulkOperations() {
+    }
+
+    /**
+     * Runs the work in one transaction and invalidates what it may have made stale: the second-level cache region
+     * of the written entity, since bulk statements bypass the persistence context, the response cache through
+     * {@link CatalogueVersion}, and the caches of other nodes through {@link CatalogueChanges}.
+     */
+    static <R> R inTransaction(EntityManagerFactory emf, Class<?> written, Function<EntityManager, R> work) {
+        R result;
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                result = work.apply(em);
+                CatalogueChanges.publish(em, written);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+        emf.getCache().evict(written);
+        CatalogueVersion.bump();
+        return result;
+    }
+
+    /**
+     * Loads the entities with the given ids with one query per {@link #MAX_IDS_PER_STATEMENT} ids.
+     *
+     * @return the found entities by id; missing ids are absent
+     */
+    static <E> Map<Integer, E> findAllByIds(EntityManager em, Class<E> type, Collection<Integer> ids, ToIntFunction<E> idOf) {
+        Map<Integer, E> found = new HashMap<>();
+        for (List<Integer> chunk : chunks(ids)) {
+            em.createQuery("SELECT e FROM " + type.getSimpleName() + " e WHERE e.id IN :ids", type)
+                    .setParameter("ids", chunk)
+                    .getResultList()
+                    .forEach(entity -> found.put(idOf.applyAsInt(entity), entity));
+        }
+        return found;
+    }
+
+    /**
+     * Deletes the join rows referencing the ids, then the entities, with set-based statements. JPQL {@code DELETE}
+     * does not cascade to join tables, so every join column that references the entity must be listed.
+     *
+     * @param joinColumns {@code table.column} of every join-table column that references the entity
+     * @return the number of entities deleted
+     */
+    static int deleteAllByIds(EntityManager em, Class<?> type, Collection<Integer> ids, String... joinColumns) {
+        int deleted = 0;
+        for (List<Integer> chunk : chunks(ids)) {
+            for (String joinColumn : joinColumns) {
+                String[] tableAndColumn = joinColumn.split("\\.");
+                em.createNativeQuery("DELETE FROM " + tableAndColumn[0] + " WHERE " + tableAndColumn[1] + " IN (:ids)")
+                        .setParameter("ids", chunk)
+                        .executeUpdate();
+            }
+            deleted += em.createQuery("DELETE FROM " + type.getSimpleName() + " e WHERE e.id IN :ids")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        return deleted;
+    }
+
+    static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<Integer> distinct = ids.stream().distinct().toList();
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_IDS_PER_STATEMENT) {
+            chunks.add(distinct.subList(from, Math.min(distinct.size(), from + MAX_IDS_PER_STATEMENT)));
+        }
+        return chunks;
+    }
+}
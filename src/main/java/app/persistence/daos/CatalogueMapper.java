@@ -0,0 +1,47 @@
+package app.persistence.daos;
+
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.GenreDTO;
+import app.dtos.MovieDTO;
+import app.entities.Actor;
+import app.entities.Director;
+import app.entities.Genre;
+import app.entities.Movie;
+import app.mapping.Mapper;
+import app.mapping.Mapping;
+
+/**
+ * Entity/DTO conversions of the catalogue DAOs, implemented at compile time by {@code CatalogueMapperImpl}.
+ * knownFor is never mapped, avoiding the recursion between movies and people, and a movie's genres are left to
+ * {@link MovieDAO#toEntity}, which derives them and the genre mask from the TMDB ids.
+ */
+@Mapper
+interface CatalogueMapper {
+    CatalogueMapper INSTANCE = new CatalogueMapperImpl();
+
+    @Mapping(target = "genres", expression = "new java.util.ArrayList<>()")
+    MovieDTO toDTO(Movie movie);
+
+    @Mapping(target = "genres", ignore = true)
+    @Mapping(target = "genreMask", ignore = true)
+    Movie toEntity(MovieDTO dto);
+
+    @Mapping(target = "knownFor", expression = "new java.util.ArrayList<>()")
+    ActorDTO toDTO(Actor actor);
+
+    @Mapping(target = "knownFor", ignore = true)
+    Actor toEntity(ActorDTO dto);
+
+    @Mapping(target = "knownFor", expression = "new java.util.ArrayList<>()")
+    DirectorDTO toDTO(Director director);
+
+    @Mapping(target = "knownFor", ignore = true)
+    Director toEntity(DirectorDTO dto);
+
+    @Mapping(target = "genreName", source = "genre")
+    GenreDTO toDTO(Genre genre);
+
+    @Mapping(target = "genre", source = "genreName")
+    Genre toEntity(GenreDTO dto);
+}
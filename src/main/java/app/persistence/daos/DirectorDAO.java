@@ -7,11 +7,22 @@ import app.entities.Director;
 import app.entities.Genre;
 import app.entities.Movie;
 import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueVersion;
+import app.persistence.ReadRouting;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
 
-import java.util.ArrayList;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
@@ -22,100 +33,234 @@ import java.util.stream.Collectors;
  */
 public class DirectorDAO implements GenericDAO<DirectorDTO, Director> {
     private final EntityManagerFactory emf;
+    private final EntityManagerFactory replicaEmf;
     public DirectorDAO(EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, entityManagerFactory);
+    }
+
+    /**
+     * @param entityManagerFactory the primary, which all writes go to
+     * @param replicaEntityManagerFactory the replica that {@link #getById(int)} and {@link #getAll()} read from,
+     *                                    unless {@link ReadRouting#readYourWrites} sends them to the primary
+     */
+    public DirectorDAO(EntityManagerFactory entityManagerFactory, EntityManagerFactory replicaEntityManagerFactory) {
         emf = entityManagerFactory;
+        replicaEmf = replicaEntityManagerFactory;
+    }
+
+    private EntityManagerFactory readEmf() {
+        return ReadRouting.forReads(emf, replicaEmf);
     }
 
     @Override
     public DirectorDTO create(DirectorDTO directorDTO) {
-        Director director = toEntity(directorDTO);
+        return Metrics.recordDao("DirectorDAO", "create", () -> {
+            Director director = toEntity(directorDTO);
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.persist(director);
-            em.getTransaction().commit();
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                em.persist(director);
+                CatalogueChanges.publish(em, Director.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
 
-            directorDTO.setId(director.getId());
-        } catch (EntityExistsException e) {
-            throw new JpaException("Director already exists." + e.getMessage());
-        } catch (Exception e) {
-            throw new JpaException("Could not create director." + e.getMessage() + e.getCause());
-        }
-        return directorDTO;
+                directorDTO.setId(director.getId());
+            } catch (EntityExistsException e) {
+                throw new JpaException("Director already exists." + e.getMessage());
+            } catch (Exception e) {
+                throw new JpaException("Could not create director." + e.getMessage() + e.getCause());
+            }
+            return directorDTO;
+        });
     }
 
+    /**
+     * Creates several directors in a single transaction.
+     *
+     * @return the same DTOs with their database ids set
+     * @throws JpaException if any director could not be created; none is created then
+     */
     @Override
-    public void delete(DirectorDTO directorDTO) {
-        Director director = toEntity(directorDTO);
+    public List<DirectorDTO> createAll(List<DirectorDTO> directorDTOs) {
+        return Metrics.recordDao("DirectorDAO", "createAll", () -> {
+            if (directorDTOs.isEmpty()) return directorDTOs;
+            List<Director> directors = directorDTOs.stream().map(this::toEntity).toList();
+
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                directors.forEach(em::persist);
+                CatalogueChanges.publish(em, Director.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
+            } catch (Exception e) {
+                throw new JpaException("Could not create directors." + e.getMessage() + e.getCause());
+            }
+            for (int i = 0; i < directors.size(); i++) {
+                directorDTOs.get(i).setId(directors.get(i).getId());
+            }
+            return directorDTOs;
+        });
+    }
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.remove(director);
-            em.getTransaction().commit();
+    @Override
+    public void delete(DirectorDTO directorDTO) {
+        Metrics.recordDao("DirectorDAO", "delete", () -> {
+            deleteAllByIds(List.of(directorDTO.getId()));
+        });
+    }
 
-        } catch (Exception e) {
-            throw new JpaException("Could not delete director" + e.getMessage());
-        }
+    @Override
+    public int deleteAllByIds(Collection<Integer> ids) {
+        return Metrics.recordDao("DirectorDAO", "deleteAllByIds", () -> {
+            if (ids.isEmpty()) return 0;
+            try {
+                return BulkOperations.inTransaction(emf, Director.class,
+                        em -> BulkOperations.deleteAllByIds(em, Director.class, ids, "directors_movies.director_id"));
+            } catch (Exception e) {
+                throw new JpaException("Could not delete directors" + e.getMessage());
+            }
+        });
     }
 
     @Override
     public DirectorDTO getById(int id) {
-        Director director;
-        try (var em = emf.createEntityManager()) {
-            director = em.find(Director.class, id);
-        } catch (Exception e) {
-            throw new JpaException("Could not get director by id" + e.getMessage());
-        }
-        return toDTO(director);
+        return Metrics.recordDao("DirectorDAO", "getById", () -> {
+            Director director;
+            try (var em = readEmf().createEntityManager()) {
+                director = em.find(Director.class, id);
+            } catch (Exception e) {
+                throw new JpaException("Could not get director by id" + e.getMessage());
+            }
+            return toDTO(director);
+        });
     }
 
     @Override
     public List<DirectorDTO> getAll() {
-        List<Director> directors;
-        try (var em = emf.createEntityManager()) {
-            directors = em.createQuery("SELECT d FROM Director d", Director.class).getResultList();
-        } catch (Exception e) {
-            throw new JpaException("Could not get all actors" + e.getMessage());
-        }
-        return directors.stream().map(this::toDTO).toList();
+        return Metrics.recordDao("DirectorDAO", "getAll", () -> {
+            List<Director> directors;
+            try (var em = readEmf().createEntityManager()) {
+                directors = em.createQuery("SELECT d FROM Director d", Director.class).getResultList();
+            } catch (Exception e) {
+                throw new JpaException("Could not get all actors" + e.getMessage());
+            }
+            return toDTOs(directors);
+        });
     }
 
     @Override
     public void update(DirectorDTO directorDTO) {
-        Director director = toEntity(directorDTO);
-
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.merge(director);
-            em.getTransaction().commit();
+        Metrics.recordDao("DirectorDAO", "update", () -> {
+            updateAll(List.of(directorDTO));
+        });
+    }
 
-        } catch (Exception e) {
-            throw new JpaException("Could not update director." + e.getMessage());
-        }
+    @Override
+    public void updateAll(List<DirectorDTO> directorDTOs) {
+        Metrics.recordDao("DirectorDAO", "updateAll", () -> {
+            if (directorDTOs.isEmpty()) return;
+            try {
+                BulkOperations.inTransaction(emf, Director.class, em -> {
+                    Map<Integer, Director> directors = BulkOperations.findAllByIds(em, Director.class,
+                            directorDTOs.stream().map(DirectorDTO::getId).toList(), Director::getId);
+                    for (DirectorDTO directorDTO : directorDTOs) {
+                        Director director = directors.get(directorDTO.getId());
+                        if (director == null) {
+                            throw new JpaException("No director with id " + directorDTO.getId());
+                        }
+                        copyColumns(directorDTO, director);
+                    }
+                    return null;
+                });
+            } catch (JpaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new JpaException("Could not update directors." + e.getMessage());
+            }
+        });
     }
 
+    /**
+     * Directors have no TMDB id, so they are matched by database id, or else by name. Those with a name are written
+     * with one {@code INSERT ... ON CONFLICT} on its unique index, so import workers on several machines can upsert
+     * the same new director at the same time without inserting it twice.
+     */
     @Override
-    public Director toEntity(DirectorDTO dto) {
+    public List<DirectorDTO> upsertAll(List<DirectorDTO> directorDTOs) {
+        return Metrics.recordDao("DirectorDAO", "upsertAll", () -> {
+            if (directorDTOs.isEmpty()) return directorDTOs;
+            try {
+                BulkOperations.inTransaction(emf, Director.class, em -> {
+                    Map<Integer, Director> byId = BulkOperations.findAllByIds(em, Director.class,
+                            directorDTOs.stream().map(DirectorDTO::getId).filter(id -> id != 0).toList(), Director::getId);
+                    // Sorted, so concurrent upserts lock the index entries in the same order; the last DTO of a director wins.
+                    Map<String, DirectorDTO> byName = new TreeMap<>();
+                    for (DirectorDTO directorDTO : directorDTOs) {
+                        Director director = byId.get(directorDTO.getId());
+                        if (director != null) {
+                            copyColumns(directorDTO, director);
+                        } else if (directorDTO.getName() != null) {
+                            byName.put(directorDTO.getName(), directorDTO);
+                        } else {
+                            director = toEntity(directorDTO);
+                            director.setId(0);
+                            em.persist(director);
+                            directorDTO.setId(director.getId());
+                        }
+                    }
 
-        Director director = new Director();
-        director.setId(dto.getId());
-        director.setName(dto.getName());
-        director.setGender(dto.getGender());
-        //avoiding recursion
-        director.setKnownFor(new ArrayList<>());
+                    Map<String, Integer> ids = upsertByName(em, byName.values());
+                    for (DirectorDTO directorDTO : directorDTOs) {
+                        if (byId.get(directorDTO.getId()) == null && directorDTO.getName() != null) {
+                            directorDTO.setId(ids.get(directorDTO.getName()));
+                        }
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new JpaException("Could not upsert directors." + e.getMessage());
+            }
+            return directorDTOs;
+        });
+    }
+
+    // Inserts the directors, or updates the stored ones with the same name, in one statement.
+    private static Map<String, Integer> upsertByName(EntityManager em, Collection<DirectorDTO> directorDTOs) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (directorDTOs.isEmpty()) return ids;
+        String[] names = directorDTOs.stream().map(DirectorDTO::getName).toArray(String[]::new);
+        Integer[] genders = directorDTOs.stream().map(DirectorDTO::getGender).toArray(Integer[]::new);
 
-        return director;
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO directors (name, gender) "
+                            + "SELECT * FROM unnest(?, ?) "
+                            + "ON CONFLICT (name) DO UPDATE SET gender = EXCLUDED.gender "
+                            + "RETURNING name, id")) {
+                statement.setArray(1, connection.createArrayOf("varchar", names));
+                statement.setArray(2, connection.createArrayOf("integer", genders));
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        ids.put(rows.getString(1), rows.getInt(2));
+                    }
+                }
+            }
+        });
+        return ids;
+    }
+
+    private static void copyColumns(DirectorDTO source, Director target) {
+        target.setName(source.getName());
+        target.setGender(source.getGender());
+    }
+
+    @Override
+    public Director toEntity(DirectorDTO dto) {
+        return CatalogueMapper.INSTANCE.toEntity(dto);
     }
 
     @Override
     public DirectorDTO toDTO(Director director) {
-        DirectorDTO directorDTO = new DirectorDTO();
-        directorDTO.setId(director.getId());
-        directorDTO.setName(director.getName());
-        directorDTO.setGender(director.getGender());
-        //avoiding recursion
-        directorDTO.setKnownFor(new ArrayList<>());
-
-        return directorDTO;
+        return CatalogueMapper.INSTANCE.toDTO(director);
     }
 }
@@ -1,13 +1,57 @@
 package app.persistence.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public interface GenericDAO<T, E> {
     T create(T type);
+
+    /**
+     * Creates every given row in a single transaction. Fails as a whole if one of them cannot be created.
+     *
+     * @return the same DTOs with their database ids set
+     */
+    List<T> createAll(List<T> types);
+
     void delete(T type);
     T getById(int id);
     List<T> getAll();
     void update(T type);
+
+    /**
+     * Updates every given row in a single transaction. Fails as a whole if one of them does not exist.
+     */
+    void updateAll(List<T> types);
+
+    /**
+     * Deletes the rows with the given ids, and the join rows that reference them, in a single transaction.
+     *
+     * @return the number of rows deleted
+     */
+    int deleteAllByIds(Collection<Integer> ids);
+
+    /**
+     * Updates the rows that already exist and creates the others, in a single transaction.
+     *
+     * @return the same DTOs with their database ids set
+     */
+    List<T> upsertAll(List<T> types);
+
     E toEntity(T dto);
     T toDTO(E entity);
+
+    /**
+     * Converts the entities with {@link #toDTO} into a list allocated at its final size.
+     *
+     * @return a mutable list of the DTOs, empty if {@code entities} is null
+     */
+    default List<T> toDTOs(Collection<E> entities) {
+        if (entities == null) return new ArrayList<>();
+        List<T> dtos = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            dtos.add(toDTO(entity));
+        }
+        return dtos;
+    }
 }
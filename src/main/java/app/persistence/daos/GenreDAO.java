@@ -2,11 +2,27 @@ package app.persistence.daos;
 
 import app.dtos.GenreDTO;
 import app.entities.Genre;
+import app.enums.MovieGenre;
 import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueVersion;
+import app.persistence.ReadRouting;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Purpose:
@@ -15,145 +31,282 @@ import java.util.List;
  */
 public class GenreDAO implements GenericDAO<GenreDTO, Genre> {
     private final EntityManagerFactory emf;
+    private final EntityManagerFactory replicaEmf;
     public GenreDAO(EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, entityManagerFactory);
+    }
+
+    /**
+     * @param entityManagerFactory the primary, which all writes go to
+     * @param replicaEntityManagerFactory the replica that {@link #getById(int)} and {@link #getAll()} read from,
+     *                                    unless {@link ReadRouting#readYourWrites} sends them to the primary
+     */
+    public GenreDAO(EntityManagerFactory entityManagerFactory, EntityManagerFactory replicaEntityManagerFactory) {
         emf = entityManagerFactory;
+        replicaEmf = replicaEntityManagerFactory;
+    }
+
+    private EntityManagerFactory readEmf() {
+        return ReadRouting.forReads(emf, replicaEmf);
     }
 
     @Override
     public GenreDTO create(GenreDTO genreDTO) {
-        Genre genre = toEntity(genreDTO);
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.persist(genre);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            throw new JpaException("Could not create genre." + e.getMessage() + e.getCause());
-        }
-        return genreDTO;
+        return Metrics.recordDao("GenreDAO", "create", () -> {
+            Genre genre = toEntity(genreDTO);
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                em.persist(genre);
+                CatalogueChanges.publish(em, Genre.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
+            } catch (Exception e) {
+                throw new JpaException("Could not create genre." + e.getMessage() + e.getCause());
+            }
+            genreDTO.setId(genre.getId());
+            return genreDTO;
+        });
     }
 
+    /**
+     * Creates several genres in a single transaction.
+     *
+     * @return the same DTOs with their database ids set
+     * @throws JpaException if any genre could not be created; none is created then
+     */
     @Override
-    public void delete(GenreDTO genreDTO) {
-        Genre genre = toEntity(genreDTO);
+    public List<GenreDTO> createAll(List<GenreDTO> genreDTOs) {
+        return Metrics.recordDao("GenreDAO", "createAll", () -> {
+            if (genreDTOs.isEmpty()) return genreDTOs;
+            List<Genre> genres = genreDTOs.stream().map(this::toEntity).toList();
+
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                genres.forEach(em::persist);
+                CatalogueChanges.publish(em, Genre.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
+            } catch (Exception e) {
+                throw new JpaException("Could not create genres." + e.getMessage() + e.getCause());
+            }
+            for (int i = 0; i < genres.size(); i++) {
+                genreDTOs.get(i).setId(genres.get(i).getId());
+            }
+            return genreDTOs;
+        });
+    }
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.remove(genre);
-            em.getTransaction().commit();
+    @Override
+    public void delete(GenreDTO genreDTO) {
+        Metrics.recordDao("GenreDAO", "delete", () -> {
+            deleteAllByIds(List.of(genreDTO.getId()));
+        });
+    }
 
-        } catch (Exception e) {
-            throw new JpaException("Could not delete actor" + e.getMessage());
-        }
+    @Override
+    public int deleteAllByIds(Collection<Integer> ids) {
+        return Metrics.recordDao("GenreDAO", "deleteAllByIds", () -> {
+            if (ids.isEmpty()) return 0;
+            try {
+                return BulkOperations.inTransaction(emf, Genre.class,
+                        em -> BulkOperations.deleteAllByIds(em, Genre.class, ids, "movie_genre.genre_id"));
+            } catch (Exception e) {
+                throw new JpaException("Could not delete genres." + e.getMessage());
+            }
+        });
     }
 
     @Override
     public GenreDTO getById(int id) {
-        Genre genre;
-        try (var em = emf.createEntityManager()) {
-            genre = em.find(Genre.class, id);
-        } catch (Exception e) {
-            throw new JpaException("Could not get genre by id." + e.getMessage());
-        }
-        return toDTO(genre);
+        return Metrics.recordDao("GenreDAO", "getById", () -> {
+            Genre genre;
+            try (var em = readEmf().createEntityManager()) {
+                genre = em.find(Genre.class, id);
+            } catch (Exception e) {
+                throw new JpaException("Could not get genre by id." + e.getMessage());
+            }
+            return toDTO(genre);
+        });
     }
 
     @Override
     public List<GenreDTO> getAll() {
-        List<Genre> genres;
-        try (var em = emf.createEntityManager()) {
-            genres = em.createQuery("SELECT g FROM Genre g", Genre.class).getResultList();
-        } catch (Exception e) {
-            throw new JpaException("Could not get all genres." + e.getMessage());
-        }
-        return genres.stream().map(this::toDTO).toList();
+        return Metrics.recordDao("GenreDAO", "getAll", () -> {
+            List<Genre> genres;
+            try (var em = readEmf().createEntityManager()) {
+                genres = em.createQuery("SELECT g FROM Genre g", Genre.class).getResultList();
+            } catch (Exception e) {
+                throw new JpaException("Could not get all genres." + e.getMessage());
+            }
+            return toDTOs(genres);
+        });
     }
 
     @Override
     public void update(GenreDTO genreDTO) {
-        Genre genre = toEntity(genreDTO);
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.merge(genre);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            throw new JpaException("Could not update genre." + e.getMessage() + e.getCause());
-        }
+        Metrics.recordDao("GenreDAO", "update", () -> {
+            updateAll(List.of(genreDTO));
+        });
+    }
+
+    @Override
+    public void updateAll(List<GenreDTO> genreDTOs) {
+        Metrics.recordDao("GenreDAO", "updateAll", () -> {
+            if (genreDTOs.isEmpty()) return;
+            try {
+                BulkOperations.inTransaction(emf, Genre.class, em -> {
+                    Map<Integer, Genre> genres = BulkOperations.findAllByIds(em, Genre.class,
+                            genreDTOs.stream().map(GenreDTO::getId).toList(), Genre::getId);
+                    for (GenreDTO genreDTO : genreDTOs) {
+                        Genre genre = genres.get(genreDTO.getId());
+                        if (genre == null) {
+                            throw new JpaException("No genre with id " + genreDTO.getId());
+                        }
+                        genre.setGenre(genreDTO.getGenreName());
+                    }
+                    return null;
+                });
+            } catch (JpaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new JpaException("Could not update genres." + e.getMessage() + e.getCause());
+            }
+        });
+    }
+
+    /**
+     * Genres are matched by database id, or else by name; see {@link #storeGenres(EntityManager, Collection)}.
+     */
+    @Override
+    public List<GenreDTO> upsertAll(List<GenreDTO> genreDTOs) {
+        return Metrics.recordDao("GenreDAO", "upsertAll", () -> {
+            if (genreDTOs.isEmpty()) return genreDTOs;
+            try {
+                BulkOperations.inTransaction(emf, Genre.class, em -> {
+                    Map<Integer, Genre> byId = BulkOperations.findAllByIds(em, Genre.class,
+                            genreDTOs.stream().map(GenreDTO::getId).filter(id -> id != 0).toList(), Genre::getId);
+                    List<GenreDTO> byName = new ArrayList<>();
+                    for (GenreDTO genreDTO : genreDTOs) {
+                        Genre genre = byId.get(genreDTO.getId());
+                        if (genre != null) {
+                            genre.setGenre(genreDTO.getGenreName());
+                        } else if (genreDTO.getGenreName() != null) {
+                            byName.add(genreDTO);
+                        } else {
+                            genre = Genre.builder().build();
+                            em.persist(genre);
+                            genreDTO.setId(genre.getId());
+                        }
+                    }
+
+                    Map<String, Integer> ids = storeGenres(em, byName.stream().map(GenreDTO::getGenreName).toList());
+                    byName.forEach(genreDTO -> genreDTO.setId(ids.get(genreDTO.getGenreName())));
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new JpaException("Could not upsert genres." + e.getMessage());
+            }
+            return genreDTOs;
+        });
     }
 
     @Override
     public Genre toEntity(GenreDTO dto) {
-        Genre genre = new Genre();
-        genre.setId(dto.getId());
-        genre.setGenre(dto.getGenreName());
-        genre.setMovies(dto.getMovies());
-        return genre;
+        return CatalogueMapper.INSTANCE.toEntity(dto);
     }
 
     @Override
     public GenreDTO toDTO(Genre entity) {
-        return GenreDTO.builder()
-                .id(entity.getId())
-                .genreName(entity.getGenre())
-                .movies(entity.getMovies())
-                .build();
+        return CatalogueMapper.INSTANCE.toDTO(entity);
+    }
+
+    /**
+     * Persists every TMDB genre that is not in the database yet. Running this before an import means its movie
+     * batches find every genre already stored.
+     *
+     * @throws JpaException if any error occurs during the persistence process.
+     */
+    public void persistKnownGenres() {
+        List<Genre> genres = Arrays.stream(MovieGenre.values())
+                .map(genre -> Genre.builder().genre(genre.name()).build())
+                .toList();
+        persistGenres(genres);
     }
 
     String getGenreNameById(int id) {
-        return switch (id) {
-            case 28 -> "ACTION";
-            case 12 -> "ADVENTURE";
-            case 16 -> "ANIMATION";
-            case 35 -> "COMEDY";
-            case 80 -> "CRIME";
-            case 99 -> "DOCUMENTARY";
-            case 18 -> "DRAMA";
-            case 10751 -> "FAMILY";
-            case 14 -> "FANTASY";
-            case 36 -> "HISTORY";
-            case 27 -> "HORROR";
-            case 10402 -> "MUSIC";
-            case 9648 -> "MYSTERY";
-            case 10749 -> "ROMANCE";
-            case 878 -> "SCIENCE_FICTION";
-            case 10770 -> "TV_MOVIE";
-            case 53 -> "THRILLER";
-            case 10752 -> "WAR";
-            case 37 -> "WESTERN";
-            default -> throw new IllegalArgumentException("No genre found with ID: " + id);
-        };
+        return MovieGenre.ofTmdbId(id).name();
     }
 
     /**
-     * Persists a list of genres into the database. If a genre already exists, it will not be duplicated.
-     * This method first checks if the genres are already present in the database by querying by genre name.
-     * If not found, it persists the genre and flushes to clear the queue.
+     * Persists a collection of genres into the database. If a genre already exists, it will not be duplicated.
+     * See {@link #storeGenres(EntityManager, Collection)}.
      *
-     * The transaction is managed manually to ensure that all changes are committed together.
-     *
-     * @param genres the list of {@link Genre} objects to persist; if the list is null or empty, the method returns immediately.
+     * @param genres the {@link Genre} objects to persist; they get the ids of their rows. If the collection is null
+     *               or empty, the method returns immediately.
      * @throws JpaException if any error occurs during the persistence process, encapsulating the error message.
      */
     @Transactional
-    public void persistGenres(List<Genre> genres) {
-        if (genres == null || genres.isEmpty()) return;
+    public void persistGenres(Collection<Genre> genres) {
+        Metrics.recordDao("GenreDAO", "persistGenres", () -> {
+            if (genres == null || genres.isEmpty()) return;
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                Map<String, Integer> ids = storeGenres(em, genres.stream().map(Genre::getGenre).filter(Objects::nonNull).toList());
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
 
-            for (Genre genre : genres) {
-                List<Genre> existingGenres = em.createQuery("SELECT g FROM Genre g WHERE g.genre = :genreName", Genre.class)
-                        .setParameter("genreName", genre.getGenre())
-                        .getResultList();
+                genres.stream().filter(genre -> ids.containsKey(genre.getGenre())).forEach(genre -> genre.setId(ids.get(genre.getGenre())));
+            } catch (Exception e) {
+                throw new JpaException("Could not persist genres. " + e.getMessage());
+            }
+        });
+    }
 
-                if (existingGenres.isEmpty()) {
-                    // Save the genre if it's not in the database & flush to clear the queue.
-                    em.persist(genre);
-                    em.flush();
+    /**
+     * Inserts the genres that are not stored yet and looks up the ids of all of them, in one statement on the
+     * current transaction of the entity manager. Conflicts on the unique genre name are skipped, so concurrent
+     * writers, in this process or another, can add the same genre without waiting for each other beforehand.
+     *
+     * @param names the genre names; duplicates are allowed
+     * @return the database id of every name
+     */
+    static Map<String, Integer> storeGenres(EntityManager em, Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (names.isEmpty()) return ids;
+        String[] distinct = names.stream().distinct().toArray(String[]::new);
+        AtomicBoolean added = new AtomicBoolean();
+
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "WITH wanted (genre) AS (SELECT unnest(?)), "
+                            + "added AS (INSERT INTO genres (genre) SELECT genre FROM wanted ON CONFLICT (genre) DO NOTHING RETURNING genre, id) "
+                            + "SELECT genre, id, true FROM added "
+                            + "UNION ALL SELECT g.genre, g.id, false FROM genres g JOIN wanted w ON w.genre = g.genre")) {
+                statement.setArray(1, connection.createArrayOf("varchar", distinct));
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        ids.put(rows.getString(1), rows.getInt(2));
+                        if (rows.getBoolean(3)) added.set(true);
+                    }
+                }
+            }
+            // A genre that another transaction committed while the insert waited on it is in neither half of the
+            // result, since the select saw the genres as of the start of the statement.
+            if (ids.size() < distinct.length) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT genre, id FROM genres WHERE genre = ANY (?)")) {
+                    statement.setArray(1, connection.createArrayOf("varchar", distinct));
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            ids.put(rows.getString(1), rows.getInt(2));
+                        }
+                    }
                 }
             }
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            throw new JpaException("Could not persist genres. " + e.getMessage());
+        });
+        if (added.get()) {
+            CatalogueChanges.publish(em, Genre.class);
         }
+        return ids;
     }
 }
@@ -0,0 +1,223 @@
+package app.persistence.daos;
+
+import app.entities.ImportJob;
+import app.entities.ImportJobPage;
+import app.enums.ImportJobStatus;
+import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object for import jobs and their page checkpoints. Unlike the catalogue DAOs it works on entities
+ * directly, since jobs are internal bookkeeping and never leave the service layer.
+ *
+ * Job times are taken from the database clock, in UTC like the leases of {@link ImportLeaseDAO}, so imports on
+ * machines whose clocks or time zones disagree still agree on when a job went quiet.
+ */
+public class ImportJobDAO {
+    /**
+     * How long a running job may go without a checkpoint before another import takes it for abandoned, and how
+     * long after it stopped a job is still resumed.
+     */
+    public static final Duration DEFAULT_STALE_AFTER = Duration.ofMinutes(10);
+
+    private final EntityManagerFactory emf;
+    private final Duration staleAfter;
+
+    public ImportJobDAO(EntityManagerFactory emf) {
+        this(emf, DEFAULT_STALE_AFTER);
+    }
+
+    public ImportJobDAO(EntityManagerFactory emf, Duration staleAfter) {
+        this.emf = emf;
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Resumes the most recent job that stopped within the staleness window, or starts a new one if there is none.
+     * A job stops when it fails, or when it is still marked as running but has not renewed its heartbeat for the
+     * staleness window. Older jobs are not resumed: discover pages are sorted by release date and shift as new
+     * movies come out, so their checkpoints no longer describe the pages they would skip. Jobs of sharded imports
+     * are left to the workers that claim their leases.
+     * <p>
+     * The candidate is locked with {@code FOR UPDATE SKIP LOCKED}, so two imports starting at the same time never
+     * resume the same job: the second one skips it and, once the first has committed, sees a fresh heartbeat.
+     *
+     * @param pagesRequested the number of pages the caller wants imported
+     * @return the running job
+     * @throws JpaException if the job could not be read or written.
+     */
+    public ImportJob startOrResume(int pagesRequested) {
+        return Metrics.recordDao("ImportJobDAO", "startOrResume", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                LocalDateTime now = databaseNow(em);
+                LocalDateTime staleBefore = now.minus(staleAfter);
+                @SuppressWarnings("unchecked")
+                List<Integer> resumable = em.createNativeQuery("SELECT j.id FROM import_jobs j "
+                                + "WHERE ((j.status = 'FAILED' AND j.heartbeat_at > :staleBefore) "
+                                + "OR (j.status = 'RUNNING' AND j.heartbeat_at <= :staleBefore AND j.heartbeat_at > :abandonedBefore)) "
+                                + "AND NOT EXISTS (SELECT 1 FROM import_leases l WHERE l.job_id = j.id) "
+                                + "ORDER BY j.id DESC LIMIT 1 FOR UPDATE SKIP LOCKED", Integer.class)
+                        .setParameter("staleBefore", staleBefore)
+                        .setParameter("abandonedBefore", staleBefore.minus(staleAfter))
+                        .getResultList();
+
+                ImportJob job;
+                if (resumable.isEmpty()) {
+                    job = new ImportJob();
+                    job.setStartedAt(now);
+                    job.setPagesRequested(pagesRequested);
+                    em.persist(job);
+                } else {
+                    job = em.find(ImportJob.class, resumable.get(0));
+                    job.setPagesRequested(Math.max(job.getPagesRequested(), pagesRequested));
+                }
+                job.setStatus(ImportJobStatus.RUNNING);
+                job.setFinishedAt(null);
+                job.setHeartbeatAt(now);
+                em.getTransaction().commit();
+                return job;
+            } catch (Exception e) {
+                throw new JpaException("Could not start import job. " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Starts a new job, leaving unfinished ones alone. Used by sharded imports, where unfinished jobs may belong
+     * to other workers that are still running.
+     *
+     * @param pagesRequested the number of pages the caller wants imported
+     * @return the running job
+     * @throws JpaException if the job could not be written.
+     */
+    public ImportJob start(int pagesRequested) {
+        return Metrics.recordDao("ImportJobDAO", "start", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                LocalDateTime now = databaseNow(em);
+                ImportJob job = new ImportJob();
+                job.setStartedAt(now);
+                job.setHeartbeatAt(now);
+                job.setPagesRequested(pagesRequested);
+                job.setStatus(ImportJobStatus.RUNNING);
+                em.persist(job);
+                em.getTransaction().commit();
+                return job;
+            } catch (Exception e) {
+                throw new JpaException("Could not start import job. " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Marks the given job as running again.
+     *
+     * @param jobId the id of the job
+     * @return the running job
+     * @throws JpaException if the job does not exist or could not be written.
+     */
+    public ImportJob resume(int jobId) {
+        return Metrics.recordDao("ImportJobDAO", "resume", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                ImportJob job = em.find(ImportJob.class, jobId);
+                job.setStatus(ImportJobStatus.RUNNING);
+                job.setFinishedAt(null);
+                job.setHeartbeatAt(databaseNow(em));
+                em.getTransaction().commit();
+                return job;
+            } catch (Exception e) {
+                throw new JpaException("Could not resume import job " + jobId + ". " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @param jobId the id of the job
+     * @return the pages the job has already checkpointed, by the key of the import spec they belong to
+     * @throws JpaException if the checkpoints could not be read.
+     */
+    public Map<String, Set<Integer>> getCompletedPages(int jobId) {
+        return Metrics.recordDao("ImportJobDAO", "getCompletedPages", () -> {
+            try (var em = emf.createEntityManager()) {
+                Map<String, Set<Integer>> pages = new HashMap<>();
+                em.createQuery("SELECT p.spec, p.page FROM ImportJobPage p WHERE p.job.id = :jobId", Object[].class)
+                        .setParameter("jobId", jobId)
+                        .getResultList()
+                        .forEach(row -> pages.computeIfAbsent((String) row[0], spec -> new HashSet<>()).add((Integer) row[1]));
+                return pages;
+            } catch (Exception e) {
+                throw new JpaException("Could not get completed pages. " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Records that every movie of the page has been committed, and renews the job's heartbeat. Must only be called
+     * after those commits, so a checkpoint never claims work that could still be rolled back.
+     *
+     * @param jobId           the id of the job
+     * @param spec            the key of the import spec the page belongs to
+     * @param page            the discover page
+     * @param moviesPersisted the number of movies the page contributed
+     * @throws JpaException if the checkpoint could not be written.
+     */
+    public void completePage(int jobId, String spec, int page, int moviesPersisted) {
+        Metrics.recordDao("ImportJobDAO", "completePage", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                ImportJobPage checkpoint = new ImportJobPage();
+                checkpoint.setJob(em.getReference(ImportJob.class, jobId));
+                checkpoint.setSpec(spec);
+                checkpoint.setPage(page);
+                checkpoint.setMoviesPersisted(moviesPersisted);
+                checkpoint.setCompletedAt(databaseNow(em));
+                em.persist(checkpoint);
+                em.createQuery("UPDATE ImportJob j SET j.heartbeatAt = :now WHERE j.id = :jobId")
+                        .setParameter("now", checkpoint.getCompletedAt())
+                        .setParameter("jobId", jobId)
+                        .executeUpdate();
+                em.getTransaction().commit();
+            } catch (Exception e) {
+                throw new JpaException("Could not checkpoint page " + page + " of " + spec + ". " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Marks the job as finished.
+     *
+     * @param jobId  the id of the job
+     * @param status {@link ImportJobStatus#COMPLETED}, or {@link ImportJobStatus#FAILED} to have the next import resume it
+     * @throws JpaException if the job could not be updated.
+     */
+    public void finish(int jobId, ImportJobStatus status) {
+        Metrics.recordDao("ImportJobDAO", "finish", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                ImportJob job = em.find(ImportJob.class, jobId);
+                job.setStatus(status);
+                job.setFinishedAt(databaseNow(em));
+                job.setHeartbeatAt(job.getFinishedAt());
+                em.getTransaction().commit();
+            } catch (Exception e) {
+                throw new JpaException("Could not finish import job. " + e.getMessage());
+            }
+        });
+    }
+
+    private static LocalDateTime databaseNow(EntityManager em) {
+        return (LocalDateTime) em.createNativeQuery("SELECT CAST(now() AT TIME ZONE 'UTC' AS timestamp)", LocalDateTime.class).getSingleResult();
+    }
+}
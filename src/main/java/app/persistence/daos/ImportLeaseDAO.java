@@ -0,0 +1,192 @@
+package app.persistence.daos;
+
+import app.entities.ImportLease;
+import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Data Access Object for the leases of a sharded import. Like {@link ImportJobDAO} it works on entities directly.
+ *
+ * Lease times are computed by the database clock, in UTC, so workers on machines whose clocks or time zones
+ * disagree still agree on when a lease has expired.
+ */
+public class ImportLeaseDAO {
+    // First key of the two-key advisory locks taken on leases, so they cannot collide with other advisory locks.
+    private static final int LEASE_LOCK_NAMESPACE = 0x4c45;
+    // UTC rather than localtimestamp, which follows the session time zone and thereby the JVM of each worker.
+    private static final String NOW = "(now() AT TIME ZONE 'UTC')";
+    private final EntityManagerFactory emf;
+
+    public ImportLeaseDAO(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Splits the pages of a spec into leases of at most {@code pagesPerShard} pages. Leases that already exist are
+     * kept, so every worker of a sharded import can call this on startup.
+     *
+     * @param spec          the key of the import spec
+     * @param firstPage     the first page of the spec
+     * @param lastPage      the last page of the spec
+     * @param pagesPerShard the number of pages per lease
+     * @throws JpaException if the leases could not be written.
+     */
+    public void createShards(String spec, int firstPage, int lastPage, int pagesPerShard) {
+        Metrics.recordDao("ImportLeaseDAO", "createShards", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                for (int first = firstPage; first <= lastPage; first += pagesPerShard) {
+                    em.createNativeQuery("INSERT INTO import_leases (spec, first_page, last_page) VALUES (:spec, :first, :last) "
+                                    + "ON CONFLICT (spec, first_page) DO NOTHING")
+                            .setParameter("spec", spec)
+                            .setParameter("first", first)
+                            .setParameter("last", Math.min(lastPage, first + pagesPerShard - 1))
+                            .executeUpdate();
+                }
+                em.getTransaction().commit();
+            } catch (Exception e) {
+                throw new JpaException("Could not create the shards of " + spec + ". " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Claims the first open lease of the spec that nobody holds, or whose holder let it expire.
+     *
+     * Each candidate is first locked with {@code pg_try_advisory_xact_lock}, so workers claiming at the same time
+     * skip each other's candidates instead of queueing on the same row. The claim itself is a conditional update
+     * and only succeeds if the lease is still claimable once the lock is held.
+     *
+     * @param owner         the name of the claiming worker
+     * @param spec          the key of the import spec
+     * @param leaseDuration how long the lease stays valid without being renewed
+     * @param skip          ids of leases the worker does not want, e.g. because it already failed them
+     * @return the claimed lease, or empty if every open lease is held by a live worker or skipped
+     * @throws JpaException if the leases could not be read or written.
+     */
+    public Optional<ImportLease> claim(String owner, String spec, Duration leaseDuration, Collection<Integer> skip) {
+        return Metrics.recordDao("ImportLeaseDAO", "claim", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                @SuppressWarnings("unchecked")
+                List<Integer> candidates = em.createNativeQuery("SELECT id FROM import_leases WHERE spec = :spec AND completed_at IS NULL "
+                                + "AND (owner IS NULL OR lease_expires_at < " + NOW + ") ORDER BY id", Integer.class)
+                        .setParameter("spec", spec)
+                        .getResultList();
+
+                for (Integer id : candidates) {
+                    if (skip.contains(id)) continue;
+                    Boolean locked = (Boolean) em.createNativeQuery("SELECT pg_try_advisory_xact_lock(:namespace, :id)", Boolean.class)
+                            .setParameter("namespace", LEASE_LOCK_NAMESPACE)
+                            .setParameter("id", id)
+                            .getSingleResult();
+                    if (!locked) continue;
+
+                    int claimed = em.createNativeQuery("UPDATE import_leases SET owner = :owner, "
+                                    + "lease_expires_at = " + NOW + " + make_interval(secs => :seconds) "
+                                    + "WHERE id = :id AND completed_at IS NULL AND (owner IS NULL OR lease_expires_at < " + NOW + ")")
+                            .setParameter("owner", owner)
+                            .setParameter("seconds", (double) leaseDuration.toMillis() / 1000)
+                            .setParameter("id", id)
+                            .executeUpdate();
+                    if (claimed == 1) {
+                        ImportLease lease = em.find(ImportLease.class, id);
+                        em.getTransaction().commit();
+                        return Optional.of(lease);
+                    }
+                }
+                em.getTransaction().commit();
+                return Optional.empty();
+            } catch (Exception e) {
+                throw new JpaException("Could not claim a shard of " + spec + ". " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Extends the lease by another {@code leaseDuration}, if the worker still holds it.
+     *
+     * @return {@code false} if the lease expired and was claimed by another worker, or was completed
+     * @throws JpaException if the lease could not be written.
+     */
+    public boolean renew(int leaseId, String owner, Duration leaseDuration) {
+        return Metrics.recordDao("ImportLeaseDAO", "renew", () -> updateHeldLease(leaseId, owner,
+                "lease_expires_at = " + NOW + " + make_interval(secs => " + (double) leaseDuration.toMillis() / 1000 + ")"));
+    }
+
+    /**
+     * Records the import job working on the lease, so a worker that takes over an expired lease resumes it.
+     *
+     * @throws JpaException if the lease could not be written.
+     */
+    public void attachJob(int leaseId, int jobId) {
+        Metrics.recordDao("ImportLeaseDAO", "attachJob", () -> {
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                em.find(ImportLease.class, leaseId).setJobId(jobId);
+                em.getTransaction().commit();
+            } catch (Exception e) {
+                throw new JpaException("Could not attach job " + jobId + " to lease " + leaseId + ". " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Marks the lease as done. Must only be called once every page of the lease is checkpointed.
+     *
+     * @return {@code false} if the worker no longer held the lease
+     * @throws JpaException if the lease could not be written.
+     */
+    public boolean complete(int leaseId, String owner) {
+        return Metrics.recordDao("ImportLeaseDAO", "complete", () -> updateHeldLease(leaseId, owner, "completed_at = " + NOW));
+    }
+
+    /**
+     * Gives the lease up before it expires, so another worker can claim it right away.
+     *
+     * @throws JpaException if the lease could not be written.
+     */
+    public void release(int leaseId, String owner) {
+        Metrics.recordDao("ImportLeaseDAO", "release", () -> {
+            updateHeldLease(leaseId, owner, "owner = NULL, lease_expires_at = NULL");
+        });
+    }
+
+    /**
+     * @param spec the key of the import spec
+     * @return the ids of the leases of the spec that are not completed, held or not
+     * @throws JpaException if the leases could not be read.
+     */
+    public List<Integer> getOpenLeaseIds(String spec) {
+        return Metrics.recordDao("ImportLeaseDAO", "getOpenLeaseIds", () -> {
+            try (var em = emf.createEntityManager()) {
+                return em.createQuery("SELECT l.id FROM ImportLease l WHERE l.spec = :spec AND l.completedAt IS NULL ORDER BY l.id", Integer.class)
+                        .setParameter("spec", spec)
+                        .getResultList();
+            } catch (Exception e) {
+                throw new JpaException("Could not read the shards of " + spec + ". " + e.getMessage());
+            }
+        });
+    }
+
+    private boolean updateHeldLease(int leaseId, String owner, String assignments) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            int updated = em.createNativeQuery("UPDATE import_leases SET " + assignments
+                            + " WHERE id = :id AND owner = :owner AND completed_at IS NULL")
+                    .setParameter("id", leaseId)
+                    .setParameter("owner", owner)
+                    .executeUpdate();
+            em.getTransaction().commit();
+            return updated == 1;
+        } catch (Exception e) {
+            throw new JpaException("Could not update lease " + leaseId + ". " + e.getMessage());
+        }
+    }
+}
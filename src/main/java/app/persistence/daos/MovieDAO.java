@@ -4,18 +4,40 @@ import app.dtos.ActorDTO;
 import app.dtos.DirectorDTO;
 import app.dtos.GenreDTO;
 import app.dtos.MovieDTO;
+import app.dtos.MovieView;
+import app.dtos.PersonRef;
 import app.entities.Actor;
 import app.entities.Director;
 import app.entities.Genre;
 import app.entities.Movie;
+import app.enums.MovieGenre;
+import app.enums.MovieSortOrder;
 import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueVersion;
+import app.persistence.ReadRouting;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.NoResultException;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +47,7 @@ import java.util.stream.Collectors;
  */
 public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
     private final EntityManagerFactory emf;
+    private final EntityManagerFactory replicaEmf;
     private final ActorDAO actorDAO;
     private final DirectorDAO directorDAO;
 
@@ -34,17 +57,35 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      * @param entityManagerFactory the {@link EntityManagerFactory} used for managing entities.
      */
     public MovieDAO(EntityManagerFactory emf, ActorDAO actorDAO, DirectorDAO directorDAO) {
+        this(emf, emf, actorDAO, directorDAO);
+    }
+
+    /**
+     * Constructs a MovieDAO that writes to the primary and serves the catalogue reads from a replica. Reads the
+     * import itself depends on, such as {@link #findExistingTmdbIds(Collection)}, always go to the primary, since a
+     * lagging replica would make it insert movies twice.
+     *
+     * @param emf        the primary
+     * @param replicaEmf the replica; may be the primary itself
+     */
+    public MovieDAO(EntityManagerFactory emf, EntityManagerFactory replicaEmf, ActorDAO actorDAO, DirectorDAO directorDAO) {
         this.emf = emf;
+        this.replicaEmf = replicaEmf;
         this.actorDAO = actorDAO;
         this.directorDAO = directorDAO;
     }
 
+    // Reads go to the replica unless the caller is inside ReadRouting.readYourWrites.
+    private EntityManagerFactory readEmf() {
+        return ReadRouting.forReads(emf, replicaEmf);
+    }
+
     /**
-     * Creates a new movie record in the database, ensuring that associated genres are managed and persisted first.
-     * The method first converts the incoming {@link MovieDTO} into a {@link Movie} entity, persists the genres,
-     * and then merges the movie entity with managed genres to prevent transient object exceptions.
+     * Creates a new movie record in the database, ensuring that associated genres and people are stored first.
+     * The method first upserts the actors and directors that have a natural key, converts the incoming
+     * {@link MovieDTO} into a {@link Movie} entity, and then attaches references to the stored genres and people
+     * to prevent transient object exceptions.
      *
-     * This approach ensures that all genres associated with the movie are in a managed state before the movie is saved.
      * The method manually manages transactions to control the order and success of the operations.
      *
      * @param movieDTO the {@link MovieDTO} object containing the movie details to be created.
@@ -53,56 +94,160 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      */
     @Override
     public MovieDTO create(MovieDTO movieDTO) {
-        Movie movie = toEntity(movieDTO);
-        GenreDAO genreDAO = new GenreDAO(emf);
-
-        // Persist genres first to ensure they are managed
-        genreDAO.persistGenres(movie.getGenres());
-
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
+        return Metrics.recordDao("MovieDAO", "create", () -> {
+            storeNewPeople(List.of(movieDTO));
+            Movie movie = toEntity(movieDTO);
+
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+
+                // Attach managed genres to the movie to avoid transient object exceptions
+                attachManagedGenres(em, List.of(movie));
+                attachStoredPeople(em, List.of(movie));
+
+                em.persist(movie);
+                CatalogueChanges.publish(em, Movie.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
+
+                movieDTO.setId(movie.getId());
+            } catch (EntityExistsException e) {
+                throw new JpaException("Movie already exists." + e.getMessage());
+            } catch (Exception e) {
+                throw new JpaException("Could not create movie." + e.getMessage() + e.getCause());
+            }
+            return movieDTO;
+        });
+    }
 
-            // Attach managed genres to the movie to avoid transient object exceptions
-            List<Genre> managedGenres = new ArrayList<>();
-            for (Genre genre : movie.getGenres()) {
-                Genre managedGenre = em.find(Genre.class, genre.getId());
-                if (managedGenre != null) {
-                    managedGenres.add(managedGenre);
+    /**
+     * Creates several movies in a single transaction, so a batch costs one commit instead of one per movie.
+     * Genres and people are stored first and attached as references, like in {@link #create(MovieDTO)}.
+     *
+     * @param movieDTOs the movies to create.
+     * @return the same DTOs with their database ids set.
+     * @throws JpaException if any movie in the batch could not be created; the whole batch is then rolled back.
+     */
+    @Override
+    public List<MovieDTO> createAll(List<MovieDTO> movieDTOs) {
+        return Metrics.recordDao("MovieDAO", "createAll", () -> {
+            if (movieDTOs.isEmpty()) return movieDTOs;
+            storeNewPeople(movieDTOs);
+            List<Movie> movies = movieDTOs.stream().map(this::toEntity).toList();
+
+            try (var em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                attachManagedGenres(em, movies);
+                attachStoredPeople(em, movies);
+                movies.forEach(em::persist);
+                CatalogueChanges.publish(em, Movie.class);
+                em.getTransaction().commit();
+                CatalogueVersion.bump();
+
+                for (int i = 0; i < movies.size(); i++) {
+                    movieDTOs.get(i).setId(movies.get(i).getId());
                 }
+            } catch (Exception e) {
+                throw new JpaException("Could not create movies." + e.getMessage() + e.getCause());
             }
-            movie.setGenres(managedGenres);
+            return movieDTOs;
+        });
+    }
 
-            em.persist(movie);
-            em.getTransaction().commit();
+    /**
+     * Upserts the actors and directors without a database id that have a natural key, a TMDB person id or a name,
+     * and sets their ids on the DTOs. A movie then links the stored person instead of inserting it again, which the
+     * unique indexes on those keys would reject.
+     */
+    private void storeNewPeople(List<MovieDTO> movieDTOs) {
+        List<ActorDTO> actors = movieDTOs.stream()
+                .filter(movieDTO -> movieDTO.getCast() != null)
+                .flatMap(movieDTO -> movieDTO.getCast().stream())
+                .filter(actor -> actor.getId() == 0 && actor.getActorId() != 0)
+                .toList();
+        List<DirectorDTO> directors = movieDTOs.stream()
+                .filter(movieDTO -> movieDTO.getDirectors() != null)
+                .flatMap(movieDTO -> movieDTO.getDirectors().stream())
+                .filter(director -> director.getId() == 0 && director.getName() != null)
+                .toList();
+        if (!actors.isEmpty()) actorDAO.upsertAll(actors);
+        if (!directors.isEmpty()) directorDAO.upsertAll(directors);
+    }
 
-            movieDTO.setId(movie.getId());
-        } catch (EntityExistsException e) {
-            throw new JpaException("Movie already exists." + e.getMessage());
-        } catch (Exception e) {
-            throw new JpaException("Could not create movie." + e.getMessage() + e.getCause());
+    /**
+     * Replaces the actors and directors that already have a database id with references to their rows, so
+     * persisting a movie links them instead of cascading a persist to a detached entity. People without an id are
+     * left to the cascade and inserted with the movie.
+     */
+    private void attachStoredPeople(EntityManager em, List<Movie> movies) {
+        for (Movie movie : movies) {
+            if (movie.getCast().stream().anyMatch(actor -> actor.getId() != 0)) {
+                movie.setCast(movie.getCast().stream()
+                        .map(actor -> actor.getId() != 0 ? em.getReference(Actor.class, actor.getId()) : actor)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+            }
+            if (movie.getDirectors().stream().anyMatch(director -> director.getId() != 0)) {
+                movie.setDirectors(movie.getDirectors().stream()
+                        .map(director -> director.getId() != 0 ? em.getReference(Director.class, director.getId()) : director)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+            }
+        }
+    }
+
+    /**
+     * Replaces the transient genres of the movies with references to the stored genres of the same name. Genres
+     * that are not stored yet are added; one statement covers the whole batch.
+     */
+    private void attachManagedGenres(EntityManager em, List<Movie> movies) {
+        Set<String> names = movies.stream()
+                .flatMap(movie -> movie.getGenres().stream())
+                .map(Genre::getGenre)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (names.isEmpty()) return;
+
+        Map<String, Integer> genreIds = GenreDAO.storeGenres(em, names);
+        for (Movie movie : movies) {
+            movie.setGenres(movie.getGenres().stream()
+                    .filter(genre -> genreIds.containsKey(genre.getGenre()))
+                    .map(genre -> em.getReference(Genre.class, genreIds.get(genre.getGenre())))
+                    .collect(Collectors.toCollection(LinkedHashSet::new)));
         }
-        return movieDTO;
     }
 
 
     /**
-     * Deletes the given Movie entity from the database.
+     * Deletes the given Movie entity from the database, together with its cast, director and genre links.
      *
      * @param movieDTO the {@link MovieDTO} object to be deleted.
      * @throws JpaException if there is an error deleting the movie.
      */
     @Override
     public void delete(MovieDTO movieDTO) {
-        Movie movie = toEntity(movieDTO);
-
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.remove(movie);
-            em.getTransaction().commit();
+        Metrics.recordDao("MovieDAO", "delete", () -> {
+            deleteAllByIds(List.of(movieDTO.getId()));
+        });
+    }
 
-        } catch (Exception e) {
-            throw new JpaException("Could not delete movie" + e.getMessage());
-        }
+    /**
+     * Deletes the movies with the given ids and their join rows with set-based statements in one transaction,
+     * without loading a single movie.
+     *
+     * @param ids the database ids of the movies.
+     * @return the number of movies deleted.
+     * @throws JpaException if there is an error deleting the movies; nothing is deleted then.
+     */
+    @Override
+    public int deleteAllByIds(Collection<Integer> ids) {
+        return Metrics.recordDao("MovieDAO", "deleteAllByIds", () -> {
+            if (ids.isEmpty()) return 0;
+            try {
+                return BulkOperations.inTransaction(emf, Movie.class, em -> BulkOperations.deleteAllByIds(em, Movie.class, ids,
+                        "actors_movies.movie_id", "directors_movies.movie_id", "movie_genre.movie_id"));
+            } catch (Exception e) {
+                throw new JpaException("Could not delete movies" + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -115,12 +260,14 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
     @Transactional
     @Override
     public MovieDTO getById(int id) {
-        try (var em = emf.createEntityManager()) {
-            Movie movie = em.find(Movie.class, id);
-            return movie != null ? toDTO(movie) : null;
-        } catch (Exception e) {
-            throw new JpaException("Could not find movie. " + e.getMessage());
-        }
+        return Metrics.recordDao("MovieDAO", "getById", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                Movie movie = em.find(Movie.class, id);
+                return movie != null ? toDTO(movie) : null;
+            } catch (Exception e) {
+                throw new JpaException("Could not find movie. " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -131,33 +278,196 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      */
     @Override
     public List<MovieDTO> getAll() {
-        try (var em = emf.createEntityManager()) {
-            List<Movie> movies = em.createQuery("SELECT m FROM Movie m", Movie.class).getResultList();
-            return movies.stream().map(this::toDTO).toList();
+        return Metrics.recordDao("MovieDAO", "getAll", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT m FROM Movie m", Movie.class).getResultList();
+                return toDTOs(movies);
 
-        } catch (Exception e) {
-            throw new JpaException("Could not get all movies." + e.getMessage());
-        }
+            } catch (Exception e) {
+                throw new JpaException("Could not get all movies." + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Retrieves all movies in their compact form. See {@link #toViews(Collection)}.
+     *
+     * @return a list of {@link MovieView}s of all movies in the database.
+     * @throws JpaException if there is an error retrieving the movies.
+     */
+    public List<MovieView> getAllViews() {
+        return Metrics.recordDao("MovieDAO", "getAllViews", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                return toViews(em.createQuery("SELECT m FROM Movie m", Movie.class).getResultList());
+            } catch (Exception e) {
+                throw new JpaException("Could not get all movies." + e.getMessage());
+            }
+        });
     }
 
     /**
-     * Updates the given Movie entity in the database.
+     * Updates the given Movie entity in the database. See {@link #updateAll(List)}.
      *
      * @param movieDTO the {@link MovieDTO} object containing updated movie data.
      * @throws JpaException if there is an error updating the movie.
      */
     @Override
     public void update(MovieDTO movieDTO) {
-        Movie movie = toEntity(movieDTO);
+        Metrics.recordDao("MovieDAO", "update", () -> {
+            updateAll(List.of(movieDTO));
+        });
+    }
+
+    /**
+     * Updates the given movies in one transaction.
+     *
+     * The stored movies are loaded with one query and changed in place instead of merged. Dirty tracking then
+     * writes only the columns that changed, batched by JDBC, and because the associations are sets, only the join
+     * rows of actors, directors and genres that were added or removed. Genres are left as they are when a DTO
+     * carries none, since {@link #toDTO(Movie)} does not fill them in.
+     *
+     * @param movieDTOs the movies with their database ids.
+     * @throws JpaException if a movie does not exist or cannot be updated; nothing is updated then.
+     */
+    @Override
+    public void updateAll(List<MovieDTO> movieDTOs) {
+        Metrics.recordDao("MovieDAO", "updateAll", () -> {
+            if (movieDTOs.isEmpty()) return;
+            storeNewPeople(movieDTOs);
+            List<Movie> changes = movieDTOs.stream().map(this::toEntity).toList();
+
+            try {
+                BulkOperations.inTransaction(emf, Movie.class, em -> {
+                    applyUpdates(em, changes);
+                    return null;
+                });
+            } catch (JpaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new JpaException("Could not update movie." + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Updates the movies that are already stored and creates the others, in one transaction. Movies are matched by
+     * TMDB id, the natural key of an imported movie, and by database id when they have no TMDB id.
+     *
+     * @param movieDTOs the movies to store.
+     * @return the same DTOs with their database ids set.
+     * @throws JpaException if any movie could not be stored; nothing is stored then.
+     */
+    @Override
+    public List<MovieDTO> upsertAll(List<MovieDTO> movieDTOs) {
+        return Metrics.recordDao("MovieDAO", "upsertAll", () -> {
+            if (movieDTOs.isEmpty()) return movieDTOs;
+            storeNewPeople(movieDTOs);
+            List<Movie> movies = movieDTOs.stream().map(this::toEntity).toList();
+
+            try {
+                BulkOperations.inTransaction(emf, Movie.class, em -> {
+                    Map<Integer, Integer> idsByTmdbId = findIdsByTmdbId(em,
+                            movies.stream().map(Movie::getTmdbId).filter(tmdbId -> tmdbId != 0).toList());
+                    List<Movie> updates = new ArrayList<>();
+                    List<Movie> inserts = new ArrayList<>();
+                    for (Movie movie : movies) {
+                        Integer storedId = idsByTmdbId.get(movie.getTmdbId());
+                        if (movie.getTmdbId() != 0 && storedId != null) {
+                            movie.setId(storedId);
+                        }
+                        (movie.getId() != 0 ? updates : inserts).add(movie);
+                    }
+                    applyUpdates(em, updates);
+                    attachManagedGenres(em, inserts);
+                    attachStoredPeople(em, inserts);
+                    inserts.forEach(em::persist);
+                    return null;
+                });
+            } catch (JpaException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new JpaException("Could not upsert movies." + e.getMessage());
+            }
 
-        try (var em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            em.merge(movie);
-            em.getTransaction().commit();
+            for (int i = 0; i < movies.size(); i++) {
+                movieDTOs.get(i).setId(movies.get(i).getId());
+            }
+            return movieDTOs;
+        });
+    }
 
-        } catch (Exception e) {
-            throw new JpaException("Could not update movie." + e.getMessage());
+    private Map<Integer, Integer> findIdsByTmdbId(EntityManager em, List<Integer> tmdbIds) {
+        Map<Integer, Integer> ids = new HashMap<>();
+        for (List<Integer> chunk : BulkOperations.chunks(tmdbIds)) {
+            em.createQuery("SELECT m.tmdbId, m.id FROM Movie m WHERE m.tmdbId IN :tmdbIds", Object[].class)
+                    .setParameter("tmdbIds", chunk)
+                    .getResultList()
+                    .forEach(row -> ids.putIfAbsent((Integer) row[0], (Integer) row[1]));
         }
+        return ids;
+    }
+
+    private void applyUpdates(EntityManager em, List<Movie> changes) {
+        if (changes.isEmpty()) return;
+        Map<Integer, Movie> movies = BulkOperations.findAllByIds(em, Movie.class, changes.stream().map(Movie::getId).toList(), Movie::getId);
+        attachManagedGenres(em, changes);
+
+        for (Movie changed : changes) {
+            Movie movie = movies.get(changed.getId());
+            if (movie == null) {
+                throw new JpaException("No movie with id " + changed.getId());
+            }
+            movie.setTmdbId(changed.getTmdbId());
+            movie.setOriginalTitle(changed.getOriginalTitle());
+            movie.setReleaseDate(changed.getReleaseDate());
+            movie.setVoteAverage(changed.getVoteAverage());
+
+            // Loaded first, so the people looked up below are already in the persistence context. The batch fetch
+            // size lets one initialization load the collections of the other movies of the batch as well.
+            Hibernate.initialize(movie.getCast());
+            Hibernate.initialize(movie.getDirectors());
+            replaceElements(movie.getCast(), changed.getCast().stream().map(actor -> managedActor(em, actor)).toList());
+            replaceElements(movie.getDirectors(), changed.getDirectors().stream().map(director -> managedDirector(em, director)).toList());
+            if (!changed.getGenres().isEmpty()) {
+                replaceElements(movie.getGenres(), changed.getGenres());
+                movie.setGenreMask(changed.getGenreMask());
+            }
+        }
+    }
+
+    // Removes and adds only the elements that differ, so the collection's snapshot diff stays minimal.
+    private static <T> void replaceElements(Set<T> current, Collection<T> desired) {
+        current.retainAll(desired);
+        current.addAll(desired);
+    }
+
+    private Actor managedActor(EntityManager em, Actor actor) {
+        if (actor.getId() == 0) {
+            em.persist(actor);
+            return actor;
+        }
+        Actor managed = em.find(Actor.class, actor.getId());
+        if (managed == null) {
+            throw new JpaException("No actor with id " + actor.getId());
+        }
+        managed.setActorId(actor.getActorId());
+        managed.setName(actor.getName());
+        managed.setGender(actor.getGender());
+        return managed;
+    }
+
+    private Director managedDirector(EntityManager em, Director director) {
+        if (director.getId() == 0) {
+            em.persist(director);
+            return director;
+        }
+        Director managed = em.find(Director.class, director.getId());
+        if (managed == null) {
+            throw new JpaException("No director with id " + director.getId());
+        }
+        managed.setName(director.getName());
+        managed.setGender(director.getGender());
+        return managed;
     }
 
     /**
@@ -167,15 +477,17 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      * @throws JpaException if there is an error retrieving the average rating.
      */
     public double getTotalAverageRating() {
-        try (var em = emf.createEntityManager()) {
-            Double averageRating = em.createQuery("SELECT AVG(m.voteAverage) FROM Movie m", Double.class)
-                    .getSingleResult();
+        return Metrics.recordDao("MovieDAO", "getTotalAverageRating", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                Double averageRating = em.createQuery("SELECT AVG(m.voteAverage) FROM Movie m", Double.class)
+                        .getSingleResult();
 
-            return averageRating != null ? averageRating : 0.0;
+                return averageRating != null ? averageRating : 0.0;
 
-        } catch (Exception e) {
-            throw new JpaException("Could not get total average rating." + e.getMessage());
-        }
+            } catch (Exception e) {
+                throw new JpaException("Could not get total average rating." + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -185,16 +497,18 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      * @throws JpaException if there is an error retrieving the movies.
      */
     public List<MovieDTO> getTop10LowestRatedMovies() {
-        try (var em = emf.createEntityManager()) {
-            List<Movie> movies = em.createQuery("SELECT m FROM Movie m ORDER BY m.voteAverage ASC", Movie.class)
-                    .setMaxResults(10)
-                    .getResultList();
+        return Metrics.recordDao("MovieDAO", "getTop10LowestRatedMovies", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT m FROM Movie m ORDER BY m.voteAverage ASC", Movie.class)
+                        .setMaxResults(10)
+                        .getResultList();
 
-            return movies.stream().map(this::toDTO).collect(Collectors.toList());
+                return toDTOs(movies);
 
-        } catch (Exception e) {
-            throw new JpaException("Could not get top-10 lowest rated movies." + e.getMessage());
-        }
+            } catch (Exception e) {
+                throw new JpaException("Could not get top-10 lowest rated movies." + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -204,16 +518,18 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      * @throws JpaException if there is an error retrieving the movies.
      */
     public List<MovieDTO> getTop10HighestRatedMovies() {
-        try (var em = emf.createEntityManager()) {
-            List<Movie> movies = em.createQuery("SELECT m FROM Movie m ORDER BY m.voteAverage DESC", Movie.class)
-                    .setMaxResults(10)
-                    .getResultList();
+        return Metrics.recordDao("MovieDAO", "getTop10HighestRatedMovies", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT m FROM Movie m ORDER BY m.voteAverage DESC", Movie.class)
+                        .setMaxResults(10)
+                        .getResultList();
 
-            return movies.stream().map(this::toDTO).collect(Collectors.toList());
+                return toDTOs(movies);
 
-        } catch (Exception e) {
-            throw new JpaException("Could not get top-10 highest rated movies." + e.getMessage());
-        }
+            } catch (Exception e) {
+                throw new JpaException("Could not get top-10 highest rated movies." + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -224,63 +540,207 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      * @throws JpaException if there is an error retrieving the movies.
      */
     public List<MovieDTO> getMoviesByTitle(String title) {
-        try (var em = emf.createEntityManager()) {
-            List<Movie> movies = em.createQuery("SELECT m FROM Movie m WHERE m.originalTitle = :title", Movie.class)
-                    .setParameter("title", title)
-                    .getResultList();
-            return movies.stream().map(this::toDTO).collect(Collectors.toList());
-        } catch (Exception e) {
-            throw new JpaException("Could not get movies by title.");
-        }
+        return Metrics.recordDao("MovieDAO", "getMoviesByTitle", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT m FROM Movie m WHERE m.originalTitle = :title", Movie.class)
+                        .setParameter("title", title)
+                        .getResultList();
+                return toDTOs(movies);
+            } catch (Exception e) {
+                throw new JpaException("Could not get movies by title.");
+            }
+        });
     }
 
     /**
-     * Converts a MovieDTO to a Movie entity.
+     * Retrieves one page of movies ordered by the given sort order. Ties are broken by id so that
+     * consecutive pages never overlap or skip rows.
      *
-     * @param dto the {@link MovieDTO} object to convert.
-     * @return the converted {@link Movie} entity.
+     * @param sortOrder the {@link MovieSortOrder} to order by.
+     * @param page      the 1-based page number.
+     * @param size      the maximum number of movies on a page.
+     * @return a list of MovieDTOs on the requested page.
+     * @throws JpaException if there is an error retrieving the movies.
      */
-    @Override
-    public Movie toEntity(MovieDTO dto) {
-        if (dto == null) return null;
-        Movie movie = new Movie();
+    public List<MovieDTO> getAllSorted(MovieSortOrder sortOrder, int page, int size) {
+        return Metrics.recordDao("MovieDAO", "getAllSorted", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT m FROM Movie m ORDER BY " + sortOrder.getJpqlPath() + ", m.id", Movie.class)
+                        .setFirstResult((page - 1) * size)
+                        .setMaxResults(size)
+                        .getResultList();
+                return toDTOs(movies);
+            } catch (Exception e) {
+                throw new JpaException("Could not get sorted movies." + e.getMessage());
+            }
+        });
+    }
 
-        movie.setOriginalTitle(dto.getOriginalTitle());
-        movie.setReleaseDate(dto.getReleaseDate());
-        movie.setVoteAverage(dto.getVoteAverage());
+    /**
+     * Retrieves one page of movies in their compact form, ordered as {@link #getAllSorted} orders them.
+     *
+     * @return a list of {@link MovieView}s on the requested page.
+     * @throws JpaException if there is an error retrieving the movies.
+     */
+    public List<MovieView> getAllSortedViews(MovieSortOrder sortOrder, int page, int size) {
+        return Metrics.recordDao("MovieDAO", "getAllSortedViews", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                return toViews(em.createQuery("SELECT m FROM Movie m ORDER BY " + sortOrder.getJpqlPath() + ", m.id", Movie.class)
+                        .setFirstResult((page - 1) * size)
+                        .setMaxResults(size)
+                        .getResultList());
+            } catch (Exception e) {
+                throw new JpaException("Could not get sorted movies." + e.getMessage());
+            }
+        });
+    }
 
-        if (dto.getId() != 0) {
-            movie.setId(dto.getId());
-        }
+    /**
+     * Retrieves all movies the given actor has been cast in.
+     *
+     * @param actorId the database id of the actor.
+     * @return a list of MovieDTOs featuring the actor.
+     * @throws JpaException if there is an error retrieving the movies.
+     */
+    public List<MovieDTO> getMoviesByActorId(int actorId) {
+        return Metrics.recordDao("MovieDAO", "getMoviesByActorId", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT DISTINCT m FROM Movie m JOIN m.cast a WHERE a.id = :actorId", Movie.class)
+                        .setParameter("actorId", actorId)
+                        .getResultList();
+                return toDTOs(movies);
+            } catch (Exception e) {
+                throw new JpaException("Could not get movies by actor." + e.getMessage());
+            }
+        });
+    }
 
-        // Set cast
-        if (dto.getCast() != null) {
-            List<Actor> actors = dto.getCast().stream()
-                    .map(actorDAO::toEntity)
-                    .collect(Collectors.toList());
-            movie.setCast(actors);
-        }
+    /**
+     * Retrieves all movies directed by the given director.
+     *
+     * @param directorId the database id of the director.
+     * @return a list of MovieDTOs directed by the director.
+     * @throws JpaException if there is an error retrieving the movies.
+     */
+    public List<MovieDTO> getMoviesByDirectorId(int directorId) {
+        return Metrics.recordDao("MovieDAO", "getMoviesByDirectorId", () -> {
+            try (var em = readEmf().createEntityManager()) {
+                List<Movie> movies = em.createQuery("SELECT DISTINCT m FROM Movie m JOIN m.directors d WHERE d.id = :directorId", Movie.class)
+                        .setParameter("directorId", directorId)
+                        .getResultList();
+                return toDTOs(movies);
+            } catch (Exception e) {
+                throw new JpaException("Could not get movies by director." + e.getMessage());
+            }
+        });
+    }
 
-        // Set director(s)
-        if (dto.getDirectors() != null) {
-            List<Director> directors = dto.getDirectors().stream()
-                    .map(directorDAO::toEntity)
-                    .collect(Collectors.toList());
-            movie.setDirectors(directors);
-        }
+    /**
+     * Retrieves one page of the movies that have any of the given genres, highest rated first. The genres are
+     * tested as bits of {@code genre_mask} on the movie row, so the query needs no join through {@code movie_genre}.
+     *
+     * @param genres the genres to match; a movie needs only one of them.
+     * @param page   the 1-based page number.
+     * @param size   the number of movies per page.
+     * @return a list of MovieDTOs with at least one of the genres.
+     * @throws JpaException if there is an error retrieving the movies.
+     */
+    public List<MovieDTO> getMoviesByGenres(Set<MovieGenre> genres, int page, int size) {
+        return Metrics.recordDao("MovieDAO", "getMoviesByGenres", () -> {
+            if (genres.isEmpty()) return List.of();
+            try (var em = readEmf().createEntityManager()) {
+                @SuppressWarnings("unchecked")
+                List<Movie> movies = em.createNativeQuery("SELECT * FROM movies WHERE genre_mask & :mask <> 0 " +
+                                "ORDER BY vote_average DESC, id", Movie.class)
+                        .setParameter("mask", MovieGenre.toMask(genres))
+                        .setFirstResult((page - 1) * size)
+                        .setMaxResults(size)
+                        .getResultList();
+                return toDTOs(movies);
+            } catch (Exception e) {
+                throw new JpaException("Could not get movies by genre." + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Finds which of the given TMDB ids are already in the database.
+     *
+     * @param tmdbIds the TMDB ids to look up.
+     * @return the subset of the ids that belong to stored movies.
+     * @throws JpaException if there is an error querying the movies.
+     */
+    public Set<Integer> findExistingTmdbIds(Collection<Integer> tmdbIds) {
+        return Metrics.recordDao("MovieDAO", "findExistingTmdbIds", () -> {
+            if (tmdbIds.isEmpty()) return Set.of();
+            try (var em = emf.createEntityManager()) {
+                return new HashSet<>(em.createQuery("SELECT m.tmdbId FROM Movie m WHERE m.tmdbId IN :tmdbIds", Integer.class)
+                        .setParameter("tmdbIds", tmdbIds)
+                        .getResultList());
+            } catch (Exception e) {
+                throw new JpaException("Could not look up existing movies." + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sets the vote average of the stored movies with the given TMDB ids, in one statement that joins the movies
+     * with the new ratings passed as two arrays. Rows whose rating did not change are not written, and TMDB ids
+     * that are not in the database are ignored.
+     *
+     * @param voteAveragesByTmdbId the new vote averages, keyed by TMDB id.
+     * @return the number of movies whose vote average changed.
+     * @throws JpaException if the ratings could not be updated.
+     */
+    public int updateVoteAverages(Map<Integer, Double> voteAveragesByTmdbId) {
+        return Metrics.recordDao("MovieDAO", "updateVoteAverages", () -> {
+            if (voteAveragesByTmdbId.isEmpty()) return 0;
+            Integer[] tmdbIds = voteAveragesByTmdbId.keySet().toArray(Integer[]::new);
+            Double[] voteAverages = Arrays.stream(tmdbIds).map(voteAveragesByTmdbId::get).toArray(Double[]::new);
+
+            try {
+                return BulkOperations.inTransaction(emf, Movie.class, em -> em.unwrap(Session.class).doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "UPDATE movies m SET vote_average = r.vote_average "
+                                    + "FROM unnest(?, ?) AS r(tmdb_id, vote_average) "
+                                    + "WHERE m.tmdb_id = r.tmdb_id AND m.vote_average <> r.vote_average")) {
+                        statement.setArray(1, connection.createArrayOf("integer", tmdbIds));
+                        statement.setArray(2, connection.createArrayOf("float8", voteAverages));
+                        return statement.executeUpdate();
+                    }
+                }));
+            } catch (Exception e) {
+                throw new JpaException("Could not update vote averages." + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Converts a MovieDTO to a Movie entity. The generated mapper copies the fields, cast and directors; the
+     * genres and the genre mask are derived here from the TMDB genre ids.
+     *
+     * @param dto the {@link MovieDTO} object to convert.
+     * @return the converted {@link Movie} entity.
+     */
+    @Override
+    public Movie toEntity(MovieDTO dto) {
+        Movie movie = CatalogueMapper.INSTANCE.toEntity(dto);
+        if (movie == null) return null;
 
-        // Set genres. Using a normal loop for readability, due to conversion from Integer to an object.
         if (dto.getGenres() != null && !dto.getGenres().isEmpty()) {
-            List<Genre> genres = new ArrayList<>();
-            GenreDAO genreDAO = new GenreDAO(emf);
+            Set<Genre> genres = newLinkedHashSet(dto.getGenres().size());
+            EnumSet<MovieGenre> genreMask = EnumSet.noneOf(MovieGenre.class);
 
             for (Integer genreDTO : dto.getGenres()) {
+                MovieGenre movieGenre = MovieGenre.ofTmdbId(genreDTO);
                 Genre genre = new Genre();
-                genre.setGenre(genreDAO.getGenreNameById(genreDTO));
+                genre.setGenre(movieGenre.name());
                 genres.add(genre);
+                genreMask.add(movieGenre);
             }
 
             movie.setGenres(genres);
+            movie.setGenreMask(genreMask);
         }
 
         return movie;
@@ -294,34 +754,50 @@ public class MovieDAO implements GenericDAO<MovieDTO, Movie> {
      */
     @Override
     public MovieDTO toDTO(Movie movie) {
-        if (movie == null) return null;
+        return CatalogueMapper.INSTANCE.toDTO(movie);
+    }
 
-        MovieDTO dto = new MovieDTO();
-        if (movie.getId() != 0) {
-            dto.setId(movie.getId());
-        }
+    // Sized so that adding the expected elements never rehashes.
+    private static <T> Set<T> newLinkedHashSet(int expectedSize) {
+        return new LinkedHashSet<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
 
-        dto.setOriginalTitle(movie.getOriginalTitle());
-        dto.setReleaseDate(movie.getReleaseDate());
-        dto.setVoteAverage(movie.getVoteAverage());
 
-        // Set cast
-        if (movie.getCast() != null) {
-            List<ActorDTO> actors = movie.getCast().stream()
-                    .map(actorDAO::toDTO)
-                    .collect(Collectors.toList());
-            dto.setCast(actors);
+    /**
+     * Converts movies to their compact, immutable form for large listings. Each actor and director becomes one
+     * {@link PersonRef} shared by all the given movies they appear in, rather than a DTO per appearance. Must be
+     * called while the entity manager that loaded the movies is open.
+     *
+     * @param movies the {@link Movie} entities to convert.
+     * @return the {@link MovieView}s, in the order of the movies.
+     */
+    public List<MovieView> toViews(Collection<Movie> movies) {
+        Map<Integer, PersonRef> actors = new HashMap<>();
+        Map<Integer, PersonRef> directors = new HashMap<>();
+        List<MovieView> views = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            views.add(new MovieView(
+                    movie.getId(),
+                    movie.getTmdbId(),
+                    movie.getOriginalTitle(),
+                    movie.getReleaseDate(),
+                    movie.getVoteAverage(),
+                    MovieGenre.tmdbIdsOf(MovieGenre.toMask(movie.getGenreMask())),
+                    refs(movie.getCast(), actors, Actor::getId, actor -> new PersonRef(actor.getId(), actor.getActorId(), actor.getName())),
+                    refs(movie.getDirectors(), directors, Director::getId, director -> new PersonRef(director.getId(), 0, director.getName()))));
         }
+        return views;
+    }
 
-        //Set directors
-        if (movie.getDirectors() != null) {
-            List<DirectorDTO> directors = movie.getDirectors().stream()
-                    .map(directorDAO::toDTO)
-                    .collect(Collectors.toList());
-            dto.setDirectors(directors);
+    // Exactly sized and immutable; every movie without people shares List.of().
+    private static <P> List<PersonRef> refs(Collection<P> people, Map<Integer, PersonRef> interned,
+                                            Function<P, Integer> id, Function<P, PersonRef> ref) {
+        if (people == null || people.isEmpty()) return List.of();
+        PersonRef[] refs = new PersonRef[people.size()];
+        int i = 0;
+        for (P person : people) {
+            refs[i++] = interned.computeIfAbsent(id.apply(person), key -> ref.apply(person));
         }
-
-        return dto;
+        return List.of(refs);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,192 @@
+package app.persistence.daos;
+
+import app.entities.Movie;
+import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.ReadRouting;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Exports the catalogue, movies, actors, directors, genres and the links between them, to a compact binary snapshot,
+ * and restores a catalogue from one. A snapshot warms an empty database in seconds where an import takes the
+ * TMDB rate limit's time, and is small enough to check in as a test fixture. See {@link SnapshotWriter} for the
+ * format.
+ */
+public class SnapshotDAO {
+    private static final int FETCH_SIZE = 10_000;
+
+    private final EntityManagerFactory emf;
+    private final EntityManagerFactory replicaEmf;
+
+    public SnapshotDAO(EntityManagerFactory emf) {
+        this(emf, emf);
+    }
+
+    /**
+     * @param emf        the primary, which restores go to
+     * @param replicaEmf the replica that exports read from, unless {@link ReadRouting#readYourWrites} sends them to
+     *                   the primary
+     */
+    public SnapshotDAO(EntityManagerFactory emf, EntityManagerFactory replicaEmf) {
+        this.emf = emf;
+        this.replicaEmf = replicaEmf;
+    }
+
+    /**
+     * Writes a snapshot of the catalogue to the file. The file is written next to its destination first and then
+     * moved into place, so an interrupted export never leaves a partial snapshot behind.
+     *
+     * @return the number of rows exported per table
+     * @throws JpaException if the catalogue could not be read or the file could not be written
+     */
+    public Map<String, Long> export(Path path) {
+        try {
+            Path partial = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".partial");
+            try {
+                Map<String, Long> rows;
+                try (OutputStream out = Files.newOutputStream(partial)) {
+                    rows = export(out);
+                }
+                Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return rows;
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        } catch (IOException e) {
+            throw new JpaException("Could not write snapshot. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot of the catalogue to the stream, reading every table in one repeatable-read transaction so
+     * the links always match the rows they reference. Rows are streamed with a cursor; memory use does not grow with
+     * the catalogue.
+     *
+     * @return the number of rows exported per table
+     * @throws JpaException if the catalogue could not be read or the stream could not be written
+     */
+    public Map<String, Long> export(OutputStream out) {
+        return Metrics.recordDao("SnapshotDAO", "export", () -> {
+            Map<String, Long> rows = new LinkedHashMap<>();
+            try (var em = ReadRouting.forReads(emf, replicaEmf).createEntityManager()) {
+                em.getTransaction().begin();
+                try {
+                    em.unwrap(Session.class).doWork(connection -> {
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                        }
+                        try (SnapshotWriter writer = new SnapshotWriter(out)) {
+                            for (SnapshotTable table : SnapshotTable.values()) {
+                                rows.put(table.tableName(), exportTable(connection, table, writer));
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } finally {
+                    em.getTransaction().rollback();
+                }
+                return rows;
+            } catch (Exception e) {
+                throw new JpaException("Could not export snapshot. " + e.getMessage());
+            }
+        });
+    }
+
+    private static long exportTable(Connection connection, SnapshotTable table, SnapshotWriter writer) throws SQLException, IOException {
+        writer.beginTable(table);
+        try (PreparedStatement statement = connection.prepareStatement(table.selectSql())) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    for (int i = 0; i < table.columns().size(); i++) {
+                        switch (table.columns().get(i).type()) {
+                            case INT -> writer.writeInt(resultSet.getInt(i + 1));
+                            case DOUBLE -> writer.writeDouble(resultSet.getDouble(i + 1));
+                            case DATE -> writer.writeDate(resultSet.getObject(i + 1, LocalDate.class));
+                            case TEXT -> writer.writeText(resultSet.getString(i + 1));
+                        }
+                    }
+                }
+            }
+        }
+        return writer.endTable();
+    }
+
+    /**
+     * Replaces the catalogue with the snapshot in one transaction: the catalogue tables are truncated and every
+     * table is loaded with a binary {@code COPY} fed straight from the memory-mapped file. Rows keep the ids they
+     * were exported with, and the identity sequences are moved past them. Import jobs and leases are left as they
+     * are.
+     *
+     * @return the number of rows restored per table
+     * @throws JpaException if the file is not a snapshot of this version or could not be loaded; the catalogue is
+     *                      left unchanged then
+     */
+    public Map<String, Long> restore(Path path) {
+        return Metrics.recordDao("SnapshotDAO", "restore", () -> {
+            Map<String, Long> rows = new LinkedHashMap<>();
+            try (SnapshotReader reader = new SnapshotReader(path)) {
+                BulkOperations.inTransaction(emf, Movie.class, em -> {
+                    em.unwrap(Session.class).doWork(connection -> {
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("TRUNCATE " + Arrays.stream(SnapshotTable.values())
+                                    .map(SnapshotTable::tableName)
+                                    .collect(Collectors.joining(", ")));
+                        }
+                        for (SnapshotTable table : SnapshotTable.values()) {
+                            rows.put(table.tableName(), restoreTable(connection, table, reader));
+                        }
+                    });
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new JpaException("Could not restore snapshot. " + e.getMessage());
+            }
+            // Every cached entity may be gone; BulkOperations only evicted movies.
+            emf.getCache().evictAll();
+            return rows;
+        });
+    }
+
+    private static long restoreTable(Connection connection, SnapshotTable table, SnapshotReader reader) throws SQLException {
+        long restored;
+        try (PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), table.copySql())) {
+            try {
+                restored = reader.copyTable(table, copy);
+            } catch (IOException e) {
+                copy.cancelCopy();
+                throw new SQLException("Could not copy " + table.tableName() + ": " + e.getMessage(), e);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not copy " + table.tableName() + ": " + e.getMessage(), e);
+        }
+        if (table.hasIdentity()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table.tableName() + "', 'id'), "
+                        + "COALESCE(MAX(id), 0) + 1, false) FROM " + table.tableName());
+            }
+        }
+        return restored;
+    }
+}
@@ -0,0 +1,168 @@
+package app.persistence.daos;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter} from a memory-mapped file and turns each table into the input
+ * of PostgreSQL's binary {@code COPY}. Values go from the mapping to the copy stream without being decoded into
+ * Java objects; text is copied as the UTF-8 bytes it is stored as.
+ */
+final class SnapshotReader implements AutoCloseable {
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    // PostgreSQL counts dates from 2000-01-01, Java from 1970-01-01.
+    private static final int POSTGRES_EPOCH_DAY = 10_957;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private int nextTable;
+
+    /**
+     * Maps the file and checks its header.
+     *
+     * @throws IOException if it is not a snapshot, or one of another version
+     */
+    SnapshotReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " is larger than the 2 GB a single mapping can hold");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException(path + " is not a catalogue snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IOException("Snapshot version " + version + " is not supported; expected " + SnapshotWriter.VERSION);
+            }
+            if (buffer.getInt() != SnapshotTable.values().length) {
+                throw new IOException("Snapshot " + path + " does not hold the tables of version " + version);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the rows of the next table to {@code copy} in the binary {@code COPY} format, which must be read with
+     * {@link SnapshotTable#copySql()}.
+     *
+     * @param expected the table the snapshot must hold next
+     * @return the number of rows written
+     * @throws IOException if the snapshot does not hold the table next, or is truncated or corrupt
+     */
+    long copyTable(SnapshotTable expected, OutputStream copy) throws IOException {
+        if (expected.ordinal() != nextTable) {
+            throw new IllegalStateException("Expected table " + SnapshotTable.values()[nextTable] + ", got " + expected);
+        }
+        try {
+            checkTableHeader(expected);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(copy, 1 << 16));
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+            long tableRows = 0;
+            int rows;
+            while ((rows = buffer.getInt()) != 0) {
+                copyBlock(expected, rows, out);
+                tableRows += rows;
+            }
+            out.writeShort(-1);
+            out.flush();
+            nextTable++;
+            return tableRows;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot is truncated or corrupt in table " + expected.tableName(), e);
+        }
+    }
+
+    private void checkTableHeader(SnapshotTable expected) throws IOException {
+        boolean matches = readUTF().equals(expected.tableName()) && buffer.get() == expected.columns().size();
+        for (int i = 0; matches && i < expected.columns().size(); i++) {
+            SnapshotTable.Column column = expected.columns().get(i);
+            matches = readUTF().equals(column.name()) && buffer.get() == column.type().ordinal();
+        }
+        if (!matches) {
+            throw new IOException("Snapshot does not hold table " + expected.tableName() + " where expected");
+        }
+    }
+
+    // The columns of a block lie one after the other; each is read through a cursor of its own.
+    private void copyBlock(SnapshotTable table, int rows, DataOutputStream out) throws IOException {
+        int columnCount = table.columns().size();
+        SnapshotTable.Type[] types = new SnapshotTable.Type[columnCount];
+        int[] cursors = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            types[i] = table.columns().get(i).type();
+            int length = buffer.getInt();
+            int width = types[i] == SnapshotTable.Type.DOUBLE ? 8 : 4;
+            if (length < 0 || (types[i] != SnapshotTable.Type.TEXT && length != rows * width)) {
+                throw new IOException("Column " + table.columns().get(i).name() + " has a bad length");
+            }
+            cursors[i] = buffer.position();
+            buffer.position(buffer.position() + length);
+        }
+        byte[] text = new byte[256];
+        for (int row = 0; row < rows; row++) {
+            out.writeShort(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                int at = cursors[i];
+                switch (types[i]) {
+                    case INT -> {
+                        out.writeInt(4);
+                        out.writeInt(buffer.getInt(at));
+                        cursors[i] = at + 4;
+                    }
+                    case DOUBLE -> {
+                        out.writeInt(8);
+                        out.writeLong(buffer.getLong(at));
+                        cursors[i] = at + 8;
+                    }
+                    case DATE -> {
+                        int epochDay = buffer.getInt(at);
+                        if (epochDay == Integer.MIN_VALUE) {
+                            out.writeInt(-1);
+                        } else {
+                            out.writeInt(4);
+                            out.writeInt(epochDay - POSTGRES_EPOCH_DAY);
+                        }
+                        cursors[i] = at + 4;
+                    }
+                    case TEXT -> {
+                        int length = buffer.getInt(at);
+                        out.writeInt(length);
+                        if (length > 0) {
+                            if (length > text.length) text = new byte[Math.max(length, text.length * 2)];
+                            buffer.get(at + 4, text, 0, length);
+                            out.write(text, 0, length);
+                        }
+                        cursors[i] = at + 4 + Math.max(length, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    // The modified UTF-8 of DataOutput.writeUTF, which equals UTF-8 for the ASCII names written with it.
+    private String readUTF() {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,70 @@
+package app.persistence.daos;
+
+import java.util.List;
+
+/**
+ * The tables of a catalogue snapshot, in the order they are written and restored: every table comes after the
+ * tables its foreign keys reference. Changing a table's columns changes the snapshot format, so
+ * {@link SnapshotWriter#VERSION} must be raised with it.
+ */
+enum SnapshotTable {
+    GENRES("genres", true, column("id", Type.INT), column("genre", Type.TEXT)),
+    ACTORS("actors", true, column("id", Type.INT), column("actor_id", Type.INT), column("name", Type.TEXT), column("gender", Type.INT)),
+    DIRECTORS("directors", true, column("id", Type.INT), column("name", Type.TEXT), column("gender", Type.INT)),
+    MOVIES("movies", true, column("id", Type.INT), column("tmdb_id", Type.INT), column("original_title", Type.TEXT),
+            column("release_date", Type.DATE), column("vote_average", Type.DOUBLE), column("genre_mask", Type.INT)),
+    ACTORS_MOVIES("actors_movies", false, column("movie_id", Type.INT), column("actor_id", Type.INT)),
+    DIRECTORS_MOVIES("directors_movies", false, column("movie_id", Type.INT), column("director_id", Type.INT)),
+    MOVIE_GENRE("movie_genre", false, column("movie_id", Type.INT), column("genre_id", Type.INT));
+
+    /**
+     * How a column is stored in a block: INT, DOUBLE and DATE as fixed-width big-endian values, DATE as its epoch
+     * day with {@link Integer#MIN_VALUE} for null, and TEXT as a length, -1 for null, followed by UTF-8 bytes.
+     */
+    enum Type {INT, DOUBLE, DATE, TEXT}
+
+    record Column(String name, Type type) {
+    }
+
+    private final String tableName;
+    private final boolean identity;
+    private final List<Column> columns;
+
+    SnapshotTable(String tableName, boolean identity, Column... columns) {
+        this.tableName = tableName;
+        this.identity = identity;
+        this.columns = List.of(columns);
+    }
+
+    private static Column column(String name, Type type) {
+        return new Column(name, type);
+    }
+
+    String tableName() {
+        return tableName;
+    }
+
+    /**
+     * @return whether the first column is an identity, whose sequence must be moved past the restored ids
+     */
+    boolean hasIdentity() {
+        return identity;
+    }
+
+    List<Column> columns() {
+        return columns;
+    }
+
+    String columnList() {
+        return String.join(", ", columns.stream().map(Column::name).toList());
+    }
+
+    // By id, or by both ends of a link, so the same catalogue always gives the same file.
+    String selectSql() {
+        return "SELECT " + columnList() + " FROM " + tableName + (identity ? " ORDER BY 1" : " ORDER BY 1, 2");
+    }
+
+    String copySql() {
+        return "COPY " + tableName + " (" + columnList() + ") FROM STDIN (FORMAT binary)";
+    }
+}
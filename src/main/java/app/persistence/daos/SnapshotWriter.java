@@ -0,0 +1,142 @@
+package app.persistence.daos;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes a catalogue snapshot as it is streamed, holding at most one block of rows in memory.
+ *
+ * A snapshot is a header, {@link #MAGIC}, {@link #VERSION} and the number of tables, followed by every
+ * {@link SnapshotTable} in order. A table starts with its name and its columns' names and types, followed by blocks
+ * of up to {@link #BLOCK_ROWS} rows and a row count of 0. A block is its row count followed by each column as its
+ * length in bytes and its values; see {@link SnapshotTable.Type} for how values are stored. All numbers are
+ * big-endian.
+ */
+final class SnapshotWriter implements AutoCloseable {
+    static final int MAGIC = 0x4D434154; // "MCAT"
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 65_536;
+
+    private final DataOutputStream out;
+    private SnapshotTable table;
+    private ByteArrayOutputStream[] columnBytes;
+    private DataOutputStream[] columns;
+    private int column;
+    private int rows;
+    private long tableRows;
+    private int nextTable;
+
+    SnapshotWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.out.writeInt(SnapshotTable.values().length);
+    }
+
+    /**
+     * Starts the rows of the next table; tables must be written in {@link SnapshotTable} order.
+     */
+    void beginTable(SnapshotTable next) throws IOException {
+        if (table != null || next.ordinal() != nextTable) {
+            throw new IllegalStateException("Expected table " + SnapshotTable.values()[nextTable] + ", got " + next);
+        }
+        table = next;
+        tableRows = 0;
+        out.writeUTF(next.tableName());
+        out.writeByte(next.columns().size());
+        for (SnapshotTable.Column tableColumn : next.columns()) {
+            out.writeUTF(tableColumn.name());
+            out.writeByte(tableColumn.type().ordinal());
+        }
+        columnBytes = new ByteArrayOutputStream[next.columns().size()];
+        columns = new DataOutputStream[columnBytes.length];
+        for (int i = 0; i < columnBytes.length; i++) {
+            columnBytes[i] = new ByteArrayOutputStream();
+            columns[i] = new DataOutputStream(columnBytes[i]);
+        }
+    }
+
+    void writeInt(int value) throws IOException {
+        current(SnapshotTable.Type.INT).writeInt(value);
+        advance();
+    }
+
+    void writeDouble(double value) throws IOException {
+        current(SnapshotTable.Type.DOUBLE).writeDouble(value);
+        advance();
+    }
+
+    void writeDate(LocalDate value) throws IOException {
+        current(SnapshotTable.Type.DATE).writeInt(value == null ? Integer.MIN_VALUE : Math.toIntExact(value.toEpochDay()));
+        advance();
+    }
+
+    void writeText(String value) throws IOException {
+        DataOutputStream target = current(SnapshotTable.Type.TEXT);
+        if (value == null) {
+            target.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            target.writeInt(bytes.length);
+            target.write(bytes);
+        }
+        advance();
+    }
+
+    // Values are written column by column in table order.
+    private DataOutputStream current(SnapshotTable.Type type) {
+        if (table == null) throw new IllegalStateException("No table begun");
+        SnapshotTable.Type expected = table.columns().get(column).type();
+        if (type != expected) {
+            throw new IllegalStateException(table.columns().get(column).name() + " is " + expected + ", not " + type);
+        }
+        return columns[column];
+    }
+
+    // The last value of a row ends it.
+    private void advance() throws IOException {
+        if (++column < columns.length) return;
+        column = 0;
+        rows++;
+        tableRows++;
+        if (rows == BLOCK_ROWS) flushBlock();
+    }
+
+    /**
+     * Ends the current table.
+     *
+     * @return the number of rows written for it
+     */
+    long endTable() throws IOException {
+        if (column != 0) throw new IllegalStateException("Row of " + table + " is incomplete");
+        flushBlock();
+        out.writeInt(0);
+        table = null;
+        nextTable++;
+        return tableRows;
+    }
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) return;
+        out.writeInt(rows);
+        for (ByteArrayOutputStream bytes : columnBytes) {
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            bytes.reset();
+        }
+        rows = 0;
+    }
+
+    /**
+     * Flushes and closes the stream. A snapshot closed before its last table ended is rejected when read.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,189 @@
+package app.persistence.daos;
+
+import app.metrics.Metrics;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind front of a {@link GenericDAO} for many small concurrent writes. {@link #create} and {@link #update}
+ * queue the write and return at once with a future; a single flusher thread gathers queued writes into batches of
+ * up to {@code maxBatchSize}, waiting at most {@code maxDelay} after the first one, and commits each run of creates
+ * with {@link GenericDAO#createAll} and each run of updates with {@link GenericDAO#updateAll}. Many writers then
+ * share one transaction, and one commit, instead of paying for one each.
+ *
+ * If a batch fails, its writes are retried one by one, so only the writes that fail on their own complete
+ * exceptionally and the others still succeed. Writes are applied in the order they were queued. The queue is
+ * bounded: when it is full, callers block until the flusher catches up.
+ *
+ * @param <T> the DTO type of the DAO
+ */
+public class WriteBehindBuffer<T> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private final GenericDAO<T, ?> dao;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Write<T>> queue;
+    private final Thread flusher;
+    private final Counter batches;
+    private final Counter writes;
+    private final Counter retried;
+    private volatile boolean closed;
+
+    /**
+     * @param name         names the flusher thread and tags the {@code writebehind.*} counters, e.g. {@code movies}
+     * @param dao          the DAO the batches are written through
+     * @param maxBatchSize the most writes committed together
+     * @param maxDelay     how long the first write of a batch may wait for others to join it
+     * @param capacity     the most writes queued before callers block
+     */
+    public WriteBehindBuffer(String name, GenericDAO<T, ?> dao, int maxBatchSize, Duration maxDelay, int capacity) {
+        this.dao = dao;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.batches = Metrics.counter("writebehind.batches", "name", name);
+        this.writes = Metrics.counter("writebehind.writes", "name", name);
+        this.retried = Metrics.counter("writebehind.retried", "name", name);
+        this.flusher = new Thread(this::flushLoop, "write-behind-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the creation of a row.
+     *
+     * @return completes with the DTO, its id set, once the batch holding it has committed
+     */
+    public CompletableFuture<T> create(T dto) {
+        return enqueue(new Write<>(Kind.CREATE, dto));
+    }
+
+    /**
+     * Queues an update of a row.
+     *
+     * @return completes with the DTO once the batch holding it has committed
+     */
+    public CompletableFuture<T> update(T dto) {
+        return enqueue(new Write<>(Kind.UPDATE, dto));
+    }
+
+    private CompletableFuture<T> enqueue(Write<T> write) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind buffer is closed");
+        }
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.result.completeExceptionally(e);
+        }
+        return write.result;
+    }
+
+    /**
+     * @return the number of writes waiting for a batch
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void flushLoop() {
+        List<Write<T>> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Write<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) break;
+                    Write<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        // Only reached early when interrupted; nothing may be left waiting forever.
+        Write<T> abandoned;
+        while ((abandoned = queue.poll()) != null) {
+            abandoned.result.completeExceptionally(new IllegalStateException("Write-behind buffer was stopped"));
+        }
+    }
+
+    // Consecutive writes of the same kind go out together; a create and a later update of it stay in order.
+    private void flush(List<Write<T>> batch) {
+        batches.increment();
+        writes.increment(batch.size());
+        int start = 0;
+        while (start < batch.size()) {
+            Kind kind = batch.get(start).kind;
+            int end = start + 1;
+            while (end < batch.size() && batch.get(end).kind == kind) end++;
+            flushRun(kind, batch.subList(start, end));
+            start = end;
+        }
+    }
+
+    private void flushRun(Kind kind, List<Write<T>> run) {
+        try {
+            List<T> dtos = run.stream().map(write -> write.dto).toList();
+            if (kind == Kind.CREATE) {
+                dao.createAll(dtos);
+            } else {
+                dao.updateAll(dtos);
+            }
+            run.forEach(write -> write.result.complete(write.dto));
+        } catch (RuntimeException e) {
+            if (run.size() == 1) {
+                run.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // The batch was rolled back as a whole; find the writes that fail on their own.
+            logger.warn("Write-behind batch of {} failed, retrying one by one: {}", run.size(), e.getMessage());
+            retried.increment(run.size());
+            for (Write<T> write : run) {
+                flushRun(kind, List.of(write));
+            }
+        }
+    }
+
+    /**
+     * Flushes what is queued, then stops the flusher. Writes queued before the call still complete; callers must
+     * have stopped queueing new ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private enum Kind {CREATE, UPDATE}
+
+    private record Write<T>(Kind kind, T dto, CompletableFuture<T> result) {
+        private Write(Kind kind, T dto) {
+            this(kind, dto, new CompletableFuture<>());
+        }
+    }
+}
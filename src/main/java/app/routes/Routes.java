@@ -0,0 +1,30 @@
+package app.routes;
+
+import app.controllers.MovieController;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.get;
+import static io.javalin.apibuilder.ApiBuilder.path;
+
+/**
+ * Declares the REST endpoints of the catalogue.
+ */
+public class Routes {
+    private final MovieController movieController;
+
+    public Routes(MovieController movieController) {
+        this.movieController = movieController;
+    }
+
+    public EndpointGroup getRoutes() {
+        return () -> path("movies", () -> {
+            get(movieController.getMovies());
+            get("search", movieController.searchByTitle());
+            get("top10", movieController.getTopTen());
+            get("bottom10", movieController.getBottomTen());
+            get("average-rating", movieController.getAverageRating());
+            get("actor/{id}", movieController.getByActor());
+            get("director/{id}", movieController.getByDirector());
+        });
+    }
+}
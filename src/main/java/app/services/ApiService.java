@@ -1,12 +1,18 @@
 package app.services;
 
+import app.cache.SingleFlight;
 import app.dtos.ActorDTO;
 import app.dtos.DirectorDTO;
 import app.dtos.MovieDTO;
 import app.exceptions.ApiException;
+import app.metrics.Metrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
@@ -16,21 +22,89 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class ApiService {
-    private static ApiService instance;
-    private static final String API_KEY = System.getenv("TMDB_API_KEY");
-    private static final ExecutorService executorService = Executors.newCachedThreadPool();
+public class ApiService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ApiService.class);
+    private static final String DEFAULT_BASE_URL = "https://api.themoviedb.org";
+    // One discover page holds 20 movies, so 20 workers fetch a page's credits in a single wave.
+    private static final int CREDIT_WORKERS = 20;
+    private static final int MAX_RETRIES = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+    private static final long SHUTDOWN_GRACE_MILLIS = 5_000;
 
+    private static final Timer pageTimer = Metrics.timer("tmdb.fetch.page");
+    private static final Timer creditsTimer = Metrics.timer("tmdb.fetch.credits");
+    private static final Counter retryCounter = Metrics.counter("tmdb.retries");
+    private static final AtomicInteger inFlightRequests = Metrics.registry().gauge("tmdb.requests.in_flight", new AtomicInteger());
+
+    private final String baseUrl;
+    private final String apiKey;
+    // Both are thread-safe; sharing them reuses connections and Jackson's deserializer caches across requests.
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ExecutorService executorService = Metrics.monitor(createCreditExecutor(), "tmdb-credits");
+    // Discover pages can shift while we page through them, so the same movie may be requested by two pages at once.
+    private final SingleFlight<Integer> creditFetches = new SingleFlight<>("tmdb-credits");
+
+    /**
+     * Creates an ApiService talking to the given TMDB-compatible server.
+     *
+     * @param baseUrl the scheme, host and port of the API, e.g. {@code https://api.themoviedb.org}
+     * @param apiKey  the API key appended to every request
+     */
+    public ApiService(String baseUrl, String apiKey) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Creates an ApiService configured from the environment. The base URL is read from {@code TMDB_BASE_URL} and
+     * defaults to the public TMDB API; the key is read from {@code TMDB_API_KEY}.
+     *
+     * @return a new ApiService
+     */
+    public static ApiService fromEnvironment() {
+        String baseUrl = System.getenv("TMDB_BASE_URL");
+        return new ApiService(baseUrl != null ? baseUrl : DEFAULT_BASE_URL, System.getenv("TMDB_API_KEY"));
+    }
+
+    /**
+     * Gets the shared ApiService, configured as by {@link #fromEnvironment()}.
+     *
+     * @return the shared ApiService
+     */
     public static ApiService getInstance() {
-        if (instance == null) {
-            instance = new ApiService();
+        return Holder.INSTANCE;
+    }
+
+    // The JVM initializes the holder class once, on first access, and publishes it safely to every thread.
+    private static class Holder {
+        private static final ApiService INSTANCE = fromEnvironment();
+    }
+
+    /**
+     * Stops the credit executor, waiting briefly for running fetches to finish.
+     */
+    @Override
+    public void close() {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(SHUTDOWN_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
         }
-        return instance;
     }
 
     /**
@@ -53,35 +127,21 @@ public class ApiService {
     }
 
     /**
-     * Fetches movies from a specific page using the provided ExecutorService.
+     * Fetches movies from a specific page, fetching the credits of its movies in parallel.
      *
      * @param page The page number to fetch movies from
      * @return List of MovieDTO objects from the page
      */
     private List<MovieDTO> fetchMoviesFromPage(int page) throws URISyntaxException, IOException, InterruptedException {
-        String API_URL = "https://api.themoviedb.org/3/discover/movie?api_key=" + API_KEY + "&with_original_language=da&primary_release_date.gte=2019-01-01&sort_by=primary_release_date.desc&page=";
-        HttpClient client = HttpClient.newHttpClient();
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
         List<MovieDTO> movies = new ArrayList<>();
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(new URI(API_URL + page))
-                .GET()
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200) {
-            System.err.println("Failed to fetch movies: " + response.body());
+        MovieResponse movieResponse = fetchDiscoverPage(page);
+        if (movieResponse == null) {
             return movies;
         }
 
-        MovieResponse movieResponse = objectMapper.readValue(response.body(), MovieResponse.class);
         List<Future<MovieDTO>> futures = new ArrayList<>();
-
         for (MovieDTO movie : movieResponse.getResults()) {
-            futures.add(executorService.submit(() -> createMovieDTO(movie, client, objectMapper)));
+            futures.add(executorService.submit(() -> fetchMovieWithCredits(movie)));
         }
 
         // Collect results from the Future objects
@@ -90,7 +150,7 @@ public class ApiService {
                 movies.add(future.get());
 
             } catch (ExecutionException | InterruptedException e) {
-                System.err.println("Error processing movie: " + e.getMessage());
+                logger.error("Error processing movie: {}", e.getMessage());
             }
         }
 
@@ -98,22 +158,68 @@ public class ApiService {
     }
 
     /**
-     * Creates a MovieDTO object and fetches additional cast and director information.
+     * Fetches a single discover page of the default {@link ImportSpec} without credits.
+     *
+     * @param page The page number to fetch
+     * @return the parsed page, or {@code null} if the API answered with an error
+     */
+    public MovieResponse fetchDiscoverPage(int page) throws URISyntaxException, IOException, InterruptedException {
+        return fetchDiscoverPage(ImportSpec.defaults(), page);
+    }
+
+    /**
+     * Fetches a single discover page of the given spec without credits.
+     *
+     * @param spec the language, region and release window to discover
+     * @param page The page number to fetch
+     * @return the parsed page, or {@code null} if the API answered with an error
+     */
+    public MovieResponse fetchDiscoverPage(ImportSpec spec, int page) throws URISyntaxException, IOException, InterruptedException {
+        Timer.Sample sample = Timer.start(Metrics.registry());
+        try {
+            String API_URL = baseUrl + "/3/discover/movie?api_key=" + apiKey + spec.discoverParameters() + "&sort_by=primary_release_date.desc&page=";
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(new URI(API_URL + page))
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = send(httpClient, request, "discover");
+
+            if (response.statusCode() != 200) {
+                logger.error("Failed to fetch movies: {}", response.body());
+                return null;
+            }
+            return objectMapper.readValue(response.body(), MovieResponse.class);
+        } finally {
+            sample.stop(pageTimer);
+        }
+    }
+
+    /**
+     * Creates a MovieDTO object from a discover result and fetches its cast and director information.
+     * Concurrent calls for the same TMDB id send one request and return the same MovieDTO.
      *
-     * @param movie The Movie entity to process
-     * @param client The HttpClient used for making API requests
-     * @param objectMapper The ObjectMapper for parsing JSON responses
+     * @param movie The discover result to process
      * @return The populated MovieDTO object
+     * @throws ApiException if the credits could not be fetched
      */
-    private MovieDTO createMovieDTO(MovieDTO movie, HttpClient client, ObjectMapper objectMapper) {
-        MovieDTO movieDTO = new MovieDTO();
-        movieDTO.setId(movie.getId());
-        movieDTO.setGenres(movie.getGenres());
-        movieDTO.setOriginalTitle(movie.getOriginalTitle());
-        movieDTO.setReleaseDate(movie.getReleaseDate());
-        movieDTO.setVoteAverage(movie.getVoteAverage());
-
-        fetchCastAndDirectorInfo(movie, movieDTO, client, objectMapper);
+    public MovieDTO fetchMovieWithCredits(MovieDTO movie) {
+        return creditFetches.execute(movie.getTmdbId(), () -> loadMovieWithCredits(movie));
+    }
+
+    private MovieDTO loadMovieWithCredits(MovieDTO movie) {
+        // A copy, so the discover result shared with other callers is not changed; the credits replace the lists.
+        MovieDTO movieDTO = MovieDTO.builder()
+                .tmdbId(movie.getTmdbId())
+                .originalTitle(movie.getOriginalTitle())
+                .releaseDate(movie.getReleaseDate())
+                .voteAverage(movie.getVoteAverage())
+                .cast(new ArrayList<>())
+                .directors(new ArrayList<>())
+                .genres(movie.getGenres())
+                .build();
+
+        fetchCastAndDirectorInfo(movie, movieDTO);
         return movieDTO;
     }
 
@@ -122,23 +228,30 @@ public class ApiService {
      *
      * @param movie The Movie entity being processed
      * @param movieDTO The MovieDTO to update with cast and director information
-     * @param client The HttpClient used for making API requests
-     * @param objectMapper The ObjectMapper for parsing JSON responses
      */
-    private void fetchCastAndDirectorInfo(MovieDTO movie, MovieDTO movieDTO, HttpClient client, ObjectMapper objectMapper) {
-        String CAST_URL_TEMPLATE = "https://api.themoviedb.org/3/movie/%d?api_key=" + API_KEY + "&language=en-US&append_to_response=credits";
+    private void fetchCastAndDirectorInfo(MovieDTO movie, MovieDTO movieDTO) {
+        Timer.Sample sample = Timer.start(Metrics.registry());
+        try {
+            fetchCredits(movie, movieDTO);
+        } finally {
+            sample.stop(creditsTimer);
+        }
+    }
+
+    private void fetchCredits(MovieDTO movie, MovieDTO movieDTO) {
+        String CAST_URL_TEMPLATE = baseUrl + "/3/movie/%d?api_key=" + apiKey + "&language=en-US&append_to_response=credits";
 
         try {
-            String castUrl = String.format(CAST_URL_TEMPLATE, movie.getId());
+            String castUrl = String.format(CAST_URL_TEMPLATE, movie.getTmdbId());
             HttpRequest castRequest = HttpRequest.newBuilder()
                     .uri(new URI(castUrl))
                     .GET()
                     .build();
 
-            HttpResponse<String> castResponse = client.send(castRequest, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> castResponse = send(httpClient, castRequest, "movie");
 
             if (castResponse.statusCode() != 200) {
-                System.err.println("Failed to fetch cast information: " + castResponse.body());
+                logger.error("Failed to fetch cast information: {}", castResponse.body());
                 return;
             }
 
@@ -146,7 +259,7 @@ public class ApiService {
             JsonNode creditsNode = rootNode.path("credits");
 
             if (creditsNode.isMissingNode()) {
-                System.err.println("Credits not found for movie ID: " + movie.getId());
+                logger.warn("Credits not found for movie ID: {}", movie.getTmdbId());
                 return;
             }
 
@@ -156,10 +269,71 @@ public class ApiService {
             movieDTO.setDirectors(directors);
 
         } catch (Exception e) {
-            throw new ApiException("Error fetching cast for movie ID: " + movie.getId());
+            throw new ApiException("Error fetching cast for movie ID: " + movie.getTmdbId());
         }
     }
 
+    /**
+     * Sends a request, retrying connection failures, rate limiting (429) and server errors (5xx) with
+     * exponential backoff. A {@code Retry-After} header from the server takes precedence over the backoff.
+     *
+     * @param client   the HttpClient to send with
+     * @param request  the request to send
+     * @param endpoint the endpoint name used to tag the metrics, e.g. {@code discover}
+     * @return the last response received
+     */
+    private HttpResponse<String> send(HttpClient client, HttpRequest request, String endpoint) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            HttpResponse<String> response;
+            Timer.Sample sample = Timer.start(Metrics.registry());
+            inFlightRequests.incrementAndGet();
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                Metrics.counter("tmdb.responses", "endpoint", endpoint, "status", "IO_ERROR").increment();
+                if (attempt >= MAX_RETRIES) throw e;
+                retryCounter.increment();
+                Thread.sleep(backoffMillis(attempt, null));
+                continue;
+            } finally {
+                inFlightRequests.decrementAndGet();
+                sample.stop(Metrics.timer("tmdb.requests", "endpoint", endpoint));
+            }
+
+            int status = response.statusCode();
+            Metrics.counter("tmdb.responses", "endpoint", endpoint, "status", String.valueOf(status)).increment();
+            if ((status == 429 || status >= 500) && attempt < MAX_RETRIES) {
+                retryCounter.increment();
+                Thread.sleep(backoffMillis(attempt, response));
+                continue;
+            }
+            return response;
+        }
+    }
+
+    private static long backoffMillis(int attempt, HttpResponse<String> response) {
+        if (response != null) {
+            Optional<String> retryAfter = response.headers().firstValue("Retry-After");
+            if (retryAfter.isPresent()) {
+                try {
+                    return Math.min(MAX_BACKOFF_MILLIS, Long.parseLong(retryAfter.get().trim()) * 1000);
+                } catch (NumberFormatException ignored) {
+                    // An HTTP-date; fall back to exponential backoff.
+                }
+            }
+        }
+        return Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << attempt);
+    }
+
+    private static ExecutorService createCreditExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(CREDIT_WORKERS, CREDIT_WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "tmdb-credits-" + threadCount.incrementAndGet()));
+        // Let idle workers die so a finished import does not keep the JVM alive.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /**
      * Extracts a list of actors from the credits JSON node.
      *
@@ -0,0 +1,480 @@
+package app.services;
+
+import app.dtos.MovieDTO;
+import app.entities.ImportJob;
+import app.enums.ImportJobStatus;
+import app.exceptions.ApiException;
+import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.GenreDAO;
+import app.persistence.daos.ImportJobDAO;
+import app.persistence.daos.MovieDAO;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Staged import from the API into the database:
+ * <pre>
+ *   fetch pages -> fetch credits -> deduplicate -> batch-persist
+ * </pre>
+ * The stages run concurrently and are connected by bounded queues. A full queue blocks the stage feeding it,
+ * so the number of movies held in memory is capped by the queue capacities regardless of how many pages are
+ * imported, and the run takes roughly as long as its slowest stage rather than the sum of all stages.
+ *
+ * Each stage passes one end-of-stream marker per downstream worker once its last worker has finished.
+ *
+ * A run imports one or more {@link ImportSpec}s at once. The page workers take the pages of the specs in turn, so
+ * every spec gets the same share of the request budget and a large spec cannot starve a small one. Movies that
+ * match several specs are imported once, and the people of all specs go through one {@link PersonIdentityMap},
+ * so an actor who appears in Danish and Swedish movies is stored once and linked from both.
+ *
+ * Runs are checkpointed in an {@link app.entities.ImportJob}: once every movie of a page has been committed or
+ * skipped, the page is recorded under its spec, and a later run of an unfinished job does not fetch it again.
+ * Movies already in the database are dropped before their credits are fetched, so a page interrupted half-way is
+ * only topped up.
+ */
+public class ImportPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ImportPipeline.class);
+    private static final ImportItem END_OF_STREAM = new ImportItem(null, new MovieDTO());
+    // How long a persist worker waits for more movies before committing a partial batch.
+    private static final long BATCH_LINGER_MILLIS = 100;
+    private static final Counter importedMovies = Metrics.counter("import.movies");
+
+    private final ApiService apiService;
+    private final MovieDAO movieDAO;
+    private final ActorDAO actorDAO;
+    private final DirectorDAO directorDAO;
+    private final GenreDAO genreDAO;
+    private final ImportJobDAO importJobDAO;
+    private final ImportSettings settings;
+
+    public ImportPipeline(ApiService apiService, MovieDAO movieDAO, ActorDAO actorDAO, DirectorDAO directorDAO, GenreDAO genreDAO,
+                          ImportJobDAO importJobDAO, ImportSettings settings) {
+        this.apiService = apiService;
+        this.movieDAO = movieDAO;
+        this.actorDAO = actorDAO;
+        this.directorDAO = directorDAO;
+        this.genreDAO = genreDAO;
+        this.importJobDAO = importJobDAO;
+        this.settings = settings;
+    }
+
+    /**
+     * Imports the given number of discover pages of the default {@link ImportSpec}. See {@link #run(List)}.
+     *
+     * @param numberOfPages the number of discover pages to import
+     * @return the counts of the run
+     * @throws JpaException if a stage failed unexpectedly or the calling thread was interrupted
+     */
+    public ImportResult run(int numberOfPages) {
+        return run(List.of(ImportSpec.builder().pages(numberOfPages).build()));
+    }
+
+    /**
+     * Imports the pages of every spec concurrently and blocks until every stage has finished. Resumes the last
+     * job that failed or was abandoned if there is one, skipping the pages it already checkpointed; see
+     * {@link ImportJobDAO#startOrResume(int)}.
+     *
+     * @param specs the slices of the catalogue to import; no two may have the same {@link ImportSpec#key()}
+     * @return the counts of the run, summed over the specs
+     * @throws JpaException if a stage failed unexpectedly or the calling thread was interrupted
+     */
+    public ImportResult run(List<ImportSpec> specs) {
+        if (specs.stream().map(ImportSpec::key).distinct().count() != specs.size()) {
+            throw new IllegalArgumentException("Import specs must differ in language, region or release window: " + specs);
+        }
+        return run(specs, importJobDAO.startOrResume(specs.stream().mapToInt(ImportSpec::getPages).sum()));
+    }
+
+    /**
+     * Imports the pages of every spec as part of the given job, skipping the pages it already checkpointed.
+     */
+    ImportResult run(List<ImportSpec> specs, ImportJob job) {
+        return run(specs, job, () -> false);
+    }
+
+    /**
+     * Like {@link #run(List, ImportJob)}, for a job this process may lose to another, such as a sharded import
+     * whose lease expired. Once {@code abandoned} is true no further page is fetched, no batch is persisted and
+     * nothing is checkpointed; the job is left as it is for the process that took it over.
+     */
+    ImportResult run(List<ImportSpec> specs, ImportJob job, BooleanSupplier abandoned) {
+        long start = System.nanoTime();
+        // Concurrent batches would otherwise race to insert the same new genre.
+        genreDAO.persistKnownGenres();
+
+        int pagesRequested = specs.stream().mapToInt(ImportSpec::getPages).sum();
+        Map<String, Set<Integer>> completedPages = importJobDAO.getCompletedPages(job.getId());
+        PageScheduler scheduler = new PageScheduler();
+        for (ImportSpec spec : specs) {
+            Set<Integer> completed = completedPages.getOrDefault(spec.key(), Set.of());
+            scheduler.add(spec, IntStream.rangeClosed(spec.getFirstPage(), spec.getLastPage())
+                    .filter(page -> !completed.contains(page))
+                    .boxed()
+                    .collect(Collectors.toCollection(ArrayDeque::new)));
+        }
+        int pagesSkipped = pagesRequested - scheduler.remaining();
+        if (pagesSkipped > 0) {
+            logger.info("Resuming import job {}, {} of {} pages already done", job.getId(), pagesSkipped, pagesRequested);
+        }
+
+        Run run = new Run(job.getId(), scheduler, abandoned);
+        try {
+            run.startStages();
+            run.awaitCompletion();
+        } catch (RuntimeException e) {
+            if (!abandoned.getAsBoolean()) importJobDAO.finish(job.getId(), ImportJobStatus.FAILED);
+            throw e;
+        }
+        boolean complete = run.pagesCheckpointed.get() + pagesSkipped == pagesRequested;
+        if (abandoned.getAsBoolean()) {
+            logger.warn("Abandoned import job {} to the process that took it over", job.getId());
+        } else {
+            importJobDAO.finish(job.getId(), complete ? ImportJobStatus.COMPLETED : ImportJobStatus.FAILED);
+        }
+
+        ImportResult result = new ImportResult(job.getId(), pagesSkipped, run.pagesFetched.get(), run.alreadyImported.get(),
+                run.moviesFetched.get(), run.duplicatesSkipped.get(), run.moviesPersisted.get(), run.failures.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("Import finished: {}", result);
+        return result;
+    }
+
+    /**
+     * A discover page of one spec.
+     */
+    private record PageRef(ImportSpec spec, int page) {
+    }
+
+    /**
+     * A movie on its way through the stages, tagged with the page it came from so the page can be checkpointed.
+     */
+    private record ImportItem(PageRef page, MovieDTO movie) {
+    }
+
+    /**
+     * Hands out the pending pages of the specs round-robin: one page of each spec in turn, skipping specs that have
+     * no pages left. Shared by the page workers, which is why every method locks.
+     */
+    private static class PageScheduler {
+        private final Map<ImportSpec, Queue<Integer>> pendingPages = new LinkedHashMap<>();
+        private final Queue<ImportSpec> turns = new ArrayDeque<>();
+
+        synchronized void add(ImportSpec spec, Queue<Integer> pages) {
+            if (pages.isEmpty()) return;
+            pendingPages.put(spec, pages);
+            turns.add(spec);
+        }
+
+        /**
+         * @return the next page to fetch, or {@code null} when every spec is done
+         */
+        synchronized PageRef next() {
+            ImportSpec spec = turns.poll();
+            if (spec == null) return null;
+            Queue<Integer> pages = pendingPages.get(spec);
+            int page = pages.remove();
+            if (!pages.isEmpty()) {
+                turns.add(spec);
+            }
+            return new PageRef(spec, page);
+        }
+
+        synchronized int remaining() {
+            return pendingPages.values().stream().mapToInt(Queue::size).sum();
+        }
+    }
+
+    /**
+     * Tracks the movies of one page until each of them has been persisted, skipped or lost.
+     */
+    private static class PageProgress {
+        private int outstanding;
+        private int persisted;
+        private boolean failed;
+
+        PageProgress(int outstanding) {
+            this.outstanding = outstanding;
+        }
+    }
+
+    /**
+     * The queues, counters and workers of a single run.
+     */
+    private class Run {
+        private final int jobId;
+        private final PageScheduler scheduler;
+        private final BooleanSupplier abandoned;
+        private final PersonIdentityMap people = new PersonIdentityMap(actorDAO, directorDAO);
+        private final BlockingQueue<ImportItem> summaries = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        private final BlockingQueue<ImportItem> detailed = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        private final BlockingQueue<ImportItem> unique = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        private final Map<PageRef, PageProgress> pageProgress = new ConcurrentHashMap<>();
+
+        private final AtomicInteger pagesFetched = new AtomicInteger();
+        private final AtomicInteger pagesCheckpointed = new AtomicInteger();
+        private final AtomicInteger alreadyImported = new AtomicInteger();
+        private final AtomicInteger moviesFetched = new AtomicInteger();
+        private final AtomicInteger duplicatesSkipped = new AtomicInteger();
+        private final AtomicInteger moviesPersisted = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicReference<Throwable> fatalError = new AtomicReference<>();
+
+        private final ExecutorService executor;
+
+        Run(int jobId, PageScheduler scheduler, BooleanSupplier abandoned) {
+            this.jobId = jobId;
+            this.scheduler = scheduler;
+            this.abandoned = abandoned;
+            int threads = settings.getPageWorkers() + settings.getCreditWorkers() + 1 + settings.getPersistWorkers();
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "import-" + threadCount.incrementAndGet()));
+        }
+
+        void startStages() {
+            AtomicInteger pageWorkersLeft = new AtomicInteger(settings.getPageWorkers());
+            AtomicInteger creditWorkersLeft = new AtomicInteger(settings.getCreditWorkers());
+            AtomicInteger dedupeWorkersLeft = new AtomicInteger(1);
+            AtomicInteger persistWorkersLeft = new AtomicInteger(settings.getPersistWorkers());
+
+            for (int i = 0; i < settings.getPageWorkers(); i++) {
+                executor.execute(worker(this::fetchPages, pageWorkersLeft, summaries, settings.getCreditWorkers()));
+            }
+            for (int i = 0; i < settings.getCreditWorkers(); i++) {
+                executor.execute(worker(this::fetchCredits, creditWorkersLeft, detailed, 1));
+            }
+            executor.execute(worker(this::deduplicate, dedupeWorkersLeft, unique, settings.getPersistWorkers()));
+            for (int i = 0; i < settings.getPersistWorkers(); i++) {
+                executor.execute(worker(this::persistBatches, persistWorkersLeft, null, 0));
+            }
+            executor.shutdown();
+        }
+
+        void awaitCompletion() {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new JpaException("Import was interrupted.");
+            }
+            Throwable error = fatalError.get();
+            if (error != null) {
+                throw new JpaException("Import failed: " + error.getMessage());
+            }
+        }
+
+        private void fetchPages() throws InterruptedException {
+            PageRef page;
+            while (!abandoned.getAsBoolean() && (page = scheduler.next()) != null) {
+                MovieResponse response;
+                try {
+                    response = apiService.fetchDiscoverPage(page.spec(), page.page());
+                } catch (IOException | URISyntaxException e) {
+                    logger.error("Could not fetch page {} of {}: {}", page.page(), page.spec().key(), e.getMessage());
+                    response = null;
+                }
+                if (response == null || response.getResults() == null) {
+                    failures.incrementAndGet();
+                    continue;
+                }
+                pagesFetched.incrementAndGet();
+
+                Set<Integer> existing = movieDAO.findExistingTmdbIds(response.getResults().stream().map(MovieDTO::getTmdbId).toList());
+                List<MovieDTO> missing = response.getResults().stream().filter(movie -> !existing.contains(movie.getTmdbId())).toList();
+                alreadyImported.addAndGet(response.getResults().size() - missing.size());
+                if (missing.isEmpty()) {
+                    checkpoint(page, 0);
+                    continue;
+                }
+                // Registered before the first movie is queued, so no movie can be resolved against a missing entry.
+                pageProgress.put(page, new PageProgress(missing.size()));
+                for (MovieDTO movie : missing) {
+                    summaries.put(new ImportItem(page, movie));
+                }
+            }
+        }
+
+        private void fetchCredits() throws InterruptedException {
+            ImportItem summary;
+            while ((summary = summaries.take()) != END_OF_STREAM) {
+                try {
+                    detailed.put(new ImportItem(summary.page(), apiService.fetchMovieWithCredits(summary.movie())));
+                    moviesFetched.incrementAndGet();
+                } catch (ApiException e) {
+                    failures.incrementAndGet();
+                    resolve(summary.page(), false);
+                }
+            }
+        }
+
+        // Runs on a single worker, so the set needs no synchronization. People are deduplicated when persisting.
+        private void deduplicate() throws InterruptedException {
+            Set<Integer> seenMovies = new HashSet<>();
+
+            ImportItem item;
+            while ((item = detailed.take()) != END_OF_STREAM) {
+                MovieDTO movie = item.movie();
+                // Discover pages sorted by release date can shift while we page through them, and specs can overlap.
+                if (!seenMovies.add(movie.getTmdbId())) {
+                    duplicatesSkipped.incrementAndGet();
+                    // The earlier page owns the movie; this page only waits for its own.
+                    resolve(item.page(), true);
+                    continue;
+                }
+                unique.put(item);
+            }
+        }
+
+        private void persistBatches() throws InterruptedException {
+            List<ImportItem> batch = new ArrayList<>(settings.getBatchSize());
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                ImportItem first = unique.take();
+                if (first == END_OF_STREAM) break;
+                batch.add(first);
+
+                while (batch.size() < settings.getBatchSize()) {
+                    ImportItem next = unique.poll(BATCH_LINGER_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    if (next == END_OF_STREAM) {
+                        endOfStream = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+                persist(batch);
+                batch.clear();
+            }
+        }
+
+        // A failing batch is retried movie by movie, so one bad row does not cost the other movies of the batch.
+        private void persist(List<ImportItem> batch) {
+            if (abandoned.getAsBoolean()) {
+                // The pages stay unchecked; the process that took the job over imports them.
+                batch.forEach(item -> resolve(item.page(), false));
+                return;
+            }
+            try {
+                List<MovieDTO> movies = batch.stream().map(ImportItem::movie).toList();
+                people.resolve(movies);
+                movieDAO.createAll(movies);
+                moviesPersisted.addAndGet(batch.size());
+                importedMovies.increment(batch.size());
+                batch.forEach(item -> resolvePersisted(item.page()));
+            } catch (JpaException batchError) {
+                for (ImportItem item : batch) {
+                    try {
+                        people.resolve(List.of(item.movie()));
+                        movieDAO.create(item.movie());
+                        moviesPersisted.incrementAndGet();
+                        importedMovies.increment();
+                        resolvePersisted(item.page());
+                    } catch (JpaException e) {
+                        if (isStoredAlready(item.movie())) {
+                            // Another worker stored it since the page was fetched; the unique TMDB id kept it once.
+                            alreadyImported.incrementAndGet();
+                            resolve(item.page(), true);
+                        } else {
+                            failures.incrementAndGet();
+                            resolve(item.page(), false);
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean isStoredAlready(MovieDTO movie) {
+            try {
+                return movie.getTmdbId() != 0 && movieDAO.findExistingTmdbIds(List.of(movie.getTmdbId())).contains(movie.getTmdbId());
+            } catch (JpaException e) {
+                return false;
+            }
+        }
+
+        private void resolvePersisted(PageRef page) {
+            PageProgress progress = pageProgress.get(page);
+            synchronized (progress) {
+                progress.persisted++;
+            }
+            resolve(page, true);
+        }
+
+        // Checkpoints the page once its last movie is resolved, unless one of them was lost; the page is then
+        // fetched again by the next run, which only picks up the movies that are still missing.
+        private void resolve(PageRef page, boolean succeeded) {
+            PageProgress progress = pageProgress.get(page);
+            int persisted;
+            synchronized (progress) {
+                progress.failed |= !succeeded;
+                if (--progress.outstanding > 0 || progress.failed) return;
+                persisted = progress.persisted;
+            }
+            pageProgress.remove(page);
+            checkpoint(page, persisted);
+        }
+
+        private void checkpoint(PageRef page, int moviesPersisted) {
+            importJobDAO.completePage(jobId, page.spec().key(), page.page(), moviesPersisted);
+            pagesCheckpointed.incrementAndGet();
+        }
+
+        private Runnable worker(StageBody body, AtomicInteger workersLeft, BlockingQueue<ImportItem> downstream, int downstreamWorkers) {
+            return () -> {
+                try {
+                    body.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    // Without this worker the stages around it could block forever on full or empty queues.
+                    fatalError.compareAndSet(null, e);
+                    executor.shutdownNow();
+                } finally {
+                    if (workersLeft.decrementAndGet() == 0 && downstream != null) {
+                        signalEndOfStream(downstream, downstreamWorkers);
+                    }
+                }
+            };
+        }
+
+        private void signalEndOfStream(BlockingQueue<ImportItem> downstream, int downstreamWorkers) {
+            try {
+                for (int i = 0; i < downstreamWorkers; i++) {
+                    downstream.put(END_OF_STREAM);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+}
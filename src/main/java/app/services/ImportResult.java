@@ -0,0 +1,18 @@
+package app.services;
+
+/**
+ * Outcome of an import run.
+ *
+ * @param jobId             the import job the run belongs to
+ * @param pagesSkipped      pages checkpointed by an earlier run of the job and not fetched again
+ * @param pagesFetched      discover pages fetched successfully
+ * @param alreadyImported   movies of fetched pages that were already in the database
+ * @param moviesFetched     movies whose credits were fetched
+ * @param duplicatesSkipped movies dropped because an earlier page already had them
+ * @param moviesPersisted   movies committed to the database
+ * @param failures          movies lost to API or persistence errors
+ * @param elapsedMillis     wall-clock duration of the run
+ */
+public record ImportResult(int jobId, int pagesSkipped, int pagesFetched, int alreadyImported, int moviesFetched, int duplicatesSkipped,
+                           int moviesPersisted, int failures, long elapsedMillis) {
+}
@@ -0,0 +1,33 @@
+package app.services;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Tuning of the {@link ImportPipeline}: how many workers each stage runs, how many movies may wait between
+ * stages, and how many movies are committed per transaction.
+ */
+@Getter
+@Builder
+public class ImportSettings {
+
+    @Builder.Default
+    private final int pageWorkers = 2;
+
+    @Builder.Default
+    private final int creditWorkers = 20;
+
+    @Builder.Default
+    private final int persistWorkers = 2;
+
+    /** Capacity of each queue between two stages; a full queue blocks the upstream stage. */
+    @Builder.Default
+    private final int queueCapacity = 200;
+
+    @Builder.Default
+    private final int batchSize = 50;
+
+    public static ImportSettings defaults() {
+        return ImportSettings.builder().build();
+    }
+}
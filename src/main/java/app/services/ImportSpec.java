@@ -0,0 +1,74 @@
+package app.services;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * One slice of the catalogue to import: the discover filter (original language, region and release window) and
+ * how many of its pages to read. Several specs can be imported concurrently by one {@link ImportPipeline} run.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ImportSpec {
+
+    /** ISO 639-1 code sent as {@code with_original_language}. */
+    @Builder.Default
+    private final String language = "da";
+
+    /** ISO 3166-1 code sent as {@code region}, or {@code null} for every region. */
+    private final String region;
+
+    @Builder.Default
+    private final LocalDate releasedFrom = LocalDate.of(2019, 1, 1);
+
+    /** Last release date to include, or {@code null} for no upper bound. */
+    private final LocalDate releasedTo;
+
+    @Builder.Default
+    private final int firstPage = 1;
+
+    /** The number of pages to read, starting at {@link #getFirstPage()}. */
+    @Builder.Default
+    private final int pages = 48;
+
+    /**
+     * The Danish movies released since 2019 that the import has always fetched.
+     */
+    public static ImportSpec defaults() {
+        return ImportSpec.builder().build();
+    }
+
+    public int getLastPage() {
+        return firstPage + pages - 1;
+    }
+
+    /**
+     * Identifies the spec in the page checkpoints of an import job, e.g. {@code da/any/2019-01-01..}. The page range
+     * is not part of the key, so the shards of a spec checkpoint their pages under the key of the whole spec.
+     */
+    public String key() {
+        return language + "/" + (region != null ? region : "any") + "/" + releasedFrom + ".." + (releasedTo != null ? releasedTo : "");
+    }
+
+    /**
+     * The filter parameters of the discover URL, each starting with {@code &}.
+     */
+    String discoverParameters() {
+        StringBuilder parameters = new StringBuilder("&with_original_language=").append(language)
+                .append("&primary_release_date.gte=").append(releasedFrom);
+        if (releasedTo != null) {
+            parameters.append("&primary_release_date.lte=").append(releasedTo);
+        }
+        if (region != null) {
+            parameters.append("&region=").append(region);
+        }
+        return parameters.toString();
+    }
+
+    @Override
+    public String toString() {
+        return key() + " (pages " + firstPage + "-" + getLastPage() + ")";
+    }
+}
@@ -1,85 +1,142 @@
 package app.services;
 
-import app.dtos.ActorDTO;
-import app.dtos.DirectorDTO;
+import app.cache.SingleFlight;
 import app.dtos.MovieDTO;
+import app.dtos.MovieView;
 import app.entities.Actor;
 import app.entities.Director;
+import app.enums.MovieSortOrder;
 import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.CatalogueVersion;
+import app.persistence.ReadRouting;
 import app.persistence.daos.ActorDAO;
 import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.GenreDAO;
+import app.persistence.daos.ImportJobDAO;
+import app.persistence.daos.ImportLeaseDAO;
 import app.persistence.daos.MovieDAO;
+import app.persistence.daos.SnapshotDAO;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManagerFactory;
-import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Service class for managing movies, including fetching, sorting, and saving movies to the database.
  * This service interacts with the API and the database layer to provide movie data.
  */
-@NoArgsConstructor
 public class MovieService {
-    private static MovieDAO movieDAO;
-    private static ActorDAO actorDAO;
-    private static DirectorDAO directorDAO;
-    private static MovieService instance;
-    private static ApiService apiService;
+    private static final int DEFAULT_PAGES_TO_IMPORT = 48;
+    static final int DEFAULT_PAGES_PER_SHARD = 4;
+    private static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(60);
+    private static final Logger logger = LoggerFactory.getLogger(MovieService.class);
+    private static volatile MovieService instance;
+    private static final Timer importTimer = Metrics.timer("import.duration");
+    private static final Timer refreshTimer = Metrics.timer("ratings.refresh.duration");
+
+    private final MovieDAO movieDAO;
+    private final ActorDAO actorDAO;
+    private final DirectorDAO directorDAO;
+    private final GenreDAO genreDAO;
+    private final ImportJobDAO importJobDAO;
+    private final ImportLeaseDAO importLeaseDAO;
+    private final SnapshotDAO snapshotDAO;
+    private final ApiService apiService;
+    // Identical reads running at the same time share one query.
+    private final SingleFlight<String> queries = new SingleFlight<>("movie-queries");
+
+    /**
+     * Creates a MovieService backed by the given database and API. The application gets its instance from
+     * {@link app.config.ApplicationContext}; this constructor exists so tests and benchmarks can point the service at a stub API.
+     *
+     * @param emf        the EntityManagerFactory used by the DAOs
+     * @param apiService the ApiService used for imports
+     */
+    public MovieService(EntityManagerFactory emf, ApiService apiService) {
+        this(emf, emf, apiService);
+    }
+
+    /**
+     * Creates a MovieService whose catalogue reads go to a replica, while imports and other writes go to the primary.
+     *
+     * @param emf        the primary
+     * @param replicaEmf the replica; may be the primary itself
+     * @param apiService the ApiService used for imports
+     */
+    public MovieService(EntityManagerFactory emf, EntityManagerFactory replicaEmf, ApiService apiService) {
+        this.actorDAO = new ActorDAO(emf, replicaEmf);
+        this.directorDAO = new DirectorDAO(emf, replicaEmf);
+        this.movieDAO = new MovieDAO(emf, replicaEmf, actorDAO, directorDAO);
+        this.genreDAO = new GenreDAO(emf, replicaEmf);
+        this.importJobDAO = new ImportJobDAO(emf);
+        this.importLeaseDAO = new ImportLeaseDAO(emf);
+        this.snapshotDAO = new SnapshotDAO(emf, replicaEmf);
+        this.apiService = apiService;
+    }
 
     /**
      * Gets the singleton instance of the MovieService, initializing the DAO and API service if not already done.
+     * Concurrent first calls build a single instance.
      *
      * @param emf the EntityManagerFactory used by MovieDAO
      * @return the singleton instance of MovieService
      */
-    public static synchronized MovieService getInstance(EntityManagerFactory emf) {
-        if (instance == null) {
-            instance = new MovieService();
-            actorDAO = new ActorDAO(emf);
-            directorDAO = new DirectorDAO(emf);
-            movieDAO = new MovieDAO(emf,actorDAO,directorDAO);
-            apiService = ApiService.getInstance();
+    public static MovieService getInstance(EntityManagerFactory emf) {
+        MovieService result = instance;
+        if (result == null) {
+            synchronized (MovieService.class) {
+                result = instance;
+                if (result == null) {
+                    result = new MovieService(emf, ApiService.getInstance());
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
 
     /**
-     * Sorts and prints all movies by their original title in ascending order.
+     * Sorts all movies by their original title in ascending order.
      *
-     * @return a list of MovieDTOs sorted by their original title
+     * @return a list of MovieViews sorted by their original title
+     * @throws JpaException if the movies could not be read
      */
-    public List<MovieDTO> sortByTitle() {
-        try {
-            List<MovieDTO> allMovies = movieDAO.getAll();
-            allMovies.stream()
-                    .sorted(Comparator.comparing(MovieDTO::getOriginalTitle))
-                    .forEach(System.out::println);
-            return allMovies;
-        } catch (JpaException e) {
-            System.err.println(e.getMessage());
-            return null;
-        }
+    public List<MovieView> sortByTitle() {
+        return read("all", movieDAO::getAllViews).stream()
+                .sorted(Comparator.comparing(MovieView::originalTitle, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    /**
+     * Retrieves one page of movies in the given order. Sorting and paging are done by the database,
+     * so only the requested page is loaded and mapped.
+     *
+     * @param sortOrder the order of the listing
+     * @param page      the 1-based page number
+     * @param size      the number of movies per page
+     * @return a list of MovieViews on the requested page
+     * @throws JpaException if the movies could not be read
+     */
+    public List<MovieView> getMoviesSorted(MovieSortOrder sortOrder, int page, int size) {
+        return read("sorted:" + sortOrder + ":" + page + ":" + size, () -> movieDAO.getAllSortedViews(sortOrder, page, size));
     }
 
     /**
      * Calculates and returns the average rating of all movies.
      *
-     * @return the average rating of movies, or 0 if an exception occurs
+     * @return the average rating of movies
+     * @throws JpaException if the ratings could not be read
      */
     public double getAvgRatingOfMovies() {
-        try {
-            double avgRating = movieDAO.getTotalAverageRating();
-            return avgRating;
-        } catch (JpaException e) {
-            System.err.println(e.getMessage());
-            return 0;
-        }
+        return read("avgRating", movieDAO::getTotalAverageRating);
     }
 
     /**
@@ -87,124 +144,259 @@ public class MovieService {
      *
      * @param title the title to search for
      * @return a list of MovieDTOs that match the given title
+     * @throws JpaException if the movies could not be read
      */
     public List<MovieDTO> searchByTitle(String title) {
-        try {
-            List<MovieDTO> allMovies = movieDAO.getMoviesByTitle(title);
-            return allMovies;
-        } catch (JpaException e) {
-            System.err.println(e.getMessage());
-            return null;
-        }
-
+        return read("title:" + title, () -> movieDAO.getMoviesByTitle(title));
     }
 
     /**
      * Retrieves and returns the bottom ten movies with the lowest ratings.
      *
      * @return a list of the ten lowest-rated MovieDTOs
+     * @throws JpaException if the movies could not be read
      */
     public List<MovieDTO> getBottomTenMovies() {
-        try {
-            List<MovieDTO> allMovies = movieDAO.getTop10LowestRatedMovies();
-            return allMovies;
-        } catch (JpaException e) {
-            System.err.println(e.getMessage());
-            return null;
-        }
+        return read("bottom10", movieDAO::getTop10LowestRatedMovies);
     }
 
     /**
      * Retrieves and returns the top ten movies with the highest ratings.
      *
      * @return a list of the ten highest-rated MovieDTOs
+     * @throws JpaException if the movies could not be read
      */
     public List<MovieDTO> getTopTenMovies() {
-        try {
-            List<MovieDTO> allMovies = movieDAO.getTop10HighestRatedMovies();
-            return allMovies;
-        } catch (JpaException e) {
-            System.err.println(e.getMessage());
-            return null;
-        }
+        return read("top10", movieDAO::getTop10HighestRatedMovies);
     }
 
     /**
-     * Sorts and prints all movies by their release date in ascending order.
+     * Sorts all movies by their release date in ascending order.
      *
-     * @return a list of MovieDTOs sorted by their release date
+     * @return a list of MovieViews sorted by their release date
+     * @throws JpaException if the movies could not be read
      */
-    public List<MovieDTO> sortByReleaseDate() {
-        List<MovieDTO> allMovies = movieDAO.getAll();
-        allMovies.stream()
-                .sorted(Comparator.comparing(MovieDTO::getReleaseDate))
-                .forEach(System.out::println);
-        return allMovies;
+    public List<MovieView> sortByReleaseDate() {
+        return read("all", movieDAO::getAllViews).stream()
+                .sorted(Comparator.comparing(MovieView::releaseDate, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
     }
 
     /**
-     * Filters and prints movies that include a specific actor in their cast.
+     * Retrieves the movies that include a specific actor in their cast.
      *
      * @param actor the actor to filter movies by
      * @return a list of MovieDTOs that include the specified actor
+     * @throws JpaException if the movies could not be read
      */
     public List<MovieDTO> sortByActor(Actor actor) {
-        List<MovieDTO> allMovies = movieDAO.getAll();
-        allMovies.stream()
-                .filter(m -> m.getCast().contains(actor))
-                .forEach(System.out::println);
-        return allMovies;
+        return getMoviesByActor(actor.getId());
     }
 
     /**
-     * Filters and prints movies that include a specific director.
+     * Retrieves the movies that include the actor with the given id in their cast.
+     *
+     * @param actorId the database id of the actor
+     * @return a list of MovieDTOs that include the specified actor
+     * @throws JpaException if the movies could not be read
+     */
+    public List<MovieDTO> getMoviesByActor(int actorId) {
+        return read("actor:" + actorId, () -> movieDAO.getMoviesByActorId(actorId));
+    }
+
+    /**
+     * Retrieves the movies directed by a specific director.
      *
      * @param director the director to filter movies by
      * @return a list of MovieDTOs that include the specified director
+     * @throws JpaException if the movies could not be read
      */
     public List<MovieDTO> sortByDirector(Director director) {
-        List<MovieDTO> allMovies = movieDAO.getAll();
-        allMovies.stream()
-                .filter(m -> m.getCast().contains(director))
-                .forEach(System.out::println);
-        return allMovies;
+        return getMoviesByDirector(director.getId());
+    }
+
+    /**
+     * Retrieves the movies directed by the director with the given id.
+     *
+     * @param directorId the database id of the director
+     * @return a list of MovieDTOs that include the specified director
+     * @throws JpaException if the movies could not be read
+     */
+    public List<MovieDTO> getMoviesByDirector(int directorId) {
+        return read("director:" + directorId, () -> movieDAO.getMoviesByDirectorId(directorId));
+    }
+
+    // The DAO has counted the failure in dao.errors; callers that share the query through the single flight each
+    // get the exception, so none of them mistakes a failed read for an empty catalogue.
+    private <T> T read(String query, Supplier<T> load) {
+        try {
+            return coalesce(query, load);
+        } catch (JpaException e) {
+            logger.error("Could not read the movies for query {}", query, e);
+            throw e;
+        }
+    }
+
+    // The catalogue version is part of the key, so a read starting after a write never joins a query that began before it,
+    // and so is the routing, so a read-your-writes caller never joins a read of the replica.
+    private <T> T coalesce(String query, Supplier<T> load) {
+        String database = ReadRouting.isPrimaryForced() ? "primary" : "replica";
+        return queries.execute(CatalogueVersion.current() + ":" + database + ":" + query, load);
     }
 
     /**
-     * Fetches movies from the API, filters out duplicate actors and directors, and saves the movies to the database.
-     * This method uses sets to ensure that only unique actors and directors are added to each movie.
+     * Fetches movies from the API, filters out duplicate movies, actors and directors, and saves the movies to the
+     * database using the staged {@link ImportPipeline} with default settings.
      *
-     * @throws JpaException if there is an error persisting movies to the database
+     * @return the counts of the import
+     * @throws JpaException if the import failed
      */
-    public void saveMoviesToDatabase() {
+    public ImportResult saveMoviesToDatabase() {
+        return saveMoviesToDatabase(DEFAULT_PAGES_TO_IMPORT);
+    }
+
+    /**
+     * Fetches the given number of discover pages from the API and saves the movies to the database.
+     *
+     * @param numberOfPages the number of discover pages to import
+     * @return the counts of the import
+     * @throws JpaException if the import failed
+     */
+    public ImportResult saveMoviesToDatabase(int numberOfPages) {
+        return saveMoviesToDatabase(numberOfPages, ImportSettings.defaults());
+    }
+
+    /**
+     * Fetches the given number of discover pages from the API and saves the movies to the database, with
+     * explicit worker counts, queue capacity and batch size. An import that did not finish is resumed from its
+     * last checkpointed page.
+     *
+     * @param numberOfPages the number of discover pages to import
+     * @param settings      the tuning of the pipeline
+     * @return the counts of the import
+     * @throws JpaException if the import failed
+     */
+    public ImportResult saveMoviesToDatabase(int numberOfPages, ImportSettings settings) {
+        Timer.Sample sample = Timer.start(Metrics.registry());
         try {
-            List<MovieDTO> movies = apiService.fetchMoviesFromApiEndpoint(48);
+            return newImportPipeline(settings).run(numberOfPages);
+        } finally {
+            sample.stop(importTimer);
+        }
+    }
 
-            // Use sets to track unique actors and directors
-            Set<ActorDTO> uniqueActors = new HashSet<>();
-            Set<DirectorDTO> uniqueDirectors = new HashSet<>();
+    /**
+     * Imports several slices of the catalogue, e.g. one per Nordic language, concurrently in one job. The specs
+     * share the workers and the request budget, and people who appear in several specs are stored once.
+     *
+     * @param specs    the slices to import
+     * @param settings the tuning of the pipeline
+     * @return the counts of the import, summed over the specs
+     * @throws JpaException if the import failed
+     */
+    public ImportResult saveMoviesToDatabase(List<ImportSpec> specs, ImportSettings settings) {
+        Timer.Sample sample = Timer.start(Metrics.registry());
+        try {
+            return newImportPipeline(settings).run(specs);
+        } finally {
+            sample.stop(importTimer);
+        }
+    }
 
-            movies.parallelStream().forEach(movie -> {
+    /**
+     * Runs this process as one worker of a sharded import of the spec; see {@link ShardedImport}. Start the same
+     * call in as many processes, on as many machines, as the import should be spread over.
+     *
+     * @param spec          the pages to import
+     * @param pagesPerShard the number of pages per shard; must be the same for every worker
+     * @return the results of the shards this worker imported
+     * @throws JpaException if the shards could not be read or written
+     */
+    public List<ImportResult> importShards(ImportSpec spec, int pagesPerShard) {
+        return importShards(spec, pagesPerShard, ImportSettings.defaults(), ShardedImport.defaultOwner(), DEFAULT_LEASE_DURATION);
+    }
 
-                // Filter out duplicate actors
-                List<ActorDTO> filteredActors = movie.getCast().stream()
-                        .filter(actor -> uniqueActors.add(actor))
-                        .collect(Collectors.toList());
+    /**
+     * Runs this process as one worker of a sharded import, with explicit pipeline tuning, worker name and lease
+     * duration.
+     *
+     * @param spec          the pages to import
+     * @param pagesPerShard the number of pages per shard; must be the same for every worker
+     * @param settings      the tuning of the pipeline of each shard
+     * @param owner         the name of this worker, unique among the workers
+     * @param leaseDuration how long a shard stays reserved for this worker without being renewed
+     * @return the results of the shards this worker imported
+     * @throws JpaException if the shards could not be read or written
+     */
+    public List<ImportResult> importShards(ImportSpec spec, int pagesPerShard, ImportSettings settings, String owner, Duration leaseDuration) {
+        Timer.Sample sample = Timer.start(Metrics.registry());
+        try {
+            return new ShardedImport(newImportPipeline(settings), importJobDAO, importLeaseDAO, owner, leaseDuration).run(spec, pagesPerShard);
+        } finally {
+            sample.stop(importTimer);
+        }
+    }
 
-                // Filter out duplicate directors
-                List<DirectorDTO> filteredDirectors = movie.getDirectors().stream()
-                        .filter(director -> uniqueDirectors.add(director))
-                        .collect(Collectors.toList());
+    private ImportPipeline newImportPipeline(ImportSettings settings) {
+        return new ImportPipeline(apiService, movieDAO, actorDAO, directorDAO, genreDAO, importJobDAO, settings);
+    }
 
-                movie.setCast(filteredActors);
-                movie.setDirectors(filteredDirectors);
+    /**
+     * Writes a binary snapshot of the catalogue to the file; see {@link SnapshotDAO}.
+     *
+     * @param path the file to write
+     * @return the number of rows exported per table
+     * @throws JpaException if the snapshot could not be written
+     */
+    public Map<String, Long> exportSnapshot(Path path) {
+        return snapshotDAO.export(path);
+    }
 
-                movieDAO.create(movie);
-            });
+    /**
+     * Replaces the catalogue with the snapshot in the file, instead of importing it from the API.
+     *
+     * @param path the snapshot to restore
+     * @return the number of rows restored per table
+     * @throws JpaException if the snapshot could not be restored; the catalogue is unchanged then
+     */
+    public Map<String, Long> restoreSnapshot(Path path) {
+        return snapshotDAO.restore(path);
+    }
 
-        } catch (URISyntaxException | InterruptedException | IOException e) {
-            System.err.println(e.getMessage());
-            throw new JpaException("Could not persist movies to the database.");
+    /**
+     * Refreshes the vote averages of the stored movies from the discover pages of the default {@link ImportSpec},
+     * without fetching credits.
+     *
+     * @return the counts of the refresh
+     */
+    public RatingRefreshResult refreshRatings() {
+        return refreshRatings(DEFAULT_PAGES_TO_IMPORT);
+    }
+
+    /**
+     * Refreshes the vote averages of the stored movies from the given number of discover pages of the default
+     * {@link ImportSpec}.
+     *
+     * @param numberOfPages the number of discover pages to read
+     * @return the counts of the refresh
+     */
+    public RatingRefreshResult refreshRatings(int numberOfPages) {
+        return refreshRatings(List.of(ImportSpec.defaults().toBuilder().pages(numberOfPages).build()));
+    }
+
+    /**
+     * Refreshes the vote averages of the stored movies from the discover pages of the given specs; pass the specs
+     * the catalogue was imported with, see {@link #saveMoviesToDatabase(List, ImportSettings)}.
+     *
+     * @param specs the slices to refresh
+     * @return the counts of the refresh, summed over the specs
+     */
+    public RatingRefreshResult refreshRatings(List<ImportSpec> specs) {
+        Timer.Sample sample = Timer.start(Metrics.registry());
+        try {
+            return new RatingRefresh(apiService, movieDAO).run(specs);
+        } finally {
+            sample.stop(refreshTimer);
         }
     }
 }
@@ -0,0 +1,108 @@
+package app.services;
+
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.MovieDTO;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Maps the people of an import run to their database rows, so every actor and director is stored once however
+ * many movies and import specs they appear in. Actors are identified by their TMDB person id and matched against
+ * the database as well, so people imported by an earlier run are linked rather than inserted again. Directors
+ * carry no TMDB id and are identified, and matched against the database, by name.
+ *
+ * Persist workers share one instance. Registering new people is serialized, so two batches that meet the same
+ * new person cannot both insert it; looking up known people takes no lock.
+ */
+class PersonIdentityMap {
+    private final ActorDAO actorDAO;
+    private final DirectorDAO directorDAO;
+    private final Map<Integer, Integer> actorIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> directorIds = new ConcurrentHashMap<>();
+
+    PersonIdentityMap(ActorDAO actorDAO, DirectorDAO directorDAO) {
+        this.actorDAO = actorDAO;
+        this.directorDAO = directorDAO;
+    }
+
+    /**
+     * Stores the people of the movies that are not known yet and sets the database id of every actor and director
+     * of the movies, so the movies can be persisted with links to existing rows only.
+     *
+     * @param movies the movies about to be persisted
+     * @throws app.exceptions.JpaException if new people could not be stored
+     */
+    void resolve(Collection<MovieDTO> movies) {
+        Map<Integer, ActorDTO> newActors = new LinkedHashMap<>();
+        Map<String, DirectorDTO> newDirectors = new LinkedHashMap<>();
+        for (MovieDTO movie : movies) {
+            movie.getCast().stream().filter(actor -> !actorIds.containsKey(actor.getActorId()))
+                    .forEach(actor -> newActors.putIfAbsent(actor.getActorId(), actor));
+            movie.getDirectors().stream().filter(director -> !directorIds.containsKey(director.getName()))
+                    .forEach(director -> newDirectors.putIfAbsent(director.getName(), director));
+        }
+        if (!newActors.isEmpty() || !newDirectors.isEmpty()) {
+            register(newActors.values(), newDirectors.values());
+        }
+
+        for (MovieDTO movie : movies) {
+            movie.setCast(distinct(movie.getCast(), ActorDTO::getActorId, actor -> actor.setId(actorIds.get(actor.getActorId()))));
+            movie.setDirectors(distinct(movie.getDirectors(), DirectorDTO::getName, director -> director.setId(directorIds.get(director.getName()))));
+        }
+    }
+
+    int size() {
+        return actorIds.size() + directorIds.size();
+    }
+
+    // Stores copies, so a rolled-back upsert cannot leave ids of rows that do not exist on the movies' DTOs.
+    private synchronized void register(Collection<ActorDTO> actors, Collection<DirectorDTO> directors) {
+        // Another worker may have stored some of them while this one waited for the lock.
+        List<ActorDTO> missingActors = new ArrayList<>();
+        for (ActorDTO actor : actors) {
+            if (!actorIds.containsKey(actor.getActorId())) {
+                ActorDTO copy = new ActorDTO();
+                copy.setActorId(actor.getActorId());
+                copy.setName(actor.getName());
+                copy.setGender(actor.getGender());
+                missingActors.add(copy);
+            }
+        }
+        List<DirectorDTO> missingDirectors = new ArrayList<>();
+        for (DirectorDTO director : directors) {
+            if (!directorIds.containsKey(director.getName())) {
+                DirectorDTO copy = new DirectorDTO();
+                copy.setName(director.getName());
+                copy.setGender(director.getGender());
+                missingDirectors.add(copy);
+            }
+        }
+
+        if (!missingActors.isEmpty()) {
+            actorDAO.upsertAll(missingActors).forEach(actor -> actorIds.put(actor.getActorId(), actor.getId()));
+        }
+        if (!missingDirectors.isEmpty()) {
+            directorDAO.upsertAll(missingDirectors).forEach(director -> directorIds.put(director.getName(), director.getId()));
+        }
+    }
+
+    // A movie lists a person once even when the credits name them for several roles.
+    private static <T, K> List<T> distinct(List<T> people, Function<T, K> identity, Consumer<T> assignId) {
+        Map<K, T> unique = new LinkedHashMap<>();
+        for (T person : people) {
+            unique.putIfAbsent(identity.apply(person), person);
+        }
+        unique.values().forEach(assignId);
+        return new ArrayList<>(unique.values());
+    }
+}
@@ -0,0 +1,96 @@
+package app.services;
+
+import app.dtos.MovieDTO;
+import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.daos.MovieDAO;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the vote average of movies that are already imported. The discover pages already carry
+ * {@code vote_average}, so the refresh reads them through the same {@link MovieResponse} parsing as the import,
+ * but never fetches credits: a refresh of the default 48 pages costs 48 requests instead of roughly a thousand.
+ *
+ * Each page is written with a single update by TMDB id. Movies on a page that are not in the database are
+ * ignored; bringing them in is the job of {@link ImportPipeline}.
+ */
+public class RatingRefresh {
+    private static final Logger logger = LoggerFactory.getLogger(RatingRefresh.class);
+    private static final Counter refreshedMovies = Metrics.counter("ratings.refreshed");
+
+    private final ApiService apiService;
+    private final MovieDAO movieDAO;
+
+    public RatingRefresh(ApiService apiService, MovieDAO movieDAO) {
+        this.apiService = apiService;
+        this.movieDAO = movieDAO;
+    }
+
+    /**
+     * Fetches the discover pages of every spec and updates the vote averages of the stored movies on them, so the
+     * refresh covers the same slices of the catalogue as the imports that stored them. Moves on to the next spec
+     * when the API has fewer pages. A page that cannot be fetched or written is counted as a failure and does not
+     * stop the refresh.
+     *
+     * @param specs the slices to refresh; each is read from its first to its last page
+     * @return the counts of the refresh, summed over the specs
+     */
+    public RatingRefreshResult run(List<ImportSpec> specs) {
+        long start = System.nanoTime();
+        int pagesFetched = 0;
+        int moviesSeen = 0;
+        int moviesUpdated = 0;
+        int failures = 0;
+
+        specs:
+        for (ImportSpec spec : specs) {
+            for (int page = spec.getFirstPage(); page <= spec.getLastPage(); page++) {
+                MovieResponse response;
+                try {
+                    response = apiService.fetchDiscoverPage(spec, page);
+                } catch (IOException | URISyntaxException e) {
+                    logger.error("Could not fetch page {} of {}: {}", page, spec.key(), e.getMessage());
+                    response = null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break specs;
+                }
+                if (response == null || response.getResults() == null) {
+                    failures++;
+                    continue;
+                }
+                pagesFetched++;
+                moviesSeen += response.getResults().size();
+
+                Map<Integer, Double> voteAverages = new HashMap<>();
+                for (MovieDTO movie : response.getResults()) {
+                    voteAverages.put(movie.getTmdbId(), movie.getVoteAverage());
+                }
+                try {
+                    int updated = movieDAO.updateVoteAverages(voteAverages);
+                    moviesUpdated += updated;
+                    refreshedMovies.increment(updated);
+                } catch (JpaException e) {
+                    logger.error("Could not update the ratings of page {} of {}: {}", page, spec.key(), e.getMessage());
+                    failures++;
+                }
+
+                if (page >= response.getTotal_pages()) break;
+            }
+        }
+
+        RatingRefreshResult result = new RatingRefreshResult(pagesFetched, moviesSeen, moviesUpdated, failures,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("Rating refresh finished: {}", result);
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+package app.services;
+
+/**
+ * Outcome of a rating refresh.
+ *
+ * @param pagesFetched  discover pages fetched successfully
+ * @param moviesSeen    movies on the fetched pages
+ * @param moviesUpdated stored movies whose vote average changed
+ * @param failures      pages lost to API or persistence errors
+ * @param elapsedMillis wall-clock duration of the refresh
+ */
+public record RatingRefreshResult(int pagesFetched, int moviesSeen, int moviesUpdated, int failures, long elapsedMillis) {
+}
@@ -0,0 +1,206 @@
+package app.services;
+
+import app.config.ApplicationContext;
+import app.entities.ImportJob;
+import app.entities.ImportLease;
+import app.enums.HibernateConfigState;
+import app.exceptions.JpaException;
+import app.metrics.Metrics;
+import app.persistence.daos.ImportJobDAO;
+import app.persistence.daos.ImportLeaseDAO;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One worker of an import that is spread over several processes. The pages of a spec are split into shards, stored
+ * as {@link ImportLease}s; every worker claims shards one at a time, imports them with its own
+ * {@link ImportPipeline} and completes them, until no shard is left.
+ *
+ * A worker renews its lease while it imports. If it dies, the lease expires and another worker claims the shard
+ * and resumes the import job recorded on it, skipping the pages that were already checkpointed. A worker that
+ * finds only shards held by others keeps polling until they are done, so it is there to take over if one of
+ * their owners dies.
+ */
+public class ShardedImport {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedImport.class);
+    private static final Counter completedShards = Metrics.counter("import.shards.completed");
+    private static final Counter reclaimedShards = Metrics.counter("import.shards.reclaimed");
+
+    private final ImportPipeline pipeline;
+    private final ImportJobDAO importJobDAO;
+    private final ImportLeaseDAO leaseDAO;
+    private final String owner;
+    private final Duration leaseDuration;
+
+    /**
+     * @param pipeline      imports the pages of a shard
+     * @param owner         the name of this worker, unique among the workers; see {@link #defaultOwner()}
+     * @param leaseDuration how long a claimed shard stays reserved without being renewed; renewed every third of it
+     */
+    public ShardedImport(ImportPipeline pipeline, ImportJobDAO importJobDAO, ImportLeaseDAO leaseDAO, String owner, Duration leaseDuration) {
+        this.pipeline = pipeline;
+        this.importJobDAO = importJobDAO;
+        this.leaseDAO = leaseDAO;
+        this.owner = owner;
+        this.leaseDuration = leaseDuration;
+    }
+
+    /**
+     * @return {@code pid@host} of this process
+     */
+    public static String defaultOwner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+
+    /**
+     * Imports shards of the spec until every shard is completed, by this worker or another. A shard this worker
+     * fails to import is released for the others and not claimed by this worker again.
+     *
+     * @param spec          the pages to import
+     * @param pagesPerShard the number of pages per shard; must be the same for every worker of the import
+     * @return the results of the shards this worker imported
+     * @throws JpaException if the leases could not be read or written
+     */
+    public List<ImportResult> run(ImportSpec spec, int pagesPerShard) {
+        leaseDAO.createShards(spec.key(), spec.getFirstPage(), spec.getLastPage(), pagesPerShard);
+        List<ImportResult> results = new ArrayList<>();
+        Set<Integer> failed = new HashSet<>();
+
+        while (true) {
+            // Taken before the claim, so the lease is certain to be valid for leaseDuration from here.
+            long claimedAt = System.nanoTime();
+            Optional<ImportLease> lease = leaseDAO.claim(owner, spec.key(), leaseDuration, failed);
+            if (lease.isPresent()) {
+                importShard(spec, lease.get(), claimedAt).ifPresentOrElse(results::add, () -> failed.add(lease.get().getId()));
+                continue;
+            }
+
+            List<Integer> open = new ArrayList<>(leaseDAO.getOpenLeaseIds(spec.key()));
+            open.removeAll(failed);
+            if (open.isEmpty()) break;
+            // Held by live workers; wait in case one of them dies and its lease expires.
+            try {
+                Thread.sleep(Math.max(100, leaseDuration.toMillis() / 4));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        logger.info("Worker {} finished: {} shards imported, {} failed", owner, results.size(), failed.size());
+        return results;
+    }
+
+    private Optional<ImportResult> importShard(ImportSpec spec, ImportLease lease, long claimedAt) {
+        ImportSpec shard = spec.toBuilder()
+                .firstPage(lease.getFirstPage())
+                .pages(lease.getLastPage() - lease.getFirstPage() + 1)
+                .build();
+        AtomicBoolean lost = new AtomicBoolean();
+        AtomicLong lastRenewed = new AtomicLong(claimedAt);
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "import-lease-" + lease.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewMillis = Math.max(1, leaseDuration.toMillis() / 3);
+        heartbeat.scheduleAtFixedRate(() -> renew(lease, lost, lastRenewed), renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            ImportJob job;
+            if (lease.getJobId() != null) {
+                logger.info("Worker {} resumes {} of an expired lease, job {}", owner, shard, lease.getJobId());
+                reclaimedShards.increment();
+                job = importJobDAO.resume(lease.getJobId());
+            } else {
+                job = importJobDAO.start(shard.getPages());
+                leaseDAO.attachJob(lease.getId(), job.getId());
+            }
+
+            // Stops between pages once another worker may have claimed the lease.
+            ImportResult result = pipeline.run(List.of(shard), job, lost::get);
+            Set<Integer> checkpointed = importJobDAO.getCompletedPages(job.getId()).getOrDefault(spec.key(), Set.of());
+            boolean complete = checkpointed.size() >= shard.getPages();
+            heartbeat.shutdownNow();
+
+            if (lost.get()) {
+                logger.warn("Worker {} lost the lease of {} and stopped importing it", owner, shard);
+                return Optional.empty();
+            }
+            if (complete && leaseDAO.complete(lease.getId(), owner)) {
+                completedShards.increment();
+                return Optional.of(result);
+            }
+            if (!complete) {
+                logger.warn("Worker {} could not import every page of {}; releasing it", owner, shard);
+                leaseDAO.release(lease.getId(), owner);
+            } else {
+                logger.warn("Worker {} lost the lease of {} while importing it", owner, shard);
+            }
+            return Optional.empty();
+        } catch (JpaException e) {
+            heartbeat.shutdownNow();
+            logger.error("Worker {} failed to import {}: {}", owner, shard, e.getMessage());
+            leaseDAO.release(lease.getId(), owner);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Renews the lease, and marks it lost once it was not renewed for a whole lease duration, whether the database
+     * refused the renewal or could not be reached. The lease may then have been claimed by another worker.
+     *
+     * @param lastRenewed {@link System#nanoTime()} before the last successful renewal, or before the claim
+     */
+    private void renew(ImportLease lease, AtomicBoolean lost, AtomicLong lastRenewed) {
+        long attempt = System.nanoTime();
+        try {
+            if (leaseDAO.renew(lease.getId(), owner, leaseDuration)) {
+                lastRenewed.set(attempt);
+            } else if (lost.compareAndSet(false, true)) {
+                logger.warn("Worker {} lost lease {}", owner, lease.getId());
+            }
+        } catch (JpaException e) {
+            logger.warn("Worker {} could not renew lease {}: {}", owner, lease.getId(), e.getMessage());
+            if (attempt - lastRenewed.get() >= leaseDuration.toNanos() && lost.compareAndSet(false, true)) {
+                logger.warn("Worker {} could not renew lease {} for {}; it may have expired", owner, lease.getId(), leaseDuration);
+            }
+        }
+    }
+
+    /**
+     * Entry point for worker processes. Arguments: the {@link HibernateConfigState}, the number of pages of the
+     * default spec and the number of pages per shard. Prints one {@code SHARDS} line with what this worker did.
+     */
+    public static void main(String[] args) {
+        HibernateConfigState state = args.length > 0 ? HibernateConfigState.valueOf(args[0]) : HibernateConfigState.NORMAL;
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : ImportSpec.defaults().getPages();
+        int pagesPerShard = args.length > 2 ? Integer.parseInt(args[2]) : MovieService.DEFAULT_PAGES_PER_SHARD;
+
+        try (ApplicationContext context = new ApplicationContext(state)) {
+            List<ImportResult> results = context.movieService().importShards(ImportSpec.builder().pages(pages).build(), pagesPerShard);
+            System.out.println("SHARDS owner=" + defaultOwner() + " shards=" + results.size()
+                    + " movies=" + results.stream().mapToInt(ImportResult::moviesPersisted).sum());
+        }
+    }
+}
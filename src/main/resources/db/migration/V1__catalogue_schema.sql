@@ -0,0 +1,68 @@
+-- Tables as Hibernate generated them with hbm2ddl, so databases created that way can be baselined at version 1.
+
+CREATE TABLE movies
+(
+    id             integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    tmdb_id        integer          NOT NULL,
+    original_title varchar(255),
+    release_date   date,
+    vote_average   double precision NOT NULL
+);
+
+CREATE TABLE actors
+(
+    id       integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    actor_id integer NOT NULL,
+    name     varchar(255),
+    gender   integer NOT NULL
+);
+
+CREATE TABLE directors
+(
+    id     integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name   varchar(255),
+    gender integer NOT NULL
+);
+
+CREATE TABLE genres
+(
+    id    integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    genre varchar(255)
+);
+
+CREATE TABLE actors_movies
+(
+    movie_id integer NOT NULL REFERENCES movies (id),
+    actor_id integer NOT NULL REFERENCES actors (id)
+);
+
+CREATE TABLE directors_movies
+(
+    movie_id    integer NOT NULL REFERENCES movies (id),
+    director_id integer NOT NULL REFERENCES directors (id)
+);
+
+CREATE TABLE movie_genre
+(
+    movie_id integer NOT NULL REFERENCES movies (id),
+    genre_id integer NOT NULL REFERENCES genres (id)
+);
+
+CREATE TABLE import_jobs
+(
+    id              integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status          varchar(255) NOT NULL CHECK (status IN ('RUNNING', 'COMPLETED', 'FAILED')),
+    pages_requested integer      NOT NULL,
+    started_at      timestamp(6) NOT NULL,
+    finished_at     timestamp(6)
+);
+
+CREATE TABLE import_job_pages
+(
+    id               integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    job_id           integer      NOT NULL REFERENCES import_jobs (id),
+    page             integer      NOT NULL,
+    movies_persisted integer      NOT NULL,
+    completed_at     timestamp(6) NOT NULL,
+    CONSTRAINT uk_import_job_pages_job_page UNIQUE (job_id, page)
+);
@@ -0,0 +1,25 @@
+-- Indexes for the MovieDAO read paths. hbm2ddl never created any of these.
+
+-- Top 10 / bottom 10 and the rating sort scan this index in either direction; the INCLUDE columns let the
+-- planner answer the LIMIT 10 from the index alone once the visibility map is current.
+CREATE INDEX idx_movies_vote_average ON movies (vote_average, id) INCLUDE (tmdb_id, original_title, release_date);
+
+-- Title lookups (equality) and the title sort.
+CREATE INDEX idx_movies_original_title ON movies (original_title, id) INCLUDE (tmdb_id, release_date, vote_average);
+
+CREATE INDEX idx_movies_release_date ON movies (release_date, id);
+
+-- The import checks which TMDB ids are already stored before fetching credits.
+CREATE INDEX idx_movies_tmdb_id ON movies (tmdb_id);
+
+CREATE INDEX idx_actors_actor_id ON actors (actor_id);
+CREATE INDEX idx_genres_genre ON genres (genre);
+
+-- Join tables: the leading movie_id serves collection loading, the reverse index serves the by-actor,
+-- by-director and by-genre lookups and keeps deletes of a person or genre from scanning the whole table.
+CREATE INDEX idx_actors_movies_movie_id ON actors_movies (movie_id, actor_id);
+CREATE INDEX idx_actors_movies_actor_id ON actors_movies (actor_id, movie_id);
+CREATE INDEX idx_directors_movies_movie_id ON directors_movies (movie_id, director_id);
+CREATE INDEX idx_directors_movies_director_id ON directors_movies (director_id, movie_id);
+CREATE INDEX idx_movie_genre_movie_id ON movie_genre (movie_id, genre_id);
+CREATE INDEX idx_movie_genre_genre_id ON movie_genre (genre_id, movie_id);
@@ -0,0 +1,7 @@
+-- Import jobs can run several import specs at once, so a page checkpoint records which spec the page belongs to.
+-- Checkpoints written before specs existed all belong to the default Danish spec.
+ALTER TABLE import_job_pages ADD COLUMN spec varchar(255) NOT NULL DEFAULT 'da/any/2019-01-01..';
+ALTER TABLE import_job_pages ALTER COLUMN spec DROP DEFAULT;
+
+ALTER TABLE import_job_pages DROP CONSTRAINT uk_import_job_pages_job_page;
+ALTER TABLE import_job_pages ADD CONSTRAINT uk_import_job_pages_job_spec_page UNIQUE (job_id, spec, page);
@@ -0,0 +1,17 @@
+-- Sharded imports split a spec into page ranges that worker processes lease. A lease whose owner stops renewing
+-- it expires and can be claimed by another worker, which resumes the import job recorded on the lease.
+CREATE TABLE import_leases
+(
+    id               integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    spec             varchar(255) NOT NULL,
+    first_page       integer      NOT NULL,
+    last_page        integer      NOT NULL,
+    owner            varchar(255),
+    lease_expires_at timestamp(6),
+    job_id           integer REFERENCES import_jobs (id),
+    completed_at     timestamp(6),
+    CONSTRAINT uk_import_leases_spec_first_page UNIQUE (spec, first_page)
+);
+
+-- Claiming scans only the shards that are still open.
+CREATE INDEX idx_import_leases_open ON import_leases (spec, id) WHERE completed_at IS NULL;
@@ -0,0 +1,33 @@
+-- A movie's genres as a bitmask next to the movie_genre join table: bit n is set for the genre with ordinal n in
+-- app.enums.MovieGenre. Genre filters test bits on the row instead of joining through movie_genre and genres.
+-- There is no index on it: neither a B-tree nor GIN can serve a bit test, and a genre listing walks the rating or
+-- title index in order and filters as it goes, stopping after one page.
+ALTER TABLE movies ADD COLUMN genre_mask integer NOT NULL DEFAULT 0;
+
+UPDATE movies m
+SET genre_mask = masks.mask
+FROM (SELECT mg.movie_id, bit_or(1 << b.bit) AS mask
+      FROM movie_genre mg
+               JOIN genres g ON g.id = mg.genre_id
+               JOIN (VALUES
+    ('ACTION', 0),
+    ('ADVENTURE', 1),
+    ('ANIMATION', 2),
+    ('COMEDY', 3),
+    ('CRIME', 4),
+    ('DOCUMENTARY', 5),
+    ('DRAMA', 6),
+    ('FAMILY', 7),
+    ('FANTASY', 8),
+    ('HISTORY', 9),
+    ('HORROR', 10),
+    ('MUSIC', 11),
+    ('MYSTERY', 12),
+    ('ROMANCE', 13),
+    ('SCIENCE_FICTION', 14),
+    ('TV_MOVIE', 15),
+    ('THRILLER', 16),
+    ('WAR', 17),
+    ('WESTERN', 18)) AS b(genre, bit) ON b.genre = g.genre
+      GROUP BY mg.movie_id) AS masks
+WHERE m.id = masks.movie_id;
@@ -0,0 +1,17 @@
+-- A movie is stored once per TMDB id, even when two import workers hold the same shard after a lease expired.
+-- Movies created without a TMDB id keep 0 and are not constrained.
+
+-- Earlier imports could store a movie twice; the first row of each TMDB id is kept, with its links.
+CREATE TEMPORARY TABLE duplicate_movies ON COMMIT DROP AS
+SELECT m.id
+FROM movies m
+WHERE m.tmdb_id <> 0
+  AND EXISTS (SELECT 1 FROM movies first WHERE first.tmdb_id = m.tmdb_id AND first.id < m.id);
+
+DELETE FROM actors_movies WHERE movie_id IN (SELECT id FROM duplicate_movies);
+DELETE FROM directors_movies WHERE movie_id IN (SELECT id FROM duplicate_movies);
+DELETE FROM movie_genre WHERE movie_id IN (SELECT id FROM duplicate_movies);
+DELETE FROM movies WHERE id IN (SELECT id FROM duplicate_movies);
+
+DROP INDEX idx_movies_tmdb_id;
+CREATE UNIQUE INDEX uk_movies_tmdb_id ON movies (tmdb_id) WHERE tmdb_id <> 0;
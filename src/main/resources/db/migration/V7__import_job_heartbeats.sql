@@ -0,0 +1,5 @@
+-- A running job renews its heartbeat with every checkpoint. Only jobs that failed, or whose heartbeat went quiet,
+-- are resumed by the next import; a job that is still running in another process is left alone.
+ALTER TABLE import_jobs ADD COLUMN heartbeat_at timestamp(6);
+UPDATE import_jobs SET heartbeat_at = COALESCE(finished_at, started_at);
+ALTER TABLE import_jobs ALTER COLUMN heartbeat_at SET NOT NULL;
@@ -0,0 +1,58 @@
+-- People and genres are stored once per natural key, so concurrent writers can upsert them with
+-- INSERT ... ON CONFLICT instead of serializing a read-then-insert. Actors created without a TMDB id keep 0 and
+-- directors without a name keep NULL; neither is constrained.
+
+-- Earlier imports could store a person or genre twice; the first row of each key is kept and the links of the
+-- others are moved to it.
+CREATE TEMPORARY TABLE duplicate_actors ON COMMIT DROP AS
+SELECT id, min(id) OVER (PARTITION BY actor_id) AS kept_id
+FROM actors
+WHERE actor_id <> 0;
+DELETE FROM duplicate_actors WHERE id = kept_id;
+
+UPDATE actors_movies am SET actor_id = d.kept_id FROM duplicate_actors d WHERE am.actor_id = d.id;
+DELETE FROM actors_movies am
+    USING actors_movies other
+WHERE am.movie_id = other.movie_id
+  AND am.actor_id = other.actor_id
+  AND am.ctid > other.ctid
+  AND am.actor_id IN (SELECT kept_id FROM duplicate_actors);
+DELETE FROM actors WHERE id IN (SELECT id FROM duplicate_actors);
+
+CREATE TEMPORARY TABLE duplicate_directors ON COMMIT DROP AS
+SELECT id, min(id) OVER (PARTITION BY name) AS kept_id
+FROM directors
+WHERE name IS NOT NULL;
+DELETE FROM duplicate_directors WHERE id = kept_id;
+
+UPDATE directors_movies dm SET director_id = d.kept_id FROM duplicate_directors d WHERE dm.director_id = d.id;
+DELETE FROM directors_movies dm
+    USING directors_movies other
+WHERE dm.movie_id = other.movie_id
+  AND dm.director_id = other.director_id
+  AND dm.ctid > other.ctid
+  AND dm.director_id IN (SELECT kept_id FROM duplicate_directors);
+DELETE FROM directors WHERE id IN (SELECT id FROM duplicate_directors);
+
+CREATE TEMPORARY TABLE duplicate_genres ON COMMIT DROP AS
+SELECT id, min(id) OVER (PARTITION BY genre) AS kept_id
+FROM genres
+WHERE genre IS NOT NULL;
+DELETE FROM duplicate_genres WHERE id = kept_id;
+
+UPDATE movie_genre mg SET genre_id = d.kept_id FROM duplicate_genres d WHERE mg.genre_id = d.id;
+DELETE FROM movie_genre mg
+    USING movie_genre other
+WHERE mg.movie_id = other.movie_id
+  AND mg.genre_id = other.genre_id
+  AND mg.ctid > other.ctid
+  AND mg.genre_id IN (SELECT kept_id FROM duplicate_genres);
+DELETE FROM genres WHERE id IN (SELECT id FROM duplicate_genres);
+
+DROP INDEX idx_actors_actor_id;
+CREATE UNIQUE INDEX uk_actors_actor_id ON actors (actor_id) WHERE actor_id <> 0;
+
+CREATE UNIQUE INDEX uk_directors_name ON directors (name);
+
+DROP INDEX idx_genres_genre;
+CREATE UNIQUE INDEX uk_genres_genre ON genres (genre);
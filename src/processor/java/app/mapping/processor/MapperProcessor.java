@@ -0,0 +1,49 @@
+package app.mapping.processor;
+
+import app.mapping.Mapper;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Generates the implementation of every {@link Mapper} interface. It is compiled on its own before the main
+ * sources and put on their processor path only (see the compiler executions in the pom), so it neither ships in
+ * the application jar nor runs over the tests.
+ * <p>
+ * Target properties are read from the declared fields, not from accessors, since Lombok generates those in the
+ * same compilation; the generated code calls the getters, setters and builders by their Lombok names.
+ */
+@SupportedAnnotationTypes("app.mapping.Mapper")
+public class MapperProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Mapper.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@Mapper must be placed on an interface", element);
+                continue;
+            }
+            try {
+                new MapperWriter(processingEnv, (TypeElement) element).write();
+            } catch (MappingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.getElement());
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write the mapper: " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+}
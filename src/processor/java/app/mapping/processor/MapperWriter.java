@@ -0,0 +1,260 @@
+package app.mapping.processor;
+
+import app.mapping.Mapping;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the implementation of one {@link app.mapping.Mapper} interface.
+ */
+class MapperWriter {
+    private static final String INDENT = "    ";
+
+    private final ProcessingEnvironment env;
+    private final Types types;
+    private final Elements elements;
+    private final TypeElement mapper;
+    private final List<ExecutableElement> methods;
+    // Collection conversions, by helper name, written after the mapping methods.
+    private final Map<String, String> helpers = new LinkedHashMap<>();
+    private final Map<String, String> helperNames = new HashMap<>();
+
+    MapperWriter(ProcessingEnvironment env, TypeElement mapper) {
+        this.env = env;
+        this.types = env.getTypeUtils();
+        this.elements = env.getElementUtils();
+        this.mapper = mapper;
+        this.methods = ElementFilter.methodsIn(mapper.getEnclosedElements()).stream()
+                .filter(method -> method.getModifiers().contains(Modifier.ABSTRACT))
+                .toList();
+    }
+
+    void write() throws IOException {
+        String packageName = ((PackageElement) mapper.getEnclosingElement()).getQualifiedName().toString();
+        String implName = mapper.getSimpleName() + "Impl";
+        String visibility = mapper.getModifiers().contains(Modifier.PUBLIC) ? "public " : "";
+
+        StringBuilder body = new StringBuilder();
+        for (ExecutableElement method : methods) {
+            body.append('\n').append(method(method));
+        }
+        helpers.values().forEach(helper -> body.append('\n').append(helper));
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("/**\n * Generated from {@link ").append(mapper.getSimpleName()).append("}; do not edit.\n */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(MapperProcessor.class.getName()).append("\")\n")
+                .append(visibility).append("final class ").append(implName).append(" implements ").append(mapper.getSimpleName()).append(" {\n")
+                .append(body)
+                .append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? implName : packageName + "." + implName;
+        try (Writer writer = env.getFiler().createSourceFile(qualifiedName, mapper).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private String method(ExecutableElement method) {
+        if (method.getParameters().size() != 1) {
+            throw new MappingException(method, "A mapping method takes exactly one parameter, the source");
+        }
+        VariableElement parameter = method.getParameters().get(0);
+        String source = parameter.getSimpleName().toString();
+        TypeElement sourceType = typeElement(parameter.asType(), parameter);
+        TypeElement targetType = typeElement(method.getReturnType(), method);
+        Map<String, VariableElement> sourceProperties = properties(sourceType);
+        Map<String, VariableElement> targetProperties = properties(targetType);
+        Map<String, Mapping> mappings = mappings(method, targetProperties);
+        boolean builder = hasBuilder(targetType);
+        String target = method.getReturnType().toString();
+
+        StringBuilder code = new StringBuilder();
+        code.append(INDENT).append("@Override\n")
+                .append(INDENT).append("public ").append(target).append(' ').append(method.getSimpleName())
+                .append('(').append(parameter.asType()).append(' ').append(source).append(") {\n")
+                .append(INDENT.repeat(2)).append("if (").append(source).append(" == null) return null;\n");
+        code.append(INDENT.repeat(2)).append(builder ? "return " + target + ".builder()\n" : target + " result = new " + target + "();\n");
+
+        for (VariableElement property : targetProperties.values()) {
+            String name = property.getSimpleName().toString();
+            Mapping mapping = mappings.get(name);
+            if (mapping != null && mapping.ignore()) continue;
+
+            String value;
+            // The source read a converted collection comes from; null unless the value needs a conversion.
+            String converted = null;
+            if (mapping != null && !mapping.expression().isEmpty()) {
+                value = mapping.expression();
+            } else {
+                String sourceName = mapping != null && !mapping.source().isEmpty() ? mapping.source() : name;
+                VariableElement sourceProperty = sourceProperties.get(sourceName);
+                if (sourceProperty == null) {
+                    throw new MappingException(method, "No source property '" + sourceName + "' in " + sourceType.getSimpleName()
+                            + " for target property '" + name + "'; add a @Mapping for it");
+                }
+                String read = source + "." + getter(sourceProperty) + "()";
+                if (types.isAssignable(sourceProperty.asType(), property.asType())) {
+                    value = read;
+                } else {
+                    value = collectionHelper(method, sourceProperty, property) + "(" + read + ")";
+                    converted = read;
+                }
+            }
+
+            if (builder) {
+                code.append(INDENT.repeat(4)).append('.').append(name).append('(').append(value).append(")\n");
+            } else if (converted != null) {
+                // Keeps the target's initializer, usually an empty collection, when the source has none.
+                code.append(INDENT.repeat(2)).append("if (").append(converted).append(" != null) result.")
+                        .append(setter(name)).append('(').append(value).append(");\n");
+            } else {
+                code.append(INDENT.repeat(2)).append("result.").append(setter(name)).append('(').append(value).append(");\n");
+            }
+        }
+
+        code.append(builder ? INDENT.repeat(4) + ".build();\n" : INDENT.repeat(2) + "return result;\n");
+        return code.append(INDENT).append("}\n").toString();
+    }
+
+    /**
+     * @return the name of a helper converting the source collection into the target's, element by element
+     */
+    private String collectionHelper(ExecutableElement method, VariableElement sourceProperty, VariableElement targetProperty) {
+        TypeMirror sourceElement = elementType(sourceProperty.asType());
+        TypeMirror targetElement = elementType(targetProperty.asType());
+        String kind = collectionKind(targetProperty.asType());
+        ExecutableElement elementMethod = sourceElement == null || targetElement == null || kind == null ? null : methods.stream()
+                .filter(candidate -> candidate.getParameters().size() == 1
+                        && types.isSameType(candidate.getParameters().get(0).asType(), sourceElement)
+                        && types.isSameType(candidate.getReturnType(), targetElement))
+                .findFirst()
+                .orElse(null);
+        if (elementMethod == null) {
+            throw new MappingException(method, "Cannot map " + sourceProperty.getSimpleName() + " of type " + sourceProperty.asType()
+                    + " to " + targetProperty.getSimpleName() + " of type " + targetProperty.asType()
+                    + "; add a mapping method for the elements or a @Mapping for the property");
+        }
+
+        String key = kind + ":" + targetElement + ":" + sourceElement;
+        String existing = helperNames.get(key);
+        if (existing != null) return existing;
+
+        String simpleName = types.asElement(targetElement).getSimpleName().toString();
+        String name = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1) + kind;
+        while (helpers.containsKey(name)) name += "_";
+        helperNames.put(key, name);
+
+        String collection = "java.util." + kind + "<" + targetElement + ">";
+        String allocation = kind.equals("List")
+                ? "new java.util.ArrayList<>(source.size())"
+                // Sized so that adding every element never rehashes.
+                : "new java.util.LinkedHashSet<>(Math.max(16, (int) (source.size() / 0.75f) + 1))";
+        helpers.put(name, INDENT + "private " + collection + " " + name + "(java.util.Collection<? extends " + sourceElement + "> source) {\n"
+                + INDENT.repeat(2) + "if (source == null) return null;\n"
+                + INDENT.repeat(2) + collection + " target = " + allocation + ";\n"
+                + INDENT.repeat(2) + "for (" + sourceElement + " element : source) {\n"
+                + INDENT.repeat(3) + "target.add(" + elementMethod.getSimpleName() + "(element));\n"
+                + INDENT.repeat(2) + "}\n"
+                + INDENT.repeat(2) + "return target;\n"
+                + INDENT + "}\n");
+        return name;
+    }
+
+    private Map<String, Mapping> mappings(ExecutableElement method, Map<String, VariableElement> targetProperties) {
+        Map<String, Mapping> mappings = new HashMap<>();
+        for (Mapping mapping : method.getAnnotationsByType(Mapping.class)) {
+            if (!targetProperties.containsKey(mapping.target())) {
+                throw new MappingException(method, "No target property '" + mapping.target() + "' in " + method.getReturnType());
+            }
+            if (mappings.put(mapping.target(), mapping) != null) {
+                throw new MappingException(method, "Target property '" + mapping.target() + "' is mapped twice");
+            }
+        }
+        return mappings;
+    }
+
+    // The instance fields of the type and its superclasses, in declaration order.
+    private Map<String, VariableElement> properties(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = type; current != null && !current.getQualifiedName().contentEquals("java.lang.Object"); ) {
+            hierarchy.add(0, current);
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+        }
+        Map<String, VariableElement> properties = new LinkedHashMap<>();
+        for (TypeElement current : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!field.getModifiers().contains(Modifier.STATIC)) {
+                    properties.put(field.getSimpleName().toString(), field);
+                }
+            }
+        }
+        return properties;
+    }
+
+    // A Lombok @Builder, or a hand-written static builder().
+    private boolean hasBuilder(TypeElement type) {
+        boolean lombokBuilder = type.getAnnotationMirrors().stream()
+                .anyMatch(annotation -> ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals("lombok.Builder"));
+        return lombokBuilder || ElementFilter.methodsIn(type.getEnclosedElements()).stream()
+                .anyMatch(method -> method.getSimpleName().contentEquals("builder")
+                        && method.getModifiers().contains(Modifier.STATIC)
+                        && method.getParameters().isEmpty());
+    }
+
+    private TypeElement typeElement(TypeMirror type, Element declaredBy) {
+        if (type.getKind() != TypeKind.DECLARED || types.asElement(type).getKind() != ElementKind.CLASS) {
+            throw new MappingException(declaredBy, "Mappers map between classes, not " + type);
+        }
+        return (TypeElement) types.asElement(type);
+    }
+
+    private String collectionKind(TypeMirror type) {
+        for (String kind : List.of("List", "Set", "Collection")) {
+            if (types.isSameType(types.erasure(type), types.erasure(elements.getTypeElement("java.util." + kind).asType()))) {
+                return kind.equals("Set") ? "Set" : "List";
+            }
+        }
+        return null;
+    }
+
+    private TypeMirror elementType(TypeMirror type) {
+        TypeMirror collection = types.erasure(elements.getTypeElement("java.util.Collection").asType());
+        if (type.getKind() != TypeKind.DECLARED || !types.isAssignable(types.erasure(type), collection)) return null;
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        return arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED ? arguments.get(0) : null;
+    }
+
+    private static String getter(VariableElement field) {
+        String prefix = field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get";
+        return prefix + capitalize(field.getSimpleName().toString());
+    }
+
+    private static String setter(String property) {
+        return "set" + capitalize(property);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -0,0 +1,19 @@
+package app.mapping.processor;
+
+import javax.lang.model.element.Element;
+
+/**
+ * A mapping the processor cannot generate, reported as a compile error on the element that declares it.
+ */
+class MappingException extends RuntimeException {
+    private final transient Element element;
+
+    MappingException(Element element, String message) {
+        super(message);
+        this.element = element;
+    }
+
+    Element getElement() {
+        return element;
+    }
+}
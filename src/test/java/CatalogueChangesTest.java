@@ -0,0 +1,118 @@
+import app.dtos.MovieDTO;
+import app.enums.HibernateConfigState;
+import app.persistence.CatalogueChange;
+import app.persistence.CatalogueChanges;
+import app.persistence.CatalogueListener;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Committed DAO writes must reach the {@link CatalogueListener}s of other nodes as {@link CatalogueChange}s naming
+ * the written entity, and never the listener of the node that wrote them.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CatalogueChangesTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private EntityManagerFactory emf;
+    private MovieDAO movieDAO;
+    // Stands in for another node: it only skips changes of a node that does not exist.
+    private CatalogueListener otherNode;
+    private CatalogueListener thisNode;
+    private final BlockingQueue<CatalogueChange> receivedByOtherNode = new LinkedBlockingQueue<>();
+    private final BlockingQueue<CatalogueChange> receivedByThisNode = new LinkedBlockingQueue<>();
+
+    @BeforeAll
+    void setUp() throws InterruptedException {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+        CatalogueChanges.setEnabled(true);
+        otherNode = CatalogueListener.start(emf, "other-node", receivedByOtherNode::addAll);
+        thisNode = CatalogueListener.start(emf, receivedByThisNode::addAll);
+        assertTrue(otherNode.awaitListening(TIMEOUT));
+        assertTrue(thisNode.awaitListening(TIMEOUT));
+    }
+
+    @AfterAll
+    void tearDown() {
+        otherNode.close();
+        thisNode.close();
+        CatalogueChanges.setEnabled(false);
+        emf.close();
+    }
+
+    @Test
+    void createAndDeleteAnnounceTheWrittenEntity() throws InterruptedException {
+        receivedByOtherNode.clear();
+        MovieDTO created = movieDAO.create(movie(810_001));
+        awaitChange(this::isMovieWrittenHere);
+
+        receivedByOtherNode.clear();
+        movieDAO.deleteAllByIds(List.of(created.getId()));
+        awaitChange(this::isMovieWrittenHere);
+    }
+
+    @Test
+    void bulkWritesAnnounceTheWrittenEntity() throws InterruptedException {
+        receivedByOtherNode.clear();
+        movieDAO.upsertAll(new ArrayList<>(List.of(movie(810_002))));
+
+        awaitChange(this::isMovieWrittenHere);
+    }
+
+    @Test
+    void aNodeIgnoresItsOwnChanges() throws InterruptedException {
+        receivedByOtherNode.clear();
+        movieDAO.create(movie(810_003));
+        awaitChange(this::isMovieWrittenHere);
+
+        // Both listeners were sent the same notification; the other node has already received it.
+        assertNull(receivedByThisNode.poll(1, TimeUnit.SECONDS));
+    }
+
+    private boolean isMovieWrittenHere(CatalogueChange change) {
+        return change.origin().equals(CatalogueChanges.nodeId()) && change.entity().equals("Movie");
+    }
+
+    private CatalogueChange awaitChange(Predicate<CatalogueChange> matching) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            CatalogueChange change = receivedByOtherNode.poll(100, TimeUnit.MILLISECONDS);
+            if (change != null && matching.test(change)) {
+                return change;
+            }
+        }
+        throw new AssertionError("No matching catalogue change within " + TIMEOUT);
+    }
+
+    private static MovieDTO movie(int tmdbId) {
+        return MovieDTO.builder()
+                .tmdbId(tmdbId)
+                .originalTitle("Announced " + tmdbId)
+                .releaseDate(LocalDate.of(2021, 3, 1))
+                .voteAverage(5)
+                .cast(new ArrayList<>())
+                .directors(new ArrayList<>())
+                .genres(List.of(35))
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.MovieDTO;
+import app.entities.Movie;
+import app.enums.MovieGenre;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The generated entity/DTO mappers must copy every field, keep the cast in order and never map knownFor. They
+ * never touch the database, so the DAOs are built without a factory.
+ */
+public class CatalogueMappingTest {
+    private final MovieDAO movieDAO = new MovieDAO(null, new ActorDAO(null), new DirectorDAO(null));
+
+    @Test
+    void movieSurvivesARoundTrip() {
+        MovieDTO dto = MovieDTO.builder()
+                .id(7)
+                .tmdbId(603)
+                .originalTitle("The Matrix")
+                .releaseDate(LocalDate.of(1999, 3, 30))
+                .voteAverage(8.2)
+                .cast(new ArrayList<>(List.of(actor(6384, "Keanu Reeves"), actor(2975, "Laurence Fishburne"))))
+                .directors(new ArrayList<>(List.of(DirectorDTO.builder().name("Lana Wachowski").gender(1).knownFor(new ArrayList<>()).build())))
+                .genres(new ArrayList<>(List.of(28, 878)))
+                .build();
+
+        Movie entity = movieDAO.toEntity(dto);
+        assertEquals(EnumSet.of(MovieGenre.ACTION, MovieGenre.SCIENCE_FICTION), entity.getGenreMask());
+        assertEquals(2, entity.getGenres().size());
+        assertTrue(entity.getCast().stream().allMatch(actor -> actor.getKnownFor().isEmpty()));
+
+        MovieDTO mapped = movieDAO.toDTO(entity);
+        assertEquals(7, mapped.getId());
+        assertEquals(603, mapped.getTmdbId());
+        assertEquals("The Matrix", mapped.getOriginalTitle());
+        assertEquals(LocalDate.of(1999, 3, 30), mapped.getReleaseDate());
+        assertEquals(8.2, mapped.getVoteAverage());
+        assertEquals(List.of("Keanu Reeves", "Laurence Fishburne"), mapped.getCast().stream().map(ActorDTO::getName).toList());
+        assertEquals(6384, mapped.getCast().get(0).getActorId());
+        assertEquals("Lana Wachowski", mapped.getDirectors().get(0).getName());
+        assertTrue(mapped.getCast().get(0).getKnownFor().isEmpty());
+        assertTrue(mapped.getGenres().isEmpty());
+    }
+
+    @Test
+    void nullMapsToNull() {
+        assertNull(movieDAO.toDTO(null));
+        assertNull(movieDAO.toEntity(null));
+    }
+
+    private static ActorDTO actor(int actorId, String name) {
+        return ActorDTO.builder().actorId(actorId).name(name).gender(2).knownFor(new ArrayList<>()).build();
+    }
+}
@@ -0,0 +1,124 @@
+import app.dtos.ActorDTO;
+import app.dtos.MovieDTO;
+import app.enums.HibernateConfigState;
+import app.enums.MovieGenre;
+import app.exceptions.JpaException;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import app.persistence.daos.SnapshotDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link SnapshotDAO} must restore the checked-in fixture as the whole catalogue, export it back byte for byte, and
+ * refuse snapshots of another format version without touching the catalogue.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CatalogueSnapshotTest {
+    private EntityManagerFactory emf;
+    private SnapshotDAO snapshotDAO;
+    private MovieDAO movieDAO;
+    private Path fixture;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        snapshotDAO = new SnapshotDAO(emf);
+        movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+        fixture = Path.of(CatalogueSnapshotTest.class.getResource("/fixtures/catalogue-v1.snapshot").toURI());
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void restoringTheFixtureReplacesTheCatalogue() {
+        movieDAO.create(movie(840_001));
+
+        Map<String, Long> restored = snapshotDAO.restore(fixture);
+
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("genres", 19L);
+        expected.put("actors", 5L);
+        expected.put("directors", 4L);
+        expected.put("movies", 5L);
+        expected.put("actors_movies", 7L);
+        expected.put("directors_movies", 4L);
+        expected.put("movie_genre", 8L);
+        assertEquals(expected, restored);
+        assertEquals(5, movieDAO.getAll().size());
+
+        MovieDTO apples = movieDAO.getById(3);
+        assertEquals("Adams æbler", apples.getOriginalTitle());
+        assertEquals(LocalDate.of(2005, 4, 15), apples.getReleaseDate());
+        assertEquals(Set.of("Ulrich Thomsen", "Mads Mikkelsen"),
+                Set.copyOf(apples.getCast().stream().map(ActorDTO::getName).toList()));
+        assertEquals(List.of(3, 4), movieDAO.getMoviesByGenres(Set.of(MovieGenre.COMEDY), 1, 10).stream()
+                .map(MovieDTO::getId).sorted().toList());
+
+        // The identities continue after the restored ids.
+        assertEquals(6, movieDAO.create(movie(840_002)).getId());
+    }
+
+    @Test
+    void exportingARestoredSnapshotGivesTheSameFile() throws Exception {
+        snapshotDAO.restore(fixture);
+        Path exported = Files.createTempFile("catalogue", ".snapshot");
+        try {
+            snapshotDAO.export(exported);
+
+            assertArrayEquals(Files.readAllBytes(fixture), Files.readAllBytes(exported));
+        } finally {
+            Files.deleteIfExists(exported);
+        }
+    }
+
+    @Test
+    void aSnapshotOfAnotherVersionIsRejected() throws Exception {
+        snapshotDAO.restore(fixture);
+        byte[] bytes = Files.readAllBytes(fixture);
+        ByteBuffer.wrap(bytes).putInt(4, 2);
+        Path future = Files.createTempFile("catalogue-v2", ".snapshot");
+        try {
+            Files.write(future, bytes);
+
+            assertThrows(JpaException.class, () -> snapshotDAO.restore(future));
+            assertEquals(5, movieDAO.getAll().size());
+        } finally {
+            Files.deleteIfExists(future);
+        }
+    }
+
+    private static MovieDTO movie(int tmdbId) {
+        return MovieDTO.builder()
+                .tmdbId(tmdbId)
+                .originalTitle("Before the restore " + tmdbId)
+                .releaseDate(LocalDate.of(2022, 5, 1))
+                .voteAverage(6)
+                .cast(new ArrayList<>())
+                .directors(new ArrayList<>())
+                .genres(List.of(18))
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.MovieDTO;
+import app.entities.Movie;
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Entity equals, hashCode and toString must work from the id and basic columns alone, so they never initialize
+ * an association.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EntityIdentityTest {
+    private EntityManagerFactory emf;
+    private int movieId;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        MovieDAO movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+        movieId = movieDAO.create(MovieDTO.builder()
+                .originalTitle("Identity Movie")
+                .releaseDate(LocalDate.of(2023, 5, 1))
+                .voteAverage(7)
+                .cast(List.of(ActorDTO.builder().name("Identity Actor").gender(1).build()))
+                .directors(List.of(DirectorDTO.builder().name("Identity Director").gender(2).build()))
+                .genres(List.of(18))
+                .build()).getId();
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void hashingAMovieTriggersNoSql() {
+        try (var em = emf.createEntityManager()) {
+            Movie movie = em.find(Movie.class, movieId);
+            Movie reference = em.getReference(Movie.class, movieId);
+
+            long statements = QueryBudget.count(emf, () -> {
+                Set<Movie> movies = new HashSet<>();
+                movies.add(movie);
+                assertTrue(movies.contains(reference));
+                assertTrue(movie.toString().contains("Identity Movie"));
+            });
+
+            assertEquals(0, statements);
+            assertFalse(Hibernate.isInitialized(movie.getCast()));
+            assertFalse(Hibernate.isInitialized(movie.getDirectors()));
+        }
+    }
+
+    @Test
+    void transientMoviesAreOnlyEqualToThemselves() {
+        Movie first = new Movie();
+        Movie second = new Movie();
+        assertEquals(first, first);
+        assertNotEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+}
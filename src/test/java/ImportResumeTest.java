@@ -0,0 +1,128 @@
+import app.entities.ImportJob;
+import app.enums.HibernateConfigState;
+import app.enums.ImportJobStatus;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ImportJobDAO;
+import app.services.ApiService;
+import app.services.ImportResult;
+import app.services.ImportSpec;
+import app.services.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import stub.SyntheticCatalogue;
+import stub.TmdbStubServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Checkpointing of {@link MovieService#saveMoviesToDatabase(int)}: an unfinished job is resumed without fetching
+ * its completed pages again, and movies already in the database are neither re-fetched nor re-inserted.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ImportResumeTest {
+    private EntityManagerFactory emf;
+    private TmdbStubServer stub;
+    private MovieService movieService;
+    private ImportJobDAO importJobDAO;
+
+    @BeforeAll
+    void setUp() {
+        stub = TmdbStubServer.start(new SyntheticCatalogue(7, 4, 200, 3), 0, 0, 0.0);
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieService = new MovieService(emf, new ApiService(stub.baseUrl(), "stub-key"));
+        importJobDAO = new ImportJobDAO(emf);
+    }
+
+    @AfterAll
+    void tearDown() {
+        stub.close();
+        emf.close();
+    }
+
+    @Test
+    void resumesUnfinishedJobAndSkipsImportedMovies() {
+        // A job that stopped after checkpointing page 1.
+        ImportJob interrupted = importJobDAO.startOrResume(2);
+        importJobDAO.completePage(interrupted.getId(), ImportSpec.defaults().key(), 1, 0);
+        importJobDAO.finish(interrupted.getId(), ImportJobStatus.FAILED);
+
+        int discoverBefore = stub.getDiscoverRequests();
+        ImportResult resumed = movieService.saveMoviesToDatabase(2);
+        assertEquals(interrupted.getId(), resumed.jobId());
+        assertEquals(1, resumed.pagesSkipped());
+        assertEquals(1, stub.getDiscoverRequests() - discoverBefore);
+        assertEquals(SyntheticCatalogue.MOVIES_PER_PAGE, resumed.moviesPersisted());
+
+        // Page 2 is in the database now, so a new job only fetches credits for pages 1 and 3.
+        int creditsBefore = stub.getCreditRequests();
+        long moviesBefore = countMovies();
+        ImportResult next = movieService.saveMoviesToDatabase(3);
+        assertEquals(SyntheticCatalogue.MOVIES_PER_PAGE, next.alreadyImported());
+        assertEquals(2 * SyntheticCatalogue.MOVIES_PER_PAGE, stub.getCreditRequests() - creditsBefore);
+        assertEquals(2 * SyntheticCatalogue.MOVIES_PER_PAGE, countMovies() - moviesBefore);
+        assertEquals(ImportJobStatus.COMPLETED, findJob(next.jobId()).getStatus());
+    }
+
+    @Test
+    void leavesJobsThatAreStillRunningAlone() {
+        ImportJob running = importJobDAO.startOrResume(1);
+        ImportJob started = importJobDAO.startOrResume(1);
+        assertNotEquals(running.getId(), started.getId());
+
+        // Once neither has checkpointed within the staleness window, both count as abandoned; the latest is resumed.
+        ageHeartbeat(running.getId(), 15);
+        ageHeartbeat(started.getId(), 15);
+        ImportJob resumed = importJobDAO.startOrResume(1);
+        assertEquals(started.getId(), resumed.getId());
+
+        importJobDAO.finish(running.getId(), ImportJobStatus.COMPLETED);
+        importJobDAO.finish(started.getId(), ImportJobStatus.COMPLETED);
+    }
+
+    @Test
+    void startsAfreshOnceAStoppedJobHasAged() {
+        // Failed longer than the staleness window ago.
+        ImportJob failed = importJobDAO.startOrResume(1);
+        importJobDAO.finish(failed.getId(), ImportJobStatus.FAILED);
+        ageHeartbeat(failed.getId(), 11);
+        ImportJob afterFailed = importJobDAO.startOrResume(1);
+        assertNotEquals(failed.getId(), afterFailed.getId());
+
+        // Abandoned, and then left for longer than the staleness window.
+        ageHeartbeat(afterFailed.getId(), 25);
+        ImportJob afterAbandoned = importJobDAO.startOrResume(1);
+        assertNotEquals(afterFailed.getId(), afterAbandoned.getId());
+
+        importJobDAO.finish(failed.getId(), ImportJobStatus.COMPLETED);
+        importJobDAO.finish(afterFailed.getId(), ImportJobStatus.COMPLETED);
+        importJobDAO.finish(afterAbandoned.getId(), ImportJobStatus.COMPLETED);
+    }
+
+    // Moves the job's last heartbeat into the past, as if it had stopped that many minutes ago.
+    private void ageHeartbeat(int jobId, int minutes) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery("UPDATE import_jobs SET heartbeat_at = heartbeat_at - make_interval(mins => :minutes) WHERE id = :id")
+                    .setParameter("minutes", minutes)
+                    .setParameter("id", jobId)
+                    .executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    private long countMovies() {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(m) FROM Movie m", Long.class).getSingleResult();
+        }
+    }
+
+    private ImportJob findJob(int id) {
+        try (var em = emf.createEntityManager()) {
+            return em.find(ImportJob.class, id);
+        }
+    }
+}
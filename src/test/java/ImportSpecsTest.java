@@ -0,0 +1,75 @@
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.services.ApiService;
+import app.services.ImportResult;
+import app.services.ImportSettings;
+import app.services.ImportSpec;
+import app.services.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import stub.SyntheticCatalogue;
+import stub.TmdbStubServer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several {@link ImportSpec}s imported in one run must each get their pages, and people appearing in more than one
+ * spec must be stored once and linked from the movies of every spec.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ImportSpecsTest {
+    private static final int PAGES = 2;
+
+    private EntityManagerFactory emf;
+    private TmdbStubServer stub;
+    private MovieService movieService;
+
+    @BeforeAll
+    void setUp() {
+        // A small pool of people, so the Danish and Swedish casts overlap.
+        stub = TmdbStubServer.start(new SyntheticCatalogue(5, PAGES, 60, 4), 0, 0, 0.0);
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieService = new MovieService(emf, new ApiService(stub.baseUrl(), "stub-key"));
+    }
+
+    @AfterAll
+    void tearDown() {
+        stub.close();
+        emf.close();
+    }
+
+    @Test
+    void importsSpecsConcurrentlyAndStoresSharedPeopleOnce() {
+        List<ImportSpec> specs = List.of(
+                ImportSpec.builder().language("da").pages(PAGES).build(),
+                ImportSpec.builder().language("sv").region("SE").pages(PAGES).build());
+
+        ImportResult result = movieService.saveMoviesToDatabase(specs, ImportSettings.defaults());
+
+        assertEquals(2 * PAGES, stub.getDiscoverRequests());
+        assertEquals(2 * PAGES * SyntheticCatalogue.MOVIES_PER_PAGE, result.moviesPersisted());
+        assertEquals(0, result.failures());
+        assertEquals(count("SELECT COUNT(DISTINCT actor_id) FROM actors"), count("SELECT COUNT(*) FROM actors"));
+        assertTrue(count("SELECT COUNT(*) FROM (SELECT am.actor_id FROM actors_movies am JOIN movies m ON m.id = am.movie_id "
+                + "GROUP BY am.actor_id HAVING MIN(m.tmdb_id) < 1000000 AND MAX(m.tmdb_id) > 1000000) shared") > 0,
+                "Expected actors linked to movies of both specs");
+
+        // A second job finds every movie of both specs stored and fetches no credits.
+        int creditsBefore = stub.getCreditRequests();
+        ImportResult again = movieService.saveMoviesToDatabase(specs, ImportSettings.defaults());
+        assertEquals(2 * PAGES * SyntheticCatalogue.MOVIES_PER_PAGE, again.alreadyImported());
+        assertEquals(creditsBefore, stub.getCreditRequests());
+    }
+
+    private long count(String sql) {
+        try (var em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import app.config.Lazy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class LazyTest {
+
+    @Test
+    void concurrentFirstCallsCreateOneValue() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        Lazy<Object> lazy = Lazy.of(() -> {
+            created.incrementAndGet();
+            // Widen the window in which a racing thread could slip past an unsynchronized null check.
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        });
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return lazy.get();
+            }));
+        }
+        start.countDown();
+
+        Object first = results.get(0).get();
+        for (Future<Object> result : results) {
+            assertSame(first, result.get());
+        }
+        assertEquals(1, created.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void ifCreatedDoesNotCreate() {
+        AtomicInteger created = new AtomicInteger();
+        Lazy<Object> lazy = Lazy.of(() -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+
+        lazy.ifCreated(value -> created.addAndGet(100));
+        assertEquals(0, created.get());
+    }
+}
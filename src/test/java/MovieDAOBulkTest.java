@@ -0,0 +1,107 @@
+import app.dtos.ActorDTO;
+import app.dtos.MovieDTO;
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * The bulk methods of {@link MovieDAO} must cost a fixed number of statements per batch, not per movie.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MovieDAOBulkTest {
+    private static final int MOVIES = 40;
+
+    private EntityManagerFactory emf;
+    private MovieDAO movieDAO;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void deleteAllByIdsRemovesMoviesAndJoinRowsWithoutLoadingThem() {
+        List<Integer> ids = movieDAO.createAll(movies(900_000)).stream().map(MovieDTO::getId).toList();
+
+        // One delete per join table and one for the movies, however many movies there are.
+        int deleted = QueryBudget.assertAtMost(emf, 4, () -> movieDAO.deleteAllByIds(ids));
+
+        assertEquals(MOVIES, deleted);
+        assertEquals(0L, count("SELECT COUNT(*) FROM movies WHERE id IN (:ids)", ids));
+        assertEquals(0L, count("SELECT COUNT(*) FROM actors_movies WHERE movie_id IN (:ids)", ids));
+        assertEquals(0L, count("SELECT COUNT(*) FROM movie_genre WHERE movie_id IN (:ids)", ids));
+    }
+
+    @Test
+    void updateAllWritesChangedColumnsInBatches() {
+        List<MovieDTO> created = movieDAO.createAll(movies(910_000));
+        created.forEach(movie -> movie.setVoteAverage(9.5));
+
+        // Loading the movies, their cast and directors, and the batched updates; nothing per movie.
+        QueryBudget.assertAtMost(emf, 12, () -> movieDAO.updateAll(created));
+
+        List<Integer> ids = created.stream().map(MovieDTO::getId).toList();
+        assertEquals((long) MOVIES, count("SELECT COUNT(*) FROM movies WHERE vote_average = 9.5 AND id IN (:ids)", ids));
+    }
+
+    @Test
+    void upsertAllUpdatesKnownTmdbIdsAndInsertsTheRest() {
+        MovieDTO existing = movieDAO.createAll(movies(920_000)).get(0);
+
+        MovieDTO changed = movie(existing.getTmdbId(), "Renamed");
+        MovieDTO added = movie(929_999, "Added");
+        movieDAO.upsertAll(List.of(changed, added));
+
+        assertEquals(existing.getId(), changed.getId());
+        assertNotEquals(0, added.getId());
+        assertEquals("Renamed", movieDAO.getById(existing.getId()).getOriginalTitle());
+        assertEquals("Added", movieDAO.getById(added.getId()).getOriginalTitle());
+    }
+
+    private static List<MovieDTO> movies(int firstTmdbId) {
+        return IntStream.range(0, MOVIES)
+                .mapToObj(i -> movie(firstTmdbId + i, "Bulk Movie " + (firstTmdbId + i)))
+                .toList();
+    }
+
+    private static MovieDTO movie(int tmdbId, String title) {
+        return MovieDTO.builder()
+                .tmdbId(tmdbId)
+                .originalTitle(title)
+                .releaseDate(LocalDate.of(2022, 5, 1))
+                .voteAverage(6)
+                .cast(new ArrayList<>(List.of(ActorDTO.builder().name(title + " Lead").gender(1).build())))
+                .directors(new ArrayList<>())
+                .genres(List.of(18))
+                .build();
+    }
+
+    private long count(String sql, List<Integer> ids) {
+        try (var em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery(sql)
+                    .setParameter("ids", ids)
+                    .getSingleResult()).longValue();
+        }
+    }
+}
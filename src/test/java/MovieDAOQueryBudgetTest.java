@@ -0,0 +1,72 @@
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.MovieDTO;
+import app.enums.HibernateConfigState;
+import app.enums.MovieSortOrder;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Statement budgets of the MovieDAO read paths. A budget that starts failing means a change introduced
+ * extra round trips, typically an N+1 on the cast or directors collections.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MovieDAOQueryBudgetTest {
+    private EntityManagerFactory emf;
+    private MovieDAO movieDAO;
+    private MovieDTO persistedMovie;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+
+        for (int i = 0; i < 3; i++) {
+            persistedMovie = movieDAO.create(MovieDTO.builder()
+                    .originalTitle("Budget Movie " + i)
+                    .releaseDate(LocalDate.of(2023, 1, 1 + i))
+                    .voteAverage(5 + i)
+                    .cast(List.of(ActorDTO.builder().name("Budget Actor " + i).gender(1).build()))
+                    .directors(List.of(DirectorDTO.builder().name("Budget Director " + i).gender(2).build()))
+                    .genres(List.of(18))
+                    .build());
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void getByIdLoadsMovieAndItsCollections() {
+        // The movie row plus one select each for cast and directors.
+        MovieDTO movie = QueryBudget.assertAtMost(emf, 3, () -> movieDAO.getById(persistedMovie.getId()));
+        assertEquals(persistedMovie.getOriginalTitle(), movie.getOriginalTitle());
+    }
+
+    @Test
+    void averageRatingIsASingleAggregate() {
+        QueryBudget.assertAtMost(emf, 1, () -> movieDAO.getTotalAverageRating());
+    }
+
+    @Test
+    void sortedPageStaysWithinBudget() {
+        List<MovieDTO> page = QueryBudget.assertAtMost(emf, 1 + 2 * 20,
+                () -> movieDAO.getAllSorted(MovieSortOrder.TITLE, 1, 20));
+        assertFalse(page.isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+import app.dtos.ActorDTO;
+import app.dtos.DirectorDTO;
+import app.dtos.MovieDTO;
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MovieDAO#update(MovieDTO)} must write only the join rows that changed. With list mappings Hibernate
+ * deleted every row of the movie and inserted them all again.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MovieDAOUpdateTest {
+    private EntityManagerFactory emf;
+    private MovieDAO movieDAO;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void replacingOneActorWritesOneDeleteAndOneInsert() {
+        MovieDTO created = movieDAO.create(MovieDTO.builder()
+                .originalTitle("Diff Movie")
+                .releaseDate(LocalDate.of(2023, 3, 1))
+                .voteAverage(6)
+                .cast(new ArrayList<>(List.of(actor("Actor A"), actor("Actor B"), actor("Actor C"))))
+                .directors(new ArrayList<>(List.of(DirectorDTO.builder().name("Diff Director").gender(2).build())))
+                .genres(List.of(18, 35))
+                .build());
+
+        MovieDTO movie = movieDAO.getById(created.getId());
+        List<ActorDTO> cast = new ArrayList<>(movie.getCast());
+        cast.removeIf(actor -> actor.getName().equals("Actor C"));
+        cast.add(actor("Actor D"));
+        movie.setCast(cast);
+
+        List<String> statements = StatementRecorder.record(() -> movieDAO.update(movie));
+
+        List<String> castWrites = writesTo(statements, "actors_movies");
+        assertEquals(2, castWrites.size(), "Cast writes: " + castWrites);
+        assertTrue(castWrites.stream().anyMatch(sql -> sql.startsWith("delete") && sql.contains("actor_id")),
+                "Expected a single-row delete, got: " + castWrites);
+        assertTrue(castWrites.stream().anyMatch(sql -> sql.startsWith("insert")), "Expected an insert, got: " + castWrites);
+        assertTrue(writesTo(statements, "directors_movies").isEmpty());
+        assertTrue(writesTo(statements, "movie_genre").isEmpty());
+
+        Set<String> names = movieDAO.getById(created.getId()).getCast().stream().map(ActorDTO::getName).collect(Collectors.toSet());
+        assertEquals(Set.of("Actor A", "Actor B", "Actor D"), names);
+        assertEquals(2L, countGenreRows(created.getId()));
+    }
+
+    private static ActorDTO actor(String name) {
+        return ActorDTO.builder().name(name).gender(1).build();
+    }
+
+    private static List<String> writesTo(List<String> statements, String table) {
+        return statements.stream()
+                .map(String::toLowerCase)
+                .filter(sql -> sql.startsWith("insert") || sql.startsWith("delete") || sql.startsWith("update"))
+                .filter(sql -> sql.contains(" " + table + " ") || sql.contains(" " + table + "("))
+                .toList();
+    }
+
+    private long countGenreRows(int movieId) {
+        try (var em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery("SELECT COUNT(*) FROM movie_genre WHERE movie_id = ?1")
+                    .setParameter(1, movieId)
+                    .getSingleResult()).longValue();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import app.dtos.MovieDTO;
+import app.enums.HibernateConfigState;
+import app.enums.MovieGenre;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@code movies.genre_mask} must always hold the same genres as the {@code movie_genre} join table, and the genre
+ * filter of {@link MovieDAO} must match on it.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MovieGenreMaskTest {
+    private EntityManagerFactory emf;
+    private MovieDAO movieDAO;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieDAO = new MovieDAO(emf, new ActorDAO(emf), new DirectorDAO(emf));
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void masksAreWrittenOnCreateAndUpdate() {
+        MovieDTO comedy = movieDAO.create(movie(830_001, 8.0, List.of(35, 28)));
+        assertEquals(MovieGenre.COMEDY.bit() | MovieGenre.ACTION.bit(), maskOf(comedy.getId()));
+
+        comedy.setGenres(List.of(99));
+        movieDAO.update(comedy);
+        assertEquals(MovieGenre.DOCUMENTARY.bit(), maskOf(comedy.getId()));
+        assertEquals(EnumSet.of(MovieGenre.DOCUMENTARY), MovieGenre.fromMask(maskOf(comedy.getId())));
+    }
+
+    @Test
+    void genreFilterMatchesAnyOfTheGenresHighestRatedFirst() {
+        MovieDTO drama = movieDAO.create(movie(830_101, 6.0, List.of(18)));
+        MovieDTO western = movieDAO.create(movie(830_102, 9.0, List.of(37, 53)));
+        movieDAO.create(movie(830_103, 7.0, List.of(10770)));
+
+        List<Integer> ids = movieDAO.getMoviesByGenres(EnumSet.of(MovieGenre.DRAMA, MovieGenre.WESTERN), 1, 10).stream()
+                .map(MovieDTO::getId)
+                .toList();
+
+        assertEquals(List.of(western.getId(), drama.getId()), ids);
+    }
+
+    private int maskOf(int movieId) {
+        try (var em = emf.createEntityManager()) {
+            return ((Number) em.createNativeQuery("SELECT genre_mask FROM movies WHERE id = :id")
+                    .setParameter("id", movieId)
+                    .getSingleResult()).intValue();
+        }
+    }
+
+    private static MovieDTO movie(int tmdbId, double voteAverage, List<Integer> genres) {
+        return MovieDTO.builder()
+                .tmdbId(tmdbId)
+                .originalTitle("Genre Movie " + tmdbId)
+                .releaseDate(LocalDate.of(2020, 1, 1))
+                .voteAverage(voteAverage)
+                .cast(new ArrayList<>())
+                .directors(new ArrayList<>())
+                .genres(genres)
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+import app.controllers.ResponseWriter;
+import app.dtos.MovieDTO;
+import app.dtos.MovieView;
+import app.entities.Actor;
+import app.entities.Director;
+import app.entities.Movie;
+import app.enums.MovieGenre;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MovieView}s must serialize like {@link MovieDTO}s while taking a fraction of their heap. The footprint is
+ * the size of the object graph the mapping adds to the entities, as laid out by JOL.
+ */
+public class MovieViewFootprintTest {
+    private static final int MOVIES = 20_000;
+    private static final int CAST_SIZE = 8;
+
+    // Mapping needs no database.
+    private final MovieDAO movieDAO = new MovieDAO(null, new ActorDAO(null), new DirectorDAO(null));
+
+    @Test
+    void viewsTakeLessThanHalfTheHeapOfDTOs() {
+        List<Movie> movies = movies();
+        GraphLayout entities = GraphLayout.parseInstance(movies);
+
+        long dtoBytes = GraphLayout.parseInstance(movies.stream().map(movieDAO::toDTO).toList()).subtract(entities).totalSize();
+        long viewBytes = GraphLayout.parseInstance(movieDAO.toViews(movies)).subtract(entities).totalSize();
+
+        assertTrue(viewBytes * 2 < dtoBytes, "views " + viewBytes + " bytes, DTOs " + dtoBytes + " bytes");
+    }
+
+    @Test
+    void viewsShareTheirPeopleAndSerializeLikeDTOs() {
+        List<MovieView> views = movieDAO.toViews(movies().subList(0, 2));
+        MovieView first = views.get(0);
+
+        // Both movies cast the same first actor.
+        assertSame(first.cast().get(0), views.get(1).cast().get(0));
+        // Genre ids are shared by every movie with the same genres, so nobody may change them.
+        assertSame(first.genreIds(), views.get(1).genreIds());
+        assertThrows(UnsupportedOperationException.class, () -> first.genreIds().add(18));
+        String json = new String(ResponseWriter.toJsonBytes(first), StandardCharsets.UTF_8);
+        assertEquals("{\"id\":" + first.tmdbId() + ",\"original_title\":\"Movie 0\",\"release_date\":\"2020-01-01\","
+                + "\"vote_average\":" + first.voteAverage() + ",\"genre_ids\":[28,35]}", json);
+    }
+
+    // Movies drawn from shared pools of people, as a catalogue's are.
+    private static List<Movie> movies() {
+        Random random = new Random(11);
+        List<Actor> actors = new ArrayList<>();
+        for (int i = 1; i <= 2_000; i++) {
+            Actor actor = new Actor();
+            actor.setId(i);
+            actor.setActorId(100_000 + i);
+            actor.setName("Actor " + i);
+            actors.add(actor);
+        }
+        List<Director> directors = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            Director director = new Director();
+            director.setId(i);
+            director.setName("Director " + i);
+            directors.add(director);
+        }
+        List<Movie> movies = new ArrayList<>(MOVIES);
+        for (int i = 0; i < MOVIES; i++) {
+            Movie movie = new Movie();
+            movie.setId(i + 1);
+            movie.setTmdbId(500_000 + i);
+            movie.setOriginalTitle("Movie " + i);
+            movie.setReleaseDate(LocalDate.of(2020, 1, 1).plusDays(i % 1_000));
+            movie.setVoteAverage(random.nextInt(100) / 10.0);
+            movie.setGenreMask(EnumSet.of(MovieGenre.ACTION, MovieGenre.COMEDY));
+            movie.getCast().add(actors.get(0));
+            while (movie.getCast().size() < CAST_SIZE) {
+                movie.getCast().add(actors.get(random.nextInt(actors.size())));
+            }
+            movie.getDirectors().add(directors.get(random.nextInt(directors.size())));
+            movies.add(movie);
+        }
+        return movies;
+    }
+}
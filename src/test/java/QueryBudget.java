@@ -0,0 +1,63 @@
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Asserts how many JDBC statements a DAO call may prepare. Relies on the statistics that
+ * {@code HibernateConfig} enables for the TEST state, and clears them before each measured call,
+ * so it must not be used from tests running in parallel.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Runs the call and fails if it prepared more than {@code maxStatements} statements.
+     *
+     * @return the result of the call
+     */
+    public static <T> T assertAtMost(EntityManagerFactory emf, long maxStatements, Supplier<T> call) {
+        Statistics statistics = statisticsOf(emf);
+        statistics.clear();
+        T result = call.get();
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= maxStatements,
+                "Expected at most " + maxStatements + " statements but " + statements + " were prepared: "
+                        + String.join(" | ", statistics.getQueries()));
+        return result;
+    }
+
+    /**
+     * Runs the call and fails if it prepared more than {@code maxStatements} statements.
+     */
+    public static void assertAtMost(EntityManagerFactory emf, long maxStatements, Runnable call) {
+        assertAtMost(emf, maxStatements, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the call and returns how many statements it prepared, for budgets that are reported rather than asserted.
+     */
+    public static long count(EntityManagerFactory emf, Runnable call) {
+        Statistics statistics = statisticsOf(emf);
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static Statistics statisticsOf(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            fail("Hibernate statistics are disabled; QueryBudget needs hibernate.generate_statistics=true.");
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,98 @@
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.services.ApiService;
+import app.services.ImportSettings;
+import app.services.ImportSpec;
+import app.services.MovieService;
+import app.services.RatingRefreshResult;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import stub.SyntheticCatalogue;
+import stub.TmdbStubServer;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link MovieService#refreshRatings(List)} must read only the discover pages of every spec it is given and write
+ * the new vote averages of movies that are already stored.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RatingRefreshTest {
+    private static final int PAGES = 2;
+
+    private EntityManagerFactory emf;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void refreshFetchesNoCreditsAndUpdatesVoteAverages() {
+        try (TmdbStubServer imported = TmdbStubServer.start(new SyntheticCatalogue(21, PAGES, 100, 2), 0, 0, 0.0)) {
+            new MovieService(emf, new ApiService(imported.baseUrl(), "stub-key")).saveMoviesToDatabase(PAGES);
+        }
+
+        // Same movies, but another seed gives them other ratings.
+        SyntheticCatalogue rerated = new SyntheticCatalogue(22, PAGES, 100, 2);
+        try (TmdbStubServer stub = TmdbStubServer.start(rerated, 0, 0, 0.0)) {
+            RatingRefreshResult result = new MovieService(emf, new ApiService(stub.baseUrl(), "stub-key")).refreshRatings(PAGES);
+
+            assertEquals(PAGES, stub.getDiscoverRequests());
+            assertEquals(0, stub.getCreditRequests());
+            assertEquals(PAGES * SyntheticCatalogue.MOVIES_PER_PAGE, result.moviesSeen());
+            assertEquals(0, result.failures());
+        }
+
+        for (int page = 1; page <= PAGES; page++) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> results = (List<Map<String, Object>>) rerated.discoverPage(page).get("results");
+            for (Map<String, Object> movie : results) {
+                assertEquals((Double) movie.get("vote_average"), storedVoteAverage((Integer) movie.get("id")), 0.0001);
+            }
+        }
+    }
+
+    @Test
+    void refreshCoversEverySpec() {
+        ImportSpec swedish = ImportSpec.builder().language("sv").pages(1).build();
+        try (TmdbStubServer imported = TmdbStubServer.start(new SyntheticCatalogue(21, 1, 100, 2), 0, 0, 0.0)) {
+            new MovieService(emf, new ApiService(imported.baseUrl(), "stub-key"))
+                    .saveMoviesToDatabase(List.of(swedish), ImportSettings.defaults());
+        }
+
+        SyntheticCatalogue rerated = new SyntheticCatalogue(22, 1, 100, 2);
+        try (TmdbStubServer stub = TmdbStubServer.start(rerated, 0, 0, 0.0)) {
+            RatingRefreshResult result = new MovieService(emf, new ApiService(stub.baseUrl(), "stub-key"))
+                    .refreshRatings(List.of(ImportSpec.builder().pages(1).build(), swedish));
+
+            assertEquals(2, stub.getDiscoverRequests());
+            assertEquals(2 * SyntheticCatalogue.MOVIES_PER_PAGE, result.moviesSeen());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> results = (List<Map<String, Object>>) rerated.discoverPage(1, "sv").get("results");
+        for (Map<String, Object> movie : results) {
+            assertEquals((Double) movie.get("vote_average"), storedVoteAverage((Integer) movie.get("id")), 0.0001);
+        }
+    }
+
+    private double storedVoteAverage(int tmdbId) {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT m.voteAverage FROM Movie m WHERE m.tmdbId = :tmdbId", Double.class)
+                    .setParameter("tmdbId", tmdbId)
+                    .getSingleResult();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import app.cache.ResponseCache;
+import app.dtos.MovieDTO;
+import app.persistence.HibernateConfig;
+import app.persistence.ReadRouting;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.DirectorDAO;
+import app.persistence.daos.MovieDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.containers.Container;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * With a primary and a hot standby in streaming replication, the DAOs must read from the standby, write to the
+ * primary, and read their own writes from the primary inside {@link ReadRouting#readYourWrites} or once the standby
+ * lags by more than the bound. What was cached from the lagging standby must not outlive its catching up.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReadReplicaTest {
+    private static final String IMAGE = "postgres:15.3-alpine3.18";
+    private static final Duration MAX_LAG = Duration.ofSeconds(2);
+    // Clones the primary and starts as a standby of it; pg_basebackup -R writes standby.signal and the connection info.
+    private static final String STANDBY_SCRIPT = """
+            until pg_basebackup -h primary -U test -D "$PGDATA" -R -X stream; do sleep 1; done
+            chown -R postgres:postgres "$PGDATA" && chmod 700 "$PGDATA"
+            exec su-exec postgres postgres
+            """;
+
+    private Network network;
+    private PostgreSQLContainer<?> primary;
+    private GenericContainer<?> standby;
+    private EntityManagerFactory primaryEmf;
+    private EntityManagerFactory replicaEmf;
+    private MovieDAO movieDAO;
+    private Duration defaultMaxLag;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        network = Network.newNetwork();
+        primary = new PostgreSQLContainer<>(IMAGE).withNetwork(network).withNetworkAliases("primary");
+        primary.start();
+        // wal_level and max_wal_senders already default to what streaming needs; only the login has to be allowed.
+        exec(primary, "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"");
+        exec(primary, "psql -U test -d test -c 'SELECT pg_reload_conf()'");
+        primaryEmf = HibernateConfig.createPrimaryFactory(primary.getJdbcUrl(), primary.getUsername(), primary.getPassword());
+
+        standby = new GenericContainer<>(IMAGE)
+                .withNetwork(network)
+                .withEnv("PGPASSWORD", primary.getPassword())
+                .withExposedPorts(5432)
+                .withCommand("sh", "-c", STANDBY_SCRIPT)
+                .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                        .withStartupTimeout(Duration.ofMinutes(2)));
+        standby.start();
+        replicaEmf = HibernateConfig.createReplicaFactory(standbyUrl(), primary.getUsername(), primary.getPassword());
+
+        movieDAO = new MovieDAO(primaryEmf, replicaEmf, new ActorDAO(primaryEmf, replicaEmf), new DirectorDAO(primaryEmf, replicaEmf));
+        defaultMaxLag = ReadRouting.maxReplicaLag();
+        ReadRouting.setMaxReplicaLag(MAX_LAG);
+    }
+
+    @AfterAll
+    void tearDown() {
+        ReadRouting.setMaxReplicaLag(defaultMaxLag);
+        replicaEmf.close();
+        primaryEmf.close();
+        standby.stop();
+        primary.stop();
+        network.close();
+    }
+
+    @Test
+    void readsGoToTheReplicaUnlessTheCallerAsksToReadItsWrites() throws Exception {
+        MovieDTO replicated = movieDAO.create(movie(700_001));
+        awaitOnReplica(replicated.getTmdbId());
+
+        // With replay paused the replica keeps serving, but no longer sees new writes.
+        onStandby("SELECT pg_wal_replay_pause()");
+        try {
+            // Written behind the DAOs' back, so the catalogue version does not move and reads stay on the replica.
+            int unannounced = insertOnPrimary(700_002);
+
+            assertNull(movieDAO.getById(unannounced));
+            assertNotNull(ReadRouting.readYourWrites(() -> movieDAO.getById(unannounced)));
+            // The scope ends with the call.
+            assertNull(movieDAO.getById(unannounced));
+        } finally {
+            onStandby("SELECT pg_wal_replay_resume()");
+        }
+    }
+
+    @Test
+    void readsMoveToThePrimaryOnceTheReplicaLagsPastTheBound() throws Exception {
+        awaitReadsOnTheReplica();
+        onStandby("SELECT pg_wal_replay_pause()");
+        try {
+            MovieDTO created = movieDAO.create(movie(700_004));
+
+            // Within the bound the replica keeps serving reads, as it was before the write.
+            assertNull(movieDAO.getById(created.getId()));
+            await("reads to move to the primary", () -> movieDAO.getById(created.getId()) != null);
+        } finally {
+            onStandby("SELECT pg_wal_replay_resume()");
+        }
+    }
+
+    @Test
+    void responsesCachedWhileTheReplicaLaggedAreReloadedOnceItCatchesUp() throws Exception {
+        ResponseCache cache = new ResponseCache(16, false);
+        MovieDTO created;
+        awaitReadsOnTheReplica();
+        onStandby("SELECT pg_wal_replay_pause()");
+        try {
+            created = movieDAO.create(movie(700_005));
+
+            assertFalse(cachedTitles(cache).contains(created.getOriginalTitle()));
+        } finally {
+            onStandby("SELECT pg_wal_replay_resume()");
+        }
+        await("the cached listing to be reloaded", () -> cachedTitles(cache).contains(created.getOriginalTitle()));
+    }
+
+    @Test
+    void theReplicaFactoryRefusesWrites() {
+        MovieDAO misrouted = new MovieDAO(replicaEmf, new ActorDAO(replicaEmf), new DirectorDAO(replicaEmf));
+
+        assertThrows(RuntimeException.class, () -> misrouted.create(movie(700_003)));
+    }
+
+    // Asks the standby itself, whatever the DAOs' routing does meanwhile.
+    private void awaitOnReplica(int tmdbId) throws Exception {
+        await("movie " + tmdbId + " to reach the replica", () -> existsOnStandby(tmdbId));
+    }
+
+    // Another test may have left the replica lagging; it is routed to again once it has caught up.
+    private void awaitReadsOnTheReplica() throws Exception {
+        await("reads to return to the replica", () -> ReadRouting.forReads(primaryEmf, replicaEmf) == replicaEmf);
+    }
+
+    private static void await(String what, Condition condition) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.holds()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for " + what);
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private interface Condition {
+        boolean holds() throws Exception;
+    }
+
+    private boolean existsOnStandby(int tmdbId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(standbyUrl(), primary.getUsername(), primary.getPassword());
+             PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM movies WHERE tmdb_id = ?")) {
+            statement.setInt(1, tmdbId);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+
+    private int insertOnPrimary(int tmdbId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(primary.getJdbcUrl(), primary.getUsername(), primary.getPassword());
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO movies (tmdb_id, original_title, release_date, vote_average) VALUES (?, ?, ?, ?) RETURNING id")) {
+            statement.setInt(1, tmdbId);
+            statement.setString(2, "Unannounced " + tmdbId);
+            statement.setObject(3, LocalDate.of(2023, 2, 1));
+            statement.setDouble(4, 7);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getInt(1);
+            }
+        }
+    }
+
+    private String cachedTitles(ResponseCache cache) {
+        return new String(cache.get("movies", movieDAO::getAllViews).json(), StandardCharsets.UTF_8);
+    }
+
+    private String standbyUrl() {
+        return "jdbc:postgresql://" + standby.getHost() + ":" + standby.getMappedPort(5432) + "/" + primary.getDatabaseName();
+    }
+
+    private void onStandby(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(standbyUrl(), primary.getUsername(), primary.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void exec(GenericContainer<?> container, String command) throws Exception {
+        Container.ExecResult result = container.execInContainer("sh", "-c", command);
+        assertEquals(0, result.getExitCode(), result.getStderr());
+    }
+
+    private static MovieDTO movie(int tmdbId) {
+        return MovieDTO.builder()
+                .tmdbId(tmdbId)
+                .originalTitle("Replicated " + tmdbId)
+                .releaseDate(LocalDate.of(2023, 2, 1))
+                .voteAverage(7)
+                .cast(new ArrayList<>())
+                .directors(new ArrayList<>())
+                .genres(List.of(18))
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The test factory is built on top of the Flyway migrations with {@code hbm2ddl.auto=validate}, so building it at
+ * all proves the migrations match the entity mappings. These tests pin down what validation cannot see.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SchemaMigrationsTest {
+    private EntityManagerFactory emf;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void appliesEveryMigration() {
+        try (var em = emf.createEntityManager()) {
+            Object version = em.createNativeQuery("SELECT max(version::int) FROM flyway_schema_history WHERE success")
+                    .getSingleResult();
+            assertEquals(8, ((Number) version).intValue());
+        }
+    }
+
+    @Test
+    void createsReadPathIndexes() {
+        try (var em = emf.createEntityManager()) {
+            @SuppressWarnings("unchecked")
+            List<String> indexes = em.createNativeQuery("SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()")
+                    .getResultList();
+            for (String index : List.of("idx_movies_vote_average", "idx_movies_original_title", "idx_movies_release_date",
+                    "uk_actors_actor_id", "idx_actors_movies_actor_id", "idx_directors_movies_director_id", "idx_movie_genre_genre_id")) {
+                assertTrue(indexes.contains(index), "Missing index " + index);
+            }
+        }
+    }
+}
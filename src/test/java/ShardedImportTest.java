@@ -0,0 +1,106 @@
+import app.enums.HibernateConfigState;
+import app.services.ImportSpec;
+import app.services.ShardedImport;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import stub.SyntheticCatalogue;
+import stub.TmdbStubServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several worker processes of a {@link ShardedImport} against one database must import every page once between
+ * them, and take over the shard of a worker that died holding its lease.
+ */
+public class ShardedImportTest {
+    private static final int WORKERS = 3;
+    private static final int PAGES = 8;
+    private static final int PAGES_PER_SHARD = 2;
+
+    @Test
+    void workersShareTheShardsAndReclaimExpiredLeases() throws Exception {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15.3-alpine3.18");
+             TmdbStubServer stub = TmdbStubServer.start(new SyntheticCatalogue(13, PAGES, 150, 3), 20, 10, 0.0)) {
+            postgres.start();
+            Flyway.configure()
+                    .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                    .locations("classpath:db/migration")
+                    .load()
+                    .migrate();
+
+            // A worker that claimed the first shard and died: its lease ran out a minute ago.
+            update(postgres, "INSERT INTO import_leases (spec, first_page, last_page, owner, lease_expires_at) VALUES ('"
+                    + ImportSpec.defaults().key() + "', 1, " + PAGES_PER_SHARD + ", 'dead-worker', "
+                    + "(now() AT TIME ZONE 'UTC') - interval '1 minute')");
+
+            // Output goes to files, so a worker with a full pipe cannot stall while the others wait for its shards.
+            List<Path> logs = new ArrayList<>();
+            List<Process> workers = new ArrayList<>();
+            for (int i = 0; i < WORKERS; i++) {
+                Path log = Files.createTempFile("sharded-import-worker-", ".log");
+                logs.add(log);
+                workers.add(startWorker(postgres, stub, log));
+            }
+            for (int i = 0; i < WORKERS; i++) {
+                int exitCode = workers.get(i).waitFor();
+                String output = Files.readString(logs.get(i));
+                assertEquals(0, exitCode, "Worker failed:\n" + output);
+                assertTrue(output.contains("SHARDS owner="), output);
+                Files.delete(logs.get(i));
+            }
+
+            assertEquals(0L, query(postgres, "SELECT COUNT(*) FROM import_leases WHERE completed_at IS NULL"));
+            assertEquals(0L, query(postgres, "SELECT COUNT(*) FROM import_leases WHERE owner = 'dead-worker'"));
+            assertEquals((long) PAGES * SyntheticCatalogue.MOVIES_PER_PAGE, query(postgres, "SELECT COUNT(*) FROM movies"));
+            assertEquals(query(postgres, "SELECT COUNT(DISTINCT tmdb_id) FROM movies"), query(postgres, "SELECT COUNT(*) FROM movies"));
+            assertEquals(query(postgres, "SELECT COUNT(DISTINCT actor_id) FROM actors"), query(postgres, "SELECT COUNT(*) FROM actors"));
+            assertEquals(query(postgres, "SELECT COUNT(DISTINCT name) FROM directors"), query(postgres, "SELECT COUNT(*) FROM directors"));
+        }
+    }
+
+    private static Process startWorker(PostgreSQLContainer<?> postgres, TmdbStubServer stub, Path log) throws IOException {
+        List<String> command = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), ShardedImport.class.getName(),
+                HibernateConfigState.TEST.name(), String.valueOf(PAGES), String.valueOf(PAGES_PER_SHARD));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile());
+        // The TEST_DB_* branch of HibernateConfig connects to the shared container instead of starting its own.
+        Map<String, String> env = builder.environment();
+        env.put("TEST_DB_URL", "jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getFirstMappedPort() + "/");
+        env.put("TEST_DB_NAME", postgres.getDatabaseName());
+        env.put("TEST_DB_USERNAME", postgres.getUsername());
+        env.put("TEST_DB_PASSWORD", postgres.getPassword());
+        env.put("TMDB_BASE_URL", stub.baseUrl());
+        env.put("TMDB_API_KEY", "stub-key");
+        return builder.start();
+    }
+
+    private static void update(PostgreSQLContainer<?> postgres, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    private static long query(PostgreSQLContainer<?> postgres, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import app.cache.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+    private static final int THREADS = 16;
+
+    @Test
+    void concurrentCallersShareOneRun() throws Exception {
+        SingleFlight<Integer> singleFlight = new SingleFlight<>("test");
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Object>> results = runConcurrently(() -> singleFlight.execute(42, () -> {
+            runs.incrementAndGet();
+            await(release);
+            return new Object();
+        }), singleFlight, release);
+
+        Object first = results.get(0).get();
+        for (Future<Object> result : results) {
+            assertSame(first, result.get());
+        }
+        assertEquals(1, runs.get());
+        assertEquals(0, singleFlight.inFlight());
+
+        // Completed flights are forgotten; the next call runs the work again.
+        singleFlight.execute(42, runs::incrementAndGet);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void failureReachesEveryCaller() throws Exception {
+        SingleFlight<String> singleFlight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Object>> results = runConcurrently(() -> singleFlight.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        }), singleFlight, release);
+
+        for (Future<Object> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals(0, singleFlight.waiting());
+    }
+
+    // Starts the callers together and releases the work once every caller but the one running it has joined the flight.
+    private static List<Future<Object>> runConcurrently(Callable<Object> call, SingleFlight<?> singleFlight, CountDownLatch release)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return call.call();
+            }));
+        }
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.waiting() < THREADS - 1) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Only " + singleFlight.waiting() + " of " + (THREADS - 1) + " callers joined the flight");
+            }
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
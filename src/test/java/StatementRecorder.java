@@ -0,0 +1,51 @@
+import app.persistence.HibernateConfig;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL Hibernate prepares on the current thread while {@link #record(Runnable)} runs, so
+ * statement-shape tests can assert which rows a DAO call writes, not just how many statements it prepares.
+ * Surefire registers it with the TEST factory through the {@code app.test.statement_inspector} system property;
+ * see {@code HibernateConfig}.
+ */
+public class StatementRecorder implements StatementInspector {
+    private static final ThreadLocal<List<String>> recording = new ThreadLocal<>();
+    private static volatile boolean registered;
+
+    // Instantiated by Hibernate when it builds a factory with this inspector.
+    public StatementRecorder() {
+        registered = true;
+    }
+
+    /**
+     * Runs the call and returns the statements it prepared, in order. A batched statement is recorded once.
+     *
+     * @param call the code to observe
+     * @return the SQL of every prepared statement
+     */
+    public static List<String> record(Runnable call) {
+        if (!registered) {
+            throw new IllegalStateException("StatementRecorder is not registered; run with -D"
+                    + HibernateConfig.STATEMENT_INSPECTOR_PROPERTY + "=" + StatementRecorder.class.getName());
+        }
+        List<String> statements = new ArrayList<>();
+        recording.set(statements);
+        try {
+            call.run();
+        } finally {
+            recording.remove();
+        }
+        return statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = recording.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,126 @@
+import app.dtos.ActorDTO;
+import app.dtos.GenreDTO;
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.GenreDAO;
+import app.persistence.daos.WriteBehindBuffer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A {@link WriteBehindBuffer} must commit concurrent writes together, hand back the stored ids, and fail only the
+ * writes that fail on their own.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WriteBehindBufferTest {
+    private static final int WRITERS = 8;
+    private static final int WRITES_PER_WRITER = 25;
+
+    private EntityManagerFactory emf;
+    private ActorDAO actorDAO;
+    private WriteBehindBuffer<ActorDTO> buffer;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        actorDAO = new ActorDAO(emf);
+        buffer = new WriteBehindBuffer<>("test-actors", actorDAO, 50, Duration.ofMillis(20), 1_000);
+    }
+
+    @AfterAll
+    void tearDown() {
+        buffer.close();
+        emf.close();
+    }
+
+    @Test
+    void concurrentCreatesShareTransactions() throws Exception {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        List<CompletableFuture<ActorDTO>> created = new ArrayList<>();
+        try {
+            List<CompletableFuture<List<CompletableFuture<ActorDTO>>>> submitted = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                submitted.add(CompletableFuture.supplyAsync(() -> {
+                    List<CompletableFuture<ActorDTO>> futures = new ArrayList<>();
+                    for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                        futures.add(buffer.create(actor("Buffered " + writer + "-" + i)));
+                    }
+                    return futures;
+                }, writers));
+            }
+            for (CompletableFuture<List<CompletableFuture<ActorDTO>>> futures : submitted) {
+                created.addAll(futures.join());
+            }
+            CompletableFuture.allOf(created.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            writers.shutdown();
+        }
+
+        created.forEach(future -> assertNotEquals(0, future.join().getId()));
+        long transactions = statistics.getTransactionCount();
+        assertTrue(transactions <= WRITERS * WRITES_PER_WRITER / 10,
+                "Expected the writes to be grouped, but " + transactions + " transactions committed them");
+    }
+
+    @Test
+    void aFailingWriteDoesNotFailTheRestOfItsBatch() {
+        ActorDTO stored = actorDAO.create(actor("Before"));
+        stored.setName("After");
+        ActorDTO missing = actor("Missing");
+        missing.setId(Integer.MAX_VALUE);
+
+        CompletableFuture<ActorDTO> good = buffer.update(stored);
+        CompletableFuture<ActorDTO> bad = buffer.update(missing);
+
+        assertEquals("After", good.join().getName());
+        assertThrows(CompletionException.class, bad::join);
+        assertEquals("After", actorDAO.getById(stored.getId()).getName());
+    }
+
+    @Test
+    void bufferedGenresGetTheirDatabaseIds() {
+        List<CompletableFuture<GenreDTO>> created = new ArrayList<>();
+        try (WriteBehindBuffer<GenreDTO> genres = new WriteBehindBuffer<>("test-genres", new GenreDAO(emf), 50, Duration.ofMillis(20), 1_000)) {
+            for (int i = 0; i < 5; i++) {
+                created.add(genres.create(GenreDTO.builder().genreName("Buffered " + i).build()));
+            }
+            CompletableFuture.allOf(created.toArray(CompletableFuture[]::new)).join();
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (CompletableFuture<GenreDTO> future : created) {
+            GenreDTO genre = future.join();
+            assertNotEquals(0, genre.getId());
+            assertTrue(ids.add(genre.getId()), "Genre id " + genre.getId() + " was handed out twice");
+        }
+    }
+
+    private static ActorDTO actor(String name) {
+        return ActorDTO.builder().name(name).gender(2).build();
+    }
+}
@@ -0,0 +1,205 @@
+package benchmark;
+
+import app.enums.HibernateConfigState;
+import app.enums.MovieGenre;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.GenreDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the two ways a movie's genres are stored: rows in the {@code movie_genre} join table, and bits of
+ * {@code movies.genre_mask}. Measures the cost of inserting a catalogue's genres each way, and the latency of the
+ * highest rated page of a genre, by join and by bit test. Excluded from the default build; run it with
+ * {@code mvn test -Pbenchmark}.
+ *
+ * Tunables are read from system properties: {@code benchmark.movies}, {@code benchmark.iterations} and
+ * {@code benchmark.queries}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class GenreStorageBenchmarkTest {
+    private static final int MOVIES = Integer.getInteger("benchmark.movies", 100_000);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 3);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 200);
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 1_000;
+
+    private static final String BY_JOIN = "SELECT m.id FROM movies m WHERE EXISTS (SELECT 1 FROM movie_genre mg " +
+            "JOIN genres g ON g.id = mg.genre_id WHERE mg.movie_id = m.id AND g.genre = ?) " +
+            "ORDER BY m.vote_average DESC, m.id LIMIT " + PAGE_SIZE;
+    private static final String BY_MASK = "SELECT m.id FROM movies m WHERE m.genre_mask & ? <> 0 " +
+            "ORDER BY m.vote_average DESC, m.id LIMIT " + PAGE_SIZE;
+
+    private EntityManagerFactory emf;
+    private final Map<MovieGenre, Integer> genreIds = new EnumMap<>(MovieGenre.class);
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        new GenreDAO(emf).persistKnownGenres();
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT id, genre FROM genres");
+                 ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    genreIds.put(MovieGenre.valueOf(rows.getString(2)), rows.getInt(1));
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void benchmarkGenreStorage() {
+        long joinNanos = 0;
+        long maskNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            joinNanos += insertCatalogue(true, false);
+            maskNanos += insertCatalogue(false, true);
+        }
+
+        // Both representations of the same catalogue, so both queries see identical data.
+        insertCatalogue(true, true);
+        withConnection(connection -> connection.createStatement().execute("ANALYZE movies, movie_genre"));
+        // Also the warm-up: both queries must return the same page.
+        for (MovieGenre genre : MovieGenre.values()) {
+            assertEquals(page(BY_JOIN, genre), page(BY_MASK, genre), genre.name());
+        }
+        long joinQueryNanos = 0;
+        long maskQueryNanos = 0;
+        for (MovieGenre genre : MovieGenre.values()) {
+            joinQueryNanos += queryNanos(BY_JOIN, genre, QUERIES);
+            maskQueryNanos += queryNanos(BY_MASK, genre, QUERIES);
+        }
+        int queries = QUERIES * MovieGenre.values().length;
+
+        System.out.printf("Genre storage benchmark: movies=%d insert joinTable=%.0fms genreMask=%.0fms " +
+                        "query joinTable=%.3fms genreMask=%.3fms%n",
+                MOVIES, joinNanos / 1e6 / ITERATIONS, maskNanos / 1e6 / ITERATIONS,
+                joinQueryNanos / 1e6 / queries, maskQueryNanos / 1e6 / queries);
+    }
+
+    // Inserts the catalogue from scratch with the chosen representations and returns how long that took.
+    private long insertCatalogue(boolean joinRows, boolean mask) {
+        long[] elapsed = new long[1];
+        withConnection(connection -> {
+            connection.createStatement().execute("TRUNCATE movies, actors_movies, directors_movies, movie_genre");
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            try (PreparedStatement movies = connection.prepareStatement(
+                    "INSERT INTO movies (id, tmdb_id, original_title, release_date, vote_average, genre_mask) VALUES (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement links = connection.prepareStatement("INSERT INTO movie_genre (movie_id, genre_id) VALUES (?, ?)")) {
+                for (int id = 1; id <= MOVIES; id++) {
+                    EnumSet<MovieGenre> genres = randomGenres(random);
+                    movies.setInt(1, id);
+                    movies.setInt(2, id);
+                    movies.setString(3, "Movie " + id);
+                    movies.setDate(4, Date.valueOf("2020-01-01"));
+                    movies.setDouble(5, random.nextInt(100) / 10.0);
+                    movies.setInt(6, mask ? MovieGenre.toMask(genres) : 0);
+                    movies.addBatch();
+                    if (joinRows) {
+                        for (MovieGenre genre : genres) {
+                            links.setInt(1, id);
+                            links.setInt(2, genreIds.get(genre));
+                            links.addBatch();
+                        }
+                    }
+                    if (id % BATCH_SIZE == 0 || id == MOVIES) {
+                        movies.executeBatch();
+                        if (joinRows) links.executeBatch();
+                    }
+                }
+            }
+            elapsed[0] = System.nanoTime() - start;
+        });
+        return elapsed[0];
+    }
+
+    private List<Integer> page(String sql, MovieGenre genre) {
+        List<Integer> ids = new ArrayList<>();
+        withConnection(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql, genre);
+                 ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    ids.add(rows.getInt(1));
+                }
+            }
+        });
+        return ids;
+    }
+
+    private long queryNanos(String sql, MovieGenre genre, int times) {
+        long[] elapsed = new long[1];
+        withConnection(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql, genre)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < times; i++) {
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            rows.getInt(1);
+                        }
+                    }
+                }
+                elapsed[0] = System.nanoTime() - start;
+            }
+        });
+        return elapsed[0];
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, MovieGenre genre) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (sql.equals(BY_JOIN)) {
+            statement.setString(1, genre.name());
+        } else {
+            statement.setInt(1, genre.bit());
+        }
+        return statement;
+    }
+
+    // One to three distinct genres, like most TMDB movies.
+    private static EnumSet<MovieGenre> randomGenres(Random random) {
+        MovieGenre[] all = MovieGenre.values();
+        EnumSet<MovieGenre> genres = EnumSet.noneOf(MovieGenre.class);
+        int count = 1 + random.nextInt(3);
+        while (genres.size() < count) {
+            genres.add(all[random.nextInt(all.length)]);
+        }
+        return genres;
+    }
+
+    private void withConnection(Work work) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(work::execute);
+            em.getTransaction().commit();
+        }
+    }
+
+    private interface Work {
+        void execute(Connection connection) throws SQLException;
+    }
+}
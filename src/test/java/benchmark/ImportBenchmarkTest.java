@@ -0,0 +1,111 @@
+package benchmark;
+
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.services.ApiService;
+import app.services.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import stub.SyntheticCatalogue;
+import stub.TmdbStubServer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end benchmark of {@link MovieService#saveMoviesToDatabase(int)} against the local TMDB stub and the
+ * Testcontainers database. Excluded from the default build; run it with {@code mvn test -Pbenchmark}.
+ *
+ * Tunables are read from system properties: {@code benchmark.iterations}, {@code benchmark.warmups},
+ * {@code benchmark.pages}, {@code stub.latencyMs}, {@code stub.jitterMs} and {@code stub.errorRate}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ImportBenchmarkTest {
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5);
+    private static final int WARMUPS = Integer.getInteger("benchmark.warmups", 1);
+    private static final int PAGES = Integer.getInteger("benchmark.pages", 10);
+
+    private EntityManagerFactory emf;
+    private TmdbStubServer stub;
+    private MovieService movieService;
+
+    @BeforeAll
+    void setUp() {
+        SyntheticCatalogue catalogue = new SyntheticCatalogue(42, PAGES, 2_000, 15);
+        stub = TmdbStubServer.start(catalogue,
+                Integer.getInteger("stub.latencyMs", 20),
+                Integer.getInteger("stub.jitterMs", 10),
+                Double.parseDouble(System.getProperty("stub.errorRate", "0.0")));
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        movieService = new MovieService(emf, new ApiService(stub.baseUrl(), "stub-key"));
+    }
+
+    @AfterAll
+    void tearDown() {
+        stub.close();
+        emf.close();
+    }
+
+    @Test
+    void benchmarkSaveMoviesToDatabase() {
+        for (int i = 0; i < WARMUPS; i++) {
+            clearCatalogue();
+            movieService.saveMoviesToDatabase(PAGES);
+        }
+
+        List<Long> latenciesNanos = new ArrayList<>();
+        long importedMovies = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            clearCatalogue();
+            long before = countMovies();
+            long start = System.nanoTime();
+            movieService.saveMoviesToDatabase(PAGES);
+            long elapsed = System.nanoTime() - start;
+
+            latenciesNanos.add(elapsed);
+            totalNanos += elapsed;
+            importedMovies += countMovies() - before;
+        }
+
+        Collections.sort(latenciesNanos);
+        double importsPerSecond = importedMovies / (totalNanos / 1e9);
+        System.out.printf("Import benchmark: pages=%d iterations=%d movies=%d imports/sec=%.1f p50=%.1fms p99=%.1fms " +
+                        "discoverRequests=%d creditRequests=%d injectedErrors=%d%n",
+                PAGES, ITERATIONS, importedMovies, importsPerSecond,
+                percentile(latenciesNanos, 50) / 1e6, percentile(latenciesNanos, 99) / 1e6,
+                stub.getDiscoverRequests(), stub.getCreditRequests(), stub.getInjectedErrors());
+
+        assertTrue(importedMovies > 0, "The benchmark should import movies from the stub.");
+    }
+
+    // Imports skip movies that are already stored, so every iteration starts from an empty catalogue.
+    private void clearCatalogue() {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery("TRUNCATE movies, actors, directors, actors_movies, directors_movies, movie_genre, " +
+                    "import_job_pages, import_leases, import_jobs").executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    private long countMovies() {
+        try (var em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(m) FROM Movie m", Long.class).getSingleResult();
+        }
+    }
+
+    // Nearest-rank percentile of an ascending list.
+    private static long percentile(List<Long> sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+}
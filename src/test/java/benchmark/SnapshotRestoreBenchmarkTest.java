@@ -0,0 +1,139 @@
+package benchmark;
+
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.GenreDAO;
+import app.persistence.daos.SnapshotDAO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures {@link SnapshotDAO#restore}, a warm start from a catalogue snapshot, against the Testcontainers
+ * database. The catalogue is generated in SQL and exported once; every iteration then restores the same file over
+ * it. Excluded from the default build; run it with {@code mvn test -Pbenchmark}.
+ *
+ * Tunables are read from system properties: {@code benchmark.movies}, {@code benchmark.cast},
+ * {@code benchmark.iterations} and {@code benchmark.warmups}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SnapshotRestoreBenchmarkTest {
+    private static final int MOVIES = Integer.getInteger("benchmark.movies", 100_000);
+    private static final int CAST = Integer.getInteger("benchmark.cast", 10);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 3);
+    private static final int WARMUPS = Integer.getInteger("benchmark.warmups", 1);
+    private static final int ACTORS = Math.max(1, MOVIES);
+    private static final int DIRECTORS = Math.max(1, MOVIES / 10);
+
+    private EntityManagerFactory emf;
+    private SnapshotDAO snapshotDAO;
+    private Path snapshot;
+    private long exportNanos;
+    private long rows;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        snapshotDAO = new SnapshotDAO(emf);
+        withConnection(connection -> connection.createStatement().execute(
+                "TRUNCATE movies, actors, directors, genres, actors_movies, directors_movies, movie_genre RESTART IDENTITY"));
+        // Genre ids are 1 to 19 from here on.
+        new GenreDAO(emf).persistKnownGenres();
+        generateCatalogue();
+
+        snapshot = Files.createTempFile("catalogue", ".snapshot");
+        long start = System.nanoTime();
+        rows = snapshotDAO.export(snapshot).values().stream().mapToLong(Long::longValue).sum();
+        exportNanos = System.nanoTime() - start;
+    }
+
+    @AfterAll
+    void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        emf.close();
+    }
+
+    @Test
+    void benchmarkRestore() throws IOException {
+        for (int i = 0; i < WARMUPS; i++) {
+            snapshotDAO.restore(snapshot);
+        }
+
+        List<Long> latenciesNanos = new ArrayList<>();
+        Map<String, Long> restored = Map.of();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            restored = snapshotDAO.restore(snapshot);
+            latenciesNanos.add(System.nanoTime() - start);
+        }
+
+        Collections.sort(latenciesNanos);
+        long median = latenciesNanos.get((latenciesNanos.size() - 1) / 2);
+        System.out.printf("Snapshot restore benchmark: movies=%d rows=%d size=%.1fMB export=%.0fms " +
+                        "restore p50=%.0fms min=%.0fms max=%.0fms rows/sec=%.0f%n",
+                MOVIES, rows, Files.size(snapshot) / 1e6, exportNanos / 1e6,
+                median / 1e6, latenciesNanos.get(0) / 1e6, latenciesNanos.get(latenciesNanos.size() - 1) / 1e6,
+                rows / (median / 1e9));
+
+        assertEquals(MOVIES, restored.get("movies").longValue());
+        assertEquals((long) MOVIES * CAST, restored.get("actors_movies").longValue());
+    }
+
+    // Each movie casts CAST actors spread over the whole pool, has one director and one or two genres.
+    private void generateCatalogue() {
+        withConnection(connection -> {
+            execute(connection, "INSERT INTO actors (actor_id, name, gender) " +
+                    "SELECT i, 'Actor ' || i, i % 3 FROM generate_series(1, ?) i", ACTORS);
+            execute(connection, "INSERT INTO directors (name, gender) " +
+                    "SELECT 'Director ' || i, i % 3 FROM generate_series(1, ?) i", DIRECTORS);
+            execute(connection, "INSERT INTO movies (tmdb_id, original_title, release_date, vote_average, genre_mask) " +
+                    "SELECT i, 'Movie ' || i, DATE '2000-01-01' + i % 8000, (i % 100) / 10.0, 0 FROM generate_series(1, ?) i", MOVIES);
+            execute(connection, "INSERT INTO actors_movies (movie_id, actor_id) " +
+                    "SELECT m.id, 1 + (m.id::bigint * 31 + c * 7919) % " + ACTORS + " FROM movies m, generate_series(1, ?) c", CAST);
+            execute(connection, "INSERT INTO directors_movies (movie_id, director_id) " +
+                    "SELECT id, 1 + id % ? FROM movies", DIRECTORS);
+            execute(connection, "INSERT INTO movie_genre (movie_id, genre_id) " +
+                    "SELECT m.id, g.id FROM movies m JOIN genres g ON g.id IN (1 + m.id % 19, 1 + (m.id / 19) % 19)");
+            connection.createStatement().execute("ANALYZE");
+        });
+    }
+
+    private static void execute(Connection connection, String sql, int... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setInt(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private void withConnection(Work work) {
+        try (var em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(work::execute);
+            em.getTransaction().commit();
+        }
+    }
+
+    private interface Work {
+        void execute(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import app.enums.HibernateConfigState;
+import app.persistence.StartupProbe;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Time to first query of a fresh JVM. Each iteration starts {@link StartupProbe} in a child JVM against one shared
+ * PostgreSQL container, so only the application's own startup is measured. Excluded from the default build; run it
+ * with {@code mvn test -Pbenchmark}.
+ *
+ * Tunables are read from system properties: {@code benchmark.iterations} and {@code startup.jvmArgs}, e.g.
+ * {@code -Dstartup.jvmArgs=-XX:SharedArchiveFile=target/app.jsa}.
+ */
+@Tag("benchmark")
+public class StartupBenchmarkTest {
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5);
+    private static final Pattern TIMINGS = Pattern.compile("STARTUP jvmToMain=(\\d+)ms boot=(\\d+)ms firstQuery=(\\d+)ms total=(\\d+)ms");
+
+    @Test
+    void benchmarkTimeToFirstQuery() throws IOException, InterruptedException {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15.3-alpine3.18")) {
+            postgres.start();
+
+            List<Long> totals = new ArrayList<>();
+            List<Long> boots = new ArrayList<>();
+            for (int i = 0; i < ITERATIONS; i++) {
+                StartupProbe.Timings timings = runChild(postgres);
+                totals.add(timings.totalMillis());
+                boots.add(timings.bootMillis());
+            }
+
+            Collections.sort(totals);
+            Collections.sort(boots);
+            System.out.printf("Startup benchmark: iterations=%d timeToFirstQuery min=%dms median=%dms boot min=%dms median=%dms%n",
+                    ITERATIONS, totals.get(0), totals.get(totals.size() / 2), boots.get(0), boots.get(boots.size() / 2));
+        }
+    }
+
+    private StartupProbe.Timings runChild(PostgreSQLContainer<?> postgres) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = System.getProperty("startup.jvmArgs", "");
+        if (!jvmArgs.isBlank()) {
+            command.addAll(List.of(jvmArgs.trim().split("\\s+")));
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), StartupProbe.class.getName(), HibernateConfigState.TEST.name()));
+
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        // The TEST_DB_* branch of HibernateConfig connects to the running container instead of starting its own.
+        Map<String, String> env = builder.environment();
+        env.put("TEST_DB_URL", "jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getFirstMappedPort() + "/");
+        env.put("TEST_DB_NAME", postgres.getDatabaseName());
+        env.put("TEST_DB_USERNAME", postgres.getUsername());
+        env.put("TEST_DB_PASSWORD", postgres.getPassword());
+
+        Process process = builder.start();
+        StartupProbe.Timings timings = null;
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher matcher = TIMINGS.matcher(line);
+                if (matcher.find()) {
+                    timings = new StartupProbe.Timings(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                            Long.parseLong(matcher.group(3)));
+                }
+            }
+        }
+        assertEquals(0, process.waitFor(), "The startup probe failed.");
+        if (timings == null) {
+            throw new IllegalStateException("The startup probe printed no timings.");
+        }
+        return timings;
+    }
+}
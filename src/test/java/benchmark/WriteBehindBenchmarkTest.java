@@ -0,0 +1,99 @@
+package benchmark;
+
+import app.dtos.ActorDTO;
+import app.enums.HibernateConfigState;
+import app.persistence.HibernateConfig;
+import app.persistence.daos.ActorDAO;
+import app.persistence.daos.WriteBehindBuffer;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of many threads creating actors one at a time, each call with its own transaction, against the same
+ * writes going through a {@link WriteBehindBuffer}. Excluded from the default build; run it with
+ * {@code mvn test -Pbenchmark}.
+ *
+ * Tunables are read from system properties: {@code benchmark.writers}, {@code benchmark.writes},
+ * {@code benchmark.batchSize} and {@code benchmark.batchDelayMs}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WriteBehindBenchmarkTest {
+    private static final int WRITERS = Integer.getInteger("benchmark.writers", 16);
+    private static final int WRITES_PER_WRITER = Integer.getInteger("benchmark.writes", 200);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batchSize", 100);
+    private static final int BATCH_DELAY_MILLIS = Integer.getInteger("benchmark.batchDelayMs", 5);
+
+    private EntityManagerFactory emf;
+    private ActorDAO actorDAO;
+
+    @BeforeAll
+    void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryConfig(HibernateConfigState.TEST);
+        actorDAO = new ActorDAO(emf);
+    }
+
+    @AfterAll
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void benchmarkGroupCommit() {
+        // Warm-up of both paths, so neither pays for class loading and the first connections.
+        run("warmup-direct", name -> CompletableFuture.completedFuture(actorDAO.create(actor(name))));
+        double direct = run("direct", name -> CompletableFuture.completedFuture(actorDAO.create(actor(name))));
+
+        double buffered;
+        try (WriteBehindBuffer<ActorDTO> buffer = new WriteBehindBuffer<>("benchmark-actors", actorDAO,
+                BATCH_SIZE, Duration.ofMillis(BATCH_DELAY_MILLIS), WRITERS * WRITES_PER_WRITER)) {
+            run("warmup-buffered", name -> buffer.create(actor(name)));
+            buffered = run("buffered", name -> buffer.create(actor(name)));
+        }
+
+        System.out.printf("Write-behind benchmark: writers=%d writes=%d batchSize=%d batchDelayMs=%d " +
+                        "direct=%.0f writes/sec buffered=%.0f writes/sec speedup=%.1fx%n",
+                WRITERS, WRITERS * WRITES_PER_WRITER, BATCH_SIZE, BATCH_DELAY_MILLIS, direct, buffered, buffered / direct);
+
+        assertTrue(buffered > 0 && direct > 0);
+    }
+
+    // Every writer waits for each of its writes, like a request handler would, so the delay of a batch counts.
+    private double run(String label, Function<String, CompletableFuture<ActorDTO>> write) {
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                done.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                        write.apply(label + " " + writer + "-" + i).join();
+                    }
+                }, writers));
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+            return WRITERS * WRITES_PER_WRITER / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    private static ActorDTO actor(String name) {
+        return ActorDTO.builder().name(name).gender(1).build();
+    }
+}
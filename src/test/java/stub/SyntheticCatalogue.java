@@ -0,0 +1,129 @@
+package stub;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic generator of TMDB-shaped documents. The same seed always yields the same discover pages and
+ * credits, and people are drawn from a bounded pool so that actors and directors recur across movies the way
+ * they do in the real catalogue.
+ */
+public class SyntheticCatalogue {
+    public static final int MOVIES_PER_PAGE = 20;
+    private static final int[] GENRE_IDS = {28, 12, 16, 35, 80, 99, 18, 10751, 14, 36, 27, 10402, 9648, 10749, 878, 10770, 53, 10752, 37};
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(2019, 1, 1);
+    // Each original language has its own movies, numbered from language index * LANGUAGE_ID_STRIDE + 1.
+    private static final List<String> LANGUAGES = List.of("da", "sv", "no", "fi", "is");
+    private static final int LANGUAGE_ID_STRIDE = 1_000_000;
+
+    private final long seed;
+    private final int totalPages;
+    private final int personPoolSize;
+    private final int castSize;
+
+    /**
+     * @param seed           seed of the generator
+     * @param totalPages     number of discover pages the catalogue reports
+     * @param personPoolSize number of distinct people cast and crew are drawn from
+     * @param castSize       number of actors per movie
+     */
+    public SyntheticCatalogue(long seed, int totalPages, int personPoolSize, int castSize) {
+        this.seed = seed;
+        this.totalPages = totalPages;
+        this.personPoolSize = personPoolSize;
+        this.castSize = castSize;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public int getTotalMovies() {
+        return totalPages * MOVIES_PER_PAGE;
+    }
+
+    /**
+     * Builds the body of {@code /3/discover/movie?page=n}. Pages past the last one have no results.
+     */
+    public Map<String, Object> discoverPage(int page) {
+        return discoverPage(page, "da");
+    }
+
+    /**
+     * Builds the body of {@code /3/discover/movie?with_original_language=xx&page=n}. Every language has its own
+     * movies, but their cast and crew are drawn from the same pool of people.
+     */
+    public Map<String, Object> discoverPage(int page, String language) {
+        int firstId = Math.max(0, LANGUAGES.indexOf(language)) * LANGUAGE_ID_STRIDE;
+        List<Map<String, Object>> results = new ArrayList<>();
+        if (page >= 1 && page <= totalPages) {
+            for (int i = 0; i < MOVIES_PER_PAGE; i++) {
+                results.add(movieSummary(firstId + (page - 1) * MOVIES_PER_PAGE + i + 1));
+            }
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("page", page);
+        body.put("total_pages", totalPages);
+        body.put("total_results", getTotalMovies());
+        body.put("results", results);
+        return body;
+    }
+
+    /**
+     * Builds the body of {@code /3/movie/{id}?append_to_response=credits}.
+     *
+     * @return the document, or {@code null} if no movie has that id
+     */
+    public Map<String, Object> movieWithCredits(int movieId) {
+        int numberInLanguage = movieId % LANGUAGE_ID_STRIDE;
+        if (numberInLanguage < 1 || numberInLanguage > getTotalMovies() || movieId / LANGUAGE_ID_STRIDE >= LANGUAGES.size()) return null;
+        Random random = randomFor(movieId);
+
+        List<Map<String, Object>> cast = new ArrayList<>();
+        for (int i = 0; i < castSize; i++) {
+            cast.add(person(1 + random.nextInt(personPoolSize), null));
+        }
+        List<Map<String, Object>> crew = new ArrayList<>();
+        crew.add(person(personPoolSize + 1 + random.nextInt(Math.max(1, personPoolSize / 10)), "Director"));
+        crew.add(person(1 + random.nextInt(personPoolSize), "Producer"));
+
+        Map<String, Object> credits = new LinkedHashMap<>();
+        credits.put("cast", cast);
+        credits.put("crew", crew);
+
+        Map<String, Object> body = movieSummary(movieId);
+        body.put("credits", credits);
+        return body;
+    }
+
+    private Map<String, Object> movieSummary(int movieId) {
+        Random random = randomFor(movieId);
+        Map<String, Object> movie = new LinkedHashMap<>();
+        movie.put("id", movieId);
+        movie.put("original_title", "Synthetic Movie " + movieId);
+        movie.put("release_date", FIRST_RELEASE.plusDays(random.nextInt(2000)).toString());
+        movie.put("vote_average", Math.round(random.nextDouble() * 100) / 10.0);
+        movie.put("genre_ids", List.of(GENRE_IDS[random.nextInt(GENRE_IDS.length)], GENRE_IDS[random.nextInt(GENRE_IDS.length)]));
+        return movie;
+    }
+
+    private Map<String, Object> person(int personId, String job) {
+        Map<String, Object> person = new LinkedHashMap<>();
+        person.put("id", personId);
+        person.put("name", "Person " + personId);
+        person.put("gender", personId % 3);
+        if (job != null) {
+            person.put("job", job);
+        }
+        return person;
+    }
+
+    private Random randomFor(int movieId) {
+        return new Random(seed * 31 + movieId);
+    }
+}
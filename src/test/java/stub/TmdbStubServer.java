@@ -0,0 +1,117 @@
+package stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the TMDB API serving a {@link SyntheticCatalogue}. Every request is delayed by a fixed
+ * latency plus random jitter, and a configurable fraction of requests fails with 429 or 500, so imports can be
+ * exercised and measured offline under realistic conditions.
+ */
+public class TmdbStubServer implements AutoCloseable {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SyntheticCatalogue catalogue;
+    private final int latencyMillis;
+    private final int jitterMillis;
+    private final double errorRate;
+    private final Javalin app;
+
+    private final AtomicInteger discoverRequests = new AtomicInteger();
+    private final AtomicInteger creditRequests = new AtomicInteger();
+    private final AtomicInteger injectedErrors = new AtomicInteger();
+
+    private TmdbStubServer(SyntheticCatalogue catalogue, int latencyMillis, int jitterMillis, double errorRate) {
+        this.catalogue = catalogue;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.app = Javalin.create(config -> config.showJavalinBanner = false);
+        app.get("/3/discover/movie", this::discover);
+        app.get("/3/movie/{id}", this::movie);
+    }
+
+    /**
+     * Starts a stub on a free port.
+     *
+     * @param catalogue     the catalogue to serve
+     * @param latencyMillis fixed delay added to every response
+     * @param jitterMillis  upper bound of the random delay added on top of the fixed latency
+     * @param errorRate     fraction of requests, between 0 and 1, answered with an error status
+     * @return the running stub
+     */
+    public static TmdbStubServer start(SyntheticCatalogue catalogue, int latencyMillis, int jitterMillis, double errorRate) {
+        TmdbStubServer server = new TmdbStubServer(catalogue, latencyMillis, jitterMillis, errorRate);
+        server.app.start(0);
+        return server;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + app.port();
+    }
+
+    public int getDiscoverRequests() {
+        return discoverRequests.get();
+    }
+
+    public int getCreditRequests() {
+        return creditRequests.get();
+    }
+
+    public int getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        app.stop();
+    }
+
+    private void discover(Context ctx) throws Exception {
+        discoverRequests.incrementAndGet();
+        if (simulateNetwork(ctx)) return;
+        int page = ctx.queryParamAsClass("page", Integer.class).getOrDefault(1);
+        writeJson(ctx, catalogue.discoverPage(page, ctx.queryParam("with_original_language")));
+    }
+
+    private void movie(Context ctx) throws Exception {
+        creditRequests.incrementAndGet();
+        if (simulateNetwork(ctx)) return;
+        Map<String, Object> body = catalogue.movieWithCredits(ctx.pathParamAsClass("id", Integer.class).get());
+        if (body == null) {
+            ctx.status(404);
+            writeJson(ctx, Map.of("status_code", 34, "status_message", "The resource you requested could not be found."));
+            return;
+        }
+        writeJson(ctx, body);
+    }
+
+    // Sleeps for the configured latency and answers with an error instead of the document if this request
+    // was picked for error injection.
+    private boolean simulateNetwork(Context ctx) throws InterruptedException, JsonProcessingException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int delay = latencyMillis + (jitterMillis > 0 ? random.nextInt(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            boolean rateLimited = random.nextBoolean();
+            ctx.status(rateLimited ? 429 : 500);
+            writeJson(ctx, Map.of("status_code", rateLimited ? 25 : 11,
+                    "status_message", rateLimited ? "Your request count is over the allowed limit." : "Internal error."));
+            return true;
+        }
+        return false;
+    }
+
+    private void writeJson(Context ctx, Object body) throws JsonProcessingException {
+        ctx.contentType("application/json");
+        ctx.result(objectMapper.writeValueAsBytes(body));
+    }
+}